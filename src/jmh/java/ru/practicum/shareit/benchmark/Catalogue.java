@@ -0,0 +1,92 @@
+package ru.practicum.shareit.benchmark;
+
+import ru.practicum.shareit.item.mem.CompactItemRepository;
+import ru.practicum.shareit.item.mem.ItemRepository;
+import ru.practicum.shareit.item.mem.ItemRepositoryImpl;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.mem.CompactUserRepository;
+import ru.practicum.shareit.user.mem.UserRepository;
+import ru.practicum.shareit.user.mem.UserRepositoryImpl;
+import ru.practicum.shareit.user.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Генератор тестового каталога. Случайность с фиксированным зерном, чтобы каждый прогон
+ * работал с одними и теми же данными и результаты разных запусков можно было сравнивать.
+ */
+final class Catalogue {
+
+    static final long SEED = 42;
+    static final int ITEMS_PER_OWNER = 100;
+    static final String MEMORY = "memory";
+    static final String COMPACT = "compact";
+
+    private static final String[] NAMES = {
+        "Дрель", "Перфоратор", "Шуруповёрт", "Лобзик", "Болгарка", "Стремянка", "Палатка", "Велосипед",
+        "Самокат", "Газонокосилка", "Пила", "Рубанок", "Миксер", "Пылесос", "Проектор", "Фотоаппарат"
+    };
+    private static final String[] ADJECTIVES = {
+        "ударная", "аккумуляторная", "сетевая", "лёгкая", "профессиональная", "компактная", "новая",
+        "складная", "мощная", "бесшумная", "туристическая", "детская"
+    };
+    private static final String[] DETAILS = {
+        "в кейсе", "с набором насадок", "с зарядным устройством", "без аккумулятора", "почти новая",
+        "для дачи", "для ремонта", "на выходные", "с инструкцией", "в хорошем состоянии"
+    };
+
+    private Catalogue() {
+    }
+
+    static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(new User(null, "Пользователь " + i, "user" + i + "@shareit.ru"));
+        }
+        return users;
+    }
+
+    static List<Item> items(int count, Random random) {
+        List<Item> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(item(random, (long) (i / ITEMS_PER_OWNER) + 1));
+        }
+        return items;
+    }
+
+    static Item item(Random random, long ownerId) {
+        Item item = new Item();
+        item.setName(pick(random, NAMES) + " " + pick(random, ADJECTIVES));
+        item.setDescription(pick(random, ADJECTIVES) + " " + pick(random, NAMES).toLowerCase()
+                + " " + pick(random, DETAILS));
+        item.setAvailable(random.nextInt(10) != 0);
+        item.setOwner(new User(ownerId, null, null));
+        return item;
+    }
+
+    static int owners(int catalogueSize) {
+        return (catalogueSize + ITEMS_PER_OWNER - 1) / ITEMS_PER_OWNER;
+    }
+
+    static UserRepository userRepository(String storage, int count) {
+        UserRepository repository = COMPACT.equals(storage) ? new CompactUserRepository() : new UserRepositoryImpl();
+        repository.createAll(users(count));
+        return repository;
+    }
+
+    static ItemRepository itemRepository(String storage, int count, Random random) {
+        ItemRepository repository = COMPACT.equals(storage) ? new CompactItemRepository() : new ItemRepositoryImpl();
+        List<Item> items = items(count, random);
+        for (int from = 0; from < items.size(); from += ITEMS_PER_OWNER) {
+            List<Item> ownerItems = items.subList(from, Math.min(from + ITEMS_PER_OWNER, items.size()));
+            repository.addAll(ownerItems.get(0).getOwner().getId(), new ArrayList<>(ownerItems));
+        }
+        return repository;
+    }
+
+    private static String pick(Random random, String[] words) {
+        return words[random.nextInt(words.length)];
+    }
+}
@@ -0,0 +1,94 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.practicum.shareit.item.mem.ItemRepository;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class ItemRepositoryBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int catalogueSize;
+
+    @Param({Catalogue.MEMORY, Catalogue.COMPACT})
+    private String storage;
+
+    private ItemRepository repository;
+    private Random random;
+    private int owners;
+    private long cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        random = new Random(Catalogue.SEED);
+        repository = Catalogue.itemRepository(storage, catalogueSize, random);
+        owners = Catalogue.owners(catalogueSize);
+    }
+
+    @Benchmark
+    public List<Item> searchWord() {
+        return repository.search("дрель", 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Item> searchSubstring() {
+        return repository.search("кумулятор", 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Item> searchShortPrefix() {
+        return repository.search("др", 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Item> searchPhrase() {
+        return repository.search("ударная дрель", 0, PAGE_SIZE);
+    }
+
+    /**
+     * Слово с опечаткой: точных совпадений нет, и вся страница набирается нечёткой частью поиска.
+     */
+    @Benchmark
+    public List<Item> searchFuzzy() {
+        return repository.searchFuzzy("акумуляторная", 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Item> findItemByUserId() {
+        return repository.findItemByUserId(nextOwner(), 0, PAGE_SIZE);
+    }
+
+    /**
+     * Добавленная вещь сразу удаляется, чтобы размер каталога не рос от итерации к итерации.
+     */
+    @Benchmark
+    public Item addAndDelete() {
+        Item item = repository.add(Catalogue.item(random, nextOwner()));
+        repository.deleteByUserIdAndItemId(item.getOwner().getId(), item.getId());
+        return item;
+    }
+
+    @Benchmark
+    public Item update() {
+        Item stored = repository.getById(cursor++ % catalogueSize + 1).orElseThrow();
+        Item item = Catalogue.item(random, stored.getOwner().getId());
+        item.setId(stored.getId());
+        repository.update(stored.getOwner().getId(), item);
+        return item;
+    }
+
+    private long nextOwner() {
+        return cursor++ % owners + 1;
+    }
+}
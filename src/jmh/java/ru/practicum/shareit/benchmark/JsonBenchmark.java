@@ -0,0 +1,81 @@
+package ru.practicum.shareit.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemDtoSerializer;
+import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class JsonBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int catalogueSize;
+
+    /**
+     * reflective — сериализация Jackson по умолчанию, written — {@link ItemDtoSerializer}.
+     */
+    @Param({"reflective", "written"})
+    private String serializer;
+
+    private ObjectMapper objectMapper;
+    private ObjectMapper cborMapper;
+    private List<ItemDto> itemDtos;
+    private ItemDto itemDto;
+    private byte[] itemDtoJson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .modulesToInstall(new ParameterNamesModule());
+        if ("written".equals(serializer)) {
+            builder.serializers(new ItemDtoSerializer());
+        }
+        objectMapper = builder.build();
+        cborMapper = builder.factory(new CBORFactory()).build();
+        List<Item> items = Catalogue.items(catalogueSize, new Random(Catalogue.SEED));
+        long id = 0;
+        for (Item item : items) {
+            item.setId(++id);
+        }
+        itemDtos = ItemMapper.toItemDtoList(items);
+        itemDto = itemDtos.get(0);
+        itemDtoJson = objectMapper.writeValueAsBytes(itemDto);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public byte[] serializeItemDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(itemDto);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public ItemDto deserializeItemDto() throws Exception {
+        return objectMapper.readValue(itemDtoJson, ItemDto.class);
+    }
+
+    @Benchmark
+    public byte[] serializeItemDtoList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(itemDtos);
+    }
+
+    @Benchmark
+    public byte[] serializeItemDtoListCbor() throws JsonProcessingException {
+        return cborMapper.writeValueAsBytes(itemDtos);
+    }
+}
@@ -0,0 +1,52 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.mapper.UserMapper;
+import ru.practicum.shareit.user.model.User;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class MapperBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int catalogueSize;
+
+    private List<Item> items;
+    private List<User> users;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        items = Catalogue.items(catalogueSize, new Random(Catalogue.SEED));
+        users = Catalogue.users(catalogueSize);
+        long id = 0;
+        for (Item item : items) {
+            item.setId(++id);
+        }
+        id = 0;
+        for (User user : users) {
+            user.setId(++id);
+        }
+    }
+
+    @Benchmark
+    public List<ItemDto> toItemDtoList() {
+        return ItemMapper.toItemDtoList(items);
+    }
+
+    @Benchmark
+    public List<UserDto> toUserDtoList() {
+        return UserMapper.toUserDtoList(users);
+    }
+}
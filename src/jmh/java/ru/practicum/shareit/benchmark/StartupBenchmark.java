@@ -0,0 +1,205 @@
+package ru.practicum.shareit.benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замер запуска приложения: каждый прогон стартует отдельную JVM и считает время от запуска процесса
+ * до первого успешного {@code GET /users} и резидентную память процесса в этот момент.
+ * <p>
+ * Параметры: {@code --runs}, {@code --classpath} (по умолчанию {@code target/startup/lib/*}),
+ * {@code --jvm-args="-Xss512k ..."}, {@code --cds=архив} — запуск с архивом классов,
+ * {@code --out=файл} — дописать результаты в CSV. С {@code --train=архив} выполняется один прогон
+ * с {@code -XX:ArchiveClassesAtExit}: JVM записывает архив классов, загруженных до первого ответа,
+ * при остановке. Остальные аргументы передаются приложению, например {@code --spring.profiles.active=fast-startup}.
+ */
+public final class StartupBenchmark {
+
+    private static final String MAIN_CLASS = "ru.practicum.shareit.ShareItApp";
+
+    private static final Duration READY_TIMEOUT = Duration.ofSeconds(120);
+
+    private static final Duration STOP_TIMEOUT = Duration.ofSeconds(30);
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int runs = 5;
+        String classpath = "target/startup/lib/*";
+        String cds = null;
+        String train = null;
+        String out = null;
+        List<String> jvmArgs = new ArrayList<>();
+        List<String> appArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--runs=")) {
+                runs = Integer.parseInt(value(arg));
+            } else if (arg.startsWith("--classpath=")) {
+                classpath = value(arg);
+            } else if (arg.startsWith("--cds=")) {
+                cds = value(arg);
+            } else if (arg.startsWith("--train=")) {
+                train = value(arg);
+            } else if (arg.startsWith("--out=")) {
+                out = value(arg);
+            } else if (arg.startsWith("--jvm-args=")) {
+                jvmArgs.addAll(Arrays.asList(value(arg).trim().split("\\s+")));
+            } else {
+                appArgs.add(arg);
+            }
+        }
+        jvmArgs.removeIf(String::isEmpty);
+
+        if (train != null) {
+            Path archive = Path.of(train);
+            Files.deleteIfExists(archive);
+            jvmArgs.add("-XX:ArchiveClassesAtExit=" + archive);
+            Result result = run(jvmArgs, classpath, appArgs);
+            System.out.printf("Архив классов %s: %,d байт, запуск без архива %d мс%n", archive,
+                    Files.exists(archive) ? Files.size(archive) : 0, result.millis);
+            return;
+        }
+        if (cds != null) {
+            jvmArgs.add("-XX:SharedArchiveFile=" + cds);
+        }
+        List<Result> results = new ArrayList<>();
+        for (int i = 1; i <= runs; i++) {
+            Result result = run(jvmArgs, classpath, appArgs);
+            System.out.printf("Прогон %d: %d мс до первого ответа, RSS %.1f МБ%n", i, result.millis, result.rssMb());
+            results.add(result);
+        }
+        summary(System.out, results);
+        if (out != null) {
+            append(Path.of(out), results, String.join(" ", jvmArgs) + " " + String.join(" ", appArgs));
+        }
+    }
+
+    private static Result run(List<String> jvmArgs, String classpath, List<String> appArgs)
+            throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(classpath);
+        command.add(MAIN_CLASS);
+        command.add("--server.port=" + port);
+        command.addAll(appArgs);
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/users"))
+                .timeout(Duration.ofSeconds(5))
+                .build();
+        long started = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            long deadline = started + READY_TIMEOUT.toNanos();
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Приложение завершилось с кодом " + process.exitValue()
+                            + ": " + String.join(" ", command));
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("Приложение не ответило за " + READY_TIMEOUT);
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        break;
+                    }
+                } catch (IOException e) {
+                    // ещё не слушает порт
+                }
+                Thread.sleep(5);
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            return new Result(millis, rssKb(process.pid()));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(STOP_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    /**
+     * Резидентная память процесса из {@code /proc}; на системах без него — -1.
+     */
+    private static long rssKb(long pid) throws IOException {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        if (!Files.exists(status)) {
+            return -1;
+        }
+        for (String line : Files.readAllLines(status, StandardCharsets.UTF_8)) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        return -1;
+    }
+
+    private static void summary(PrintStream out, List<Result> results) {
+        long[] millis = results.stream().mapToLong(result -> result.millis).sorted().toArray();
+        double[] rss = results.stream().mapToDouble(Result::rssMb).sorted().toArray();
+        out.printf("Время до первого ответа: медиана %d мс, мин %d мс, макс %d мс%n",
+                millis[millis.length / 2], millis[0], millis[millis.length - 1]);
+        out.printf("RSS: медиана %.1f МБ, мин %.1f МБ, макс %.1f МБ%n",
+                rss[rss.length / 2], rss[0], rss[rss.length - 1]);
+    }
+
+    private static void append(Path file, List<Result> results, String arguments) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        if (!Files.exists(file)) {
+            lines.append("time,run,millis,rss_kb,arguments\n");
+        }
+        String time = Instant.now().toString();
+        for (int i = 0; i < results.size(); i++) {
+            lines.append(time).append(',').append(i + 1).append(',').append(results.get(i).millis).append(',')
+                    .append(results.get(i).rssKb).append(",\"").append(arguments.trim().replace("\"", "\"\""))
+                    .append("\"\n");
+        }
+        Files.writeString(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+
+    private static final class Result {
+        private final long millis;
+        private final long rssKb;
+
+        private Result(long millis, long rssKb) {
+            this.millis = millis;
+            this.rssKb = rssKb;
+        }
+
+        private double rssMb() {
+            return rssKb / 1024.0;
+        }
+    }
+}
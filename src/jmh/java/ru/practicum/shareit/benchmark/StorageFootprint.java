@@ -0,0 +1,42 @@
+package ru.practicum.shareit.benchmark;
+
+import ru.practicum.shareit.item.mem.ItemRepository;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.util.Random;
+
+/**
+ * Замер памяти, которую занимает хранилище вещей: для каждого режима хранения строит каталог
+ * и сравнивает занятую кучу после полной сборки мусора до заполнения и после него.
+ * В результат входит и поисковый индекс, общий для обоих режимов.
+ */
+public final class StorageFootprint {
+
+    private static final int GC_ROUNDS = 3;
+
+    private StorageFootprint() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int catalogueSize = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        for (String storage : new String[]{Catalogue.MEMORY, Catalogue.COMPACT}) {
+            long before = usedHeap();
+            ItemRepository repository = Catalogue.itemRepository(storage, catalogueSize, new Random(Catalogue.SEED));
+            long after = usedHeap();
+            System.out.printf("%-8s %,d вещей: %,d байт, %.1f байт на вещь%n", storage, catalogueSize,
+                    after - before, (after - before) / (double) catalogueSize);
+            Reference.reachabilityFence(repository);
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < GC_ROUNDS; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,48 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.practicum.shareit.user.mem.UserRepository;
+import ru.practicum.shareit.user.model.User;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class UserRepositoryBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int catalogueSize;
+
+    @Param({Catalogue.MEMORY, Catalogue.COMPACT})
+    private String storage;
+
+    private UserRepository repository;
+    private long cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = Catalogue.userRepository(storage, catalogueSize);
+    }
+
+    /**
+     * Созданный пользователь сразу удаляется, чтобы размер хранилища не рос от итерации к итерации.
+     */
+    @Benchmark
+    public User createAndDelete() {
+        User user = repository.create(new User(null, "Новый пользователь", "new" + cursor++ + "@shareit.ru"));
+        repository.deleteById(user.getId());
+        return user;
+    }
+
+    @Benchmark
+    public User update() {
+        long id = cursor++ % catalogueSize + 1;
+        User user = new User(id, "Пользователь " + cursor, null);
+        repository.update(user);
+        return user;
+    }
+}
@@ -0,0 +1,146 @@
+package ru.practicum.shareit.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.IntFunction;
+
+/**
+ * Пользователи и вещи, созданные перед замером через REST API, и случайные данные для запросов.
+ */
+final class Catalogue {
+
+    private static final int SEED_CONCURRENCY = 64;
+
+    private static final String[] NAMES = {
+        "Дрель", "Перфоратор", "Шуруповёрт", "Лобзик", "Болгарка", "Стремянка", "Палатка", "Велосипед",
+        "Самокат", "Пила", "Рубанок", "Миксер", "Пылесос", "Проектор", "Фотоаппарат", "Тачка"
+    };
+    private static final String[] ADJECTIVES = {
+        "ударная", "сетевая", "лёгкая", "компактная", "новая", "складная", "мощная", "бесшумная", "детская"
+    };
+    private static final String[] DETAILS = {
+        "в кейсе", "с набором насадок", "с зарядным устройством", "без аккумулятора", "почти новая",
+        "для дачи", "для ремонта", "на выходные", "с инструкцией", "в хорошем состоянии"
+    };
+    private static final String[] SEARCH_TEXTS = {
+        "дрель", "пила", "ударная", "компакт", "др", "аккумулятор", "палатка детская", "насадок"
+    };
+
+    private final URI base;
+    private final long[] userIds;
+    private final long[] itemIds;
+    private final long[] itemOwners;
+
+    private Catalogue(URI base, long[] userIds, long[] itemIds, long[] itemOwners) {
+        this.base = base;
+        this.userIds = userIds;
+        this.itemIds = itemIds;
+        this.itemOwners = itemOwners;
+    }
+
+    static Catalogue seed(HttpClient client, URI base, int users, int items, Random random)
+            throws IOException, InterruptedException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        long run = System.currentTimeMillis();
+        long[] userIds = post(client, objectMapper, users, i -> HttpRequest.newBuilder(base.resolve("/users"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"user" + i + "\",\"email\":\"user" + i
+                        + "." + run + "@load.test\"}"))
+                .build());
+        long[] itemOwners = new long[items];
+        for (int i = 0; i < items; i++) {
+            itemOwners[i] = userIds[random.nextInt(userIds.length)];
+        }
+        Catalogue catalogue = new Catalogue(base, userIds, null, null);
+        List<String> itemJson = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            itemJson.add(catalogue.randomItemJson(random));
+        }
+        long[] itemIds = post(client, objectMapper, items, i -> HttpRequest.newBuilder(base.resolve("/items"))
+                .header("Content-Type", "application/json")
+                .header("X-Sharer-User-Id", Long.toString(itemOwners[i]))
+                .POST(HttpRequest.BodyPublishers.ofString(itemJson.get(i)))
+                .build());
+        return new Catalogue(base, userIds, itemIds, itemOwners);
+    }
+
+    URI uri(String pathAndQuery) {
+        return base.resolve(pathAndQuery);
+    }
+
+    int randomItem(Random random) {
+        return random.nextInt(itemIds.length);
+    }
+
+    long itemId(int item) {
+        return itemIds[item];
+    }
+
+    long itemOwner(int item) {
+        return itemOwners[item];
+    }
+
+    long randomUser(Random random) {
+        return userIds[random.nextInt(userIds.length)];
+    }
+
+    String randomSearchText(Random random) {
+        return URLEncoder.encode(pick(random, SEARCH_TEXTS), StandardCharsets.UTF_8);
+    }
+
+    String randomDescription(Random random) {
+        return pick(random, ADJECTIVES) + " " + pick(random, NAMES).toLowerCase() + " " + pick(random, DETAILS);
+    }
+
+    String randomItemJson(Random random) {
+        String name = pick(random, NAMES) + " " + pick(random, ADJECTIVES);
+        return "{\"name\":\"" + name.substring(0, Math.min(name.length(), 20)) + "\",\"description\":\""
+                + randomDescription(random) + "\",\"available\":" + (random.nextInt(10) > 0) + "}";
+    }
+
+    private static long[] post(HttpClient client, ObjectMapper objectMapper, int count,
+                               IntFunction<HttpRequest> requests) throws IOException, InterruptedException {
+        long[] ids = new long[count];
+        Semaphore inFlight = new Semaphore(SEED_CONCURRENCY);
+        List<CompletableFuture<Void>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            inFlight.acquire();
+            futures.add(client.sendAsync(requests.apply(i), HttpResponse.BodyHandlers.ofByteArray())
+                    .thenAccept(response -> {
+                        if (response.statusCode() / 100 != 2) {
+                            throw new IllegalStateException("Не удалось заполнить каталог: " + response.statusCode()
+                                    + " " + new String(response.body(), StandardCharsets.UTF_8));
+                        }
+                        try {
+                            ids[index] = objectMapper.readTree(response.body()).get("id").asLong();
+                        } catch (IOException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    })
+                    .whenComplete((result, error) -> inFlight.release()));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (RuntimeException e) {
+            throw new IOException("Не удалось заполнить каталог", e);
+        }
+        return ids;
+    }
+
+    private static String pick(Random random, String[] words) {
+        return words[random.nextInt(words.length)];
+    }
+}
@@ -0,0 +1,90 @@
+package ru.practicum.shareit.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Задержки и ошибки по операциям. Задержка считается от запланированного момента отправки,
+ * а не от фактического, поэтому очередь перед перегруженным сервером попадает в перцентили.
+ */
+final class LoadReport {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+
+    private final Stats total = new Stats();
+
+    LoadReport() {
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    void record(Operation operation, long latencyNanos, boolean success) {
+        long micros = Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(latencyNanos), 1), MAX_LATENCY_MICROS);
+        for (Stats target : new Stats[]{stats.get(operation), total}) {
+            target.latency.recordValue(micros);
+            if (!success) {
+                target.errors.increment();
+            }
+        }
+    }
+
+    void dropped(Operation operation) {
+        stats.get(operation).dropped.increment();
+        total.dropped.increment();
+    }
+
+    void print(PrintStream out, double seconds) {
+        out.printf("%-12s %10s %8s %10s %10s %9s %9s %9s %9s%n", "операция", "запросов", "ошибок", "отброшено",
+                "в секунду", "p50, мс", "p99, мс", "p99.9, мс", "max, мс");
+        stats.forEach((operation, value) -> value.print(out, operation.key(), seconds));
+        total.print(out, "всего", seconds);
+    }
+
+    /**
+     * Распределения задержек в формате .hgrm, по файлу на операцию.
+     */
+    void write(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+            write(dir.resolve(entry.getKey().key() + ".hgrm"), entry.getValue().latency);
+        }
+        write(dir.resolve("total.hgrm"), total.latency);
+    }
+
+    private static void write(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private static final class Stats {
+        private final Histogram latency = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+
+        private void print(PrintStream out, String name, double seconds) {
+            long count = latency.getTotalCount();
+            out.printf("%-12s %10d %8d %10d %10.1f %9.2f %9.2f %9.2f %9.2f%n", name, count, errors.sum(),
+                    dropped.sum(), count / seconds, millis(latency.getValueAtPercentile(50)),
+                    millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)),
+                    millis(latency.getMaxValue()));
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package ru.practicum.shareit.loadtest;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.shareit.ShareItApp;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Нагрузочный тест REST API. Поднимает приложение в этом же процессе (или берёт уже запущенное по
+ * {@code --target}), заполняет каталог через контроллеры и подаёт смешанную нагрузку по открытой модели:
+ * запросы отправляются с заданной частотой независимо от того, успевает ли сервер отвечать.
+ * С {@code --connections=N} нагрузка подаётся по закрытой модели: N соединений, каждое отправляет
+ * следующий запрос сразу после ответа на предыдущий, — так замеряется пропускная способность
+ * при большом числе одновременных соединений.
+ * <p>
+ * Параметры теста: {@code --rate}, {@code --connections}, {@code --duration}, {@code --warmup}, {@code --users},
+ * {@code --items}, {@code --mix=get-item:35,search:20,...}, {@code --max-in-flight}, {@code --seed},
+ * {@code --hgrm=каталог}, {@code --target=http://host:port}. Остальные аргументы передаются приложению, например
+ * {@code --shareit.storage.type=compact}.
+ */
+public final class LoadTest {
+
+    private static final Map<String, String> APP_DEFAULTS = Map.of(
+            "server.port", "0",
+            "shareit.rate-limit.enabled", "false",
+            "logging.level.shareit.access", "WARN",
+            "logging.level.ru.practicum.shareit.validation.error", "ERROR",
+            "logging.level.org.springframework.orm.jpa.JpaTransactionManager", "INFO",
+            "logging.level.org.springframework.transaction.interceptor", "INFO");
+
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> appArgs = new ArrayList<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            String key = arg.startsWith("--") && separator > 2 ? arg.substring(2, separator) : null;
+            if (key != null && Option.KEYS.contains(key)) {
+                options.put(key, arg.substring(separator + 1));
+            } else {
+                appArgs.add(arg);
+            }
+        }
+        int rate = Integer.parseInt(options.getOrDefault(Option.RATE, "1000"));
+        int connections = Integer.parseInt(options.getOrDefault(Option.CONNECTIONS, "0"));
+        Duration duration = DurationStyle.detectAndParse(options.getOrDefault(Option.DURATION, "30s"));
+        Duration warmup = DurationStyle.detectAndParse(options.getOrDefault(Option.WARMUP, "10s"));
+        int users = Integer.parseInt(options.getOrDefault(Option.USERS, "1000"));
+        int items = Integer.parseInt(options.getOrDefault(Option.ITEMS, "10000"));
+        int maxInFlight = Integer.parseInt(options.getOrDefault(Option.MAX_IN_FLIGHT, "10000"));
+        Random random = new Random(Long.parseLong(options.getOrDefault(Option.SEED, "42")));
+        Operation[] mix = mix(options.get(Option.MIX));
+
+        ConfigurableApplicationContext context = null;
+        URI base;
+        if (options.containsKey(Option.TARGET)) {
+            base = URI.create(options.get(Option.TARGET));
+        } else {
+            context = new SpringApplicationBuilder(ShareItApp.class).run(withDefaults(appArgs));
+            base = URI.create("http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort());
+        }
+        try {
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            long seeding = System.nanoTime();
+            Catalogue catalogue = Catalogue.seed(client, base, users, items, random);
+            System.out.printf("Каталог: %d пользователей, %d вещей за %d мс%n", users, items,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seeding));
+            LoadReport report;
+            if (connections > 0) {
+                System.out.printf("Нагрузка: %d соединений, прогрев %s, замер %s%n", connections, warmup, duration);
+                report = runClosed(client, catalogue, mix, connections, warmup, duration, random);
+            } else {
+                System.out.printf("Нагрузка: %d запросов в секунду, прогрев %s, замер %s%n", rate, warmup, duration);
+                report = run(client, catalogue, mix, rate, warmup, duration, maxInFlight, random);
+            }
+            report.print(System.out, duration.toNanos() / 1e9);
+            if (options.containsKey(Option.HGRM)) {
+                report.write(Path.of(options.get(Option.HGRM)));
+            }
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private static LoadReport run(HttpClient client, Catalogue catalogue, Operation[] mix, int rate,
+                                  Duration warmup, Duration duration, int maxInFlight, Random random)
+            throws InterruptedException {
+        LoadReport report = new LoadReport();
+        AtomicInteger inFlight = new AtomicInteger();
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        for (long sent = 0; ; sent++) {
+            long scheduled = start + sent * interval;
+            if (scheduled >= end) {
+                break;
+            }
+            long delay = scheduled - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            Operation operation = mix[random.nextInt(mix.length)];
+            boolean measured = scheduled >= measureFrom;
+            if (inFlight.get() >= maxInFlight) {
+                if (measured) {
+                    report.dropped(operation);
+                }
+                continue;
+            }
+            HttpRequest request = operation.request(catalogue, random);
+            inFlight.incrementAndGet();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                inFlight.decrementAndGet();
+                if (measured) {
+                    report.record(operation, System.nanoTime() - scheduled,
+                            error == null && response.statusCode() / 100 == 2);
+                }
+            });
+        }
+        long drainUntil = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainUntil) {
+            Thread.sleep(10);
+        }
+        return report;
+    }
+
+    /**
+     * Закрытая модель: задержка считается от фактической отправки, поэтому при перегрузке растут
+     * не перцентили, а падает число запросов в секунду.
+     */
+    private static LoadReport runClosed(HttpClient client, Catalogue catalogue, Operation[] mix, int connections,
+                                        Duration warmup, Duration duration, Random random)
+            throws InterruptedException {
+        LoadReport report = new LoadReport();
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        CountDownLatch finished = new CountDownLatch(connections);
+        for (int i = 0; i < connections; i++) {
+            new Connection(client, catalogue, mix, random, report, measureFrom, end, finished).send();
+        }
+        finished.await(warmup.plus(duration).plus(DRAIN_TIMEOUT).toNanos(), TimeUnit.NANOSECONDS);
+        return report;
+    }
+
+    /**
+     * Таблица операций, в которой каждая встречается столько раз, каков её вес.
+     */
+    private static Operation[] mix(String spec) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        if (spec == null) {
+            for (Operation operation : Operation.values()) {
+                weights.put(operation, operation.defaultWeight());
+            }
+        } else {
+            for (String entry : spec.split(",")) {
+                String[] parts = entry.split(":");
+                weights.put(Operation.byKey(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+            }
+        }
+        List<Operation> table = new ArrayList<>();
+        weights.forEach((operation, weight) -> table.addAll(Collections.nCopies(weight, operation)));
+        if (table.isEmpty()) {
+            throw new IllegalArgumentException("Смесь операций пуста");
+        }
+        return table.toArray(new Operation[0]);
+    }
+
+    private static String[] withDefaults(List<String> appArgs) {
+        List<String> result = new ArrayList<>();
+        APP_DEFAULTS.forEach((key, value) -> {
+            if (appArgs.stream().noneMatch(arg -> arg.startsWith("--" + key + "="))) {
+                result.add("--" + key + "=" + value);
+            }
+        });
+        result.addAll(appArgs);
+        return result.toArray(new String[0]);
+    }
+
+    private static final class Connection {
+        private final HttpClient client;
+        private final Catalogue catalogue;
+        private final Operation[] mix;
+        private final Random random;
+        private final LoadReport report;
+        private final long measureFrom;
+        private final long end;
+        private final CountDownLatch finished;
+
+        private Connection(HttpClient client, Catalogue catalogue, Operation[] mix, Random random, LoadReport report,
+                           long measureFrom, long end, CountDownLatch finished) {
+            this.client = client;
+            this.catalogue = catalogue;
+            this.mix = mix;
+            this.random = random;
+            this.report = report;
+            this.measureFrom = measureFrom;
+            this.end = end;
+            this.finished = finished;
+        }
+
+        private void send() {
+            long sent = System.nanoTime();
+            if (sent >= end) {
+                finished.countDown();
+                return;
+            }
+            Operation operation = mix[random.nextInt(mix.length)];
+            client.sendAsync(operation.request(catalogue, random), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (sent >= measureFrom) {
+                            report.record(operation, System.nanoTime() - sent,
+                                    error == null && response.statusCode() / 100 == 2);
+                        }
+                        send();
+                    });
+        }
+    }
+
+    private static final class Option {
+        private static final String RATE = "rate";
+        private static final String CONNECTIONS = "connections";
+        private static final String DURATION = "duration";
+        private static final String WARMUP = "warmup";
+        private static final String USERS = "users";
+        private static final String ITEMS = "items";
+        private static final String MIX = "mix";
+        private static final String MAX_IN_FLIGHT = "max-in-flight";
+        private static final String SEED = "seed";
+        private static final String HGRM = "hgrm";
+        private static final String TARGET = "target";
+        private static final Set<String> KEYS = Set.of(RATE, CONNECTIONS, DURATION, WARMUP, USERS, ITEMS, MIX,
+                MAX_IN_FLIGHT, SEED, HGRM, TARGET);
+    }
+}
@@ -0,0 +1,97 @@
+package ru.practicum.shareit.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.Random;
+
+/**
+ * Операции смешанной нагрузки и их веса по умолчанию.
+ */
+enum Operation {
+
+    GET_ITEM("get-item", 35) {
+        @Override
+        HttpRequest request(Catalogue catalogue, Random random) {
+            int item = catalogue.randomItem(random);
+            return get(catalogue.uri("/items/" + catalogue.itemId(item)));
+        }
+    },
+    LIST_OWNER("list-owner", 15) {
+        @Override
+        HttpRequest request(Catalogue catalogue, Random random) {
+            return get(catalogue.uri("/items?from=0&size=20"), catalogue.randomUser(random));
+        }
+    },
+    SEARCH("search", 20) {
+        @Override
+        HttpRequest request(Catalogue catalogue, Random random) {
+            return get(catalogue.uri("/items/search?from=0&size=20&text=" + catalogue.randomSearchText(random)));
+        }
+    },
+    GET_USER("get-user", 10) {
+        @Override
+        HttpRequest request(Catalogue catalogue, Random random) {
+            return get(catalogue.uri("/users/" + catalogue.randomUser(random)));
+        }
+    },
+    UPDATE_ITEM("update-item", 15) {
+        @Override
+        HttpRequest request(Catalogue catalogue, Random random) {
+            int item = catalogue.randomItem(random);
+            return send("PATCH", catalogue.uri("/items/" + catalogue.itemId(item)), catalogue.itemOwner(item),
+                    "{\"description\":\"" + catalogue.randomDescription(random) + "\"}");
+        }
+    },
+    CREATE_ITEM("create-item", 5) {
+        @Override
+        HttpRequest request(Catalogue catalogue, Random random) {
+            return send("POST", catalogue.uri("/items"), catalogue.randomUser(random), catalogue.randomItemJson(random));
+        }
+    };
+
+    private static final String USER_ID_HEADER = "X-Sharer-User-Id";
+
+    private final String key;
+
+    private final int defaultWeight;
+
+    Operation(String key, int defaultWeight) {
+        this.key = key;
+        this.defaultWeight = defaultWeight;
+    }
+
+    String key() {
+        return key;
+    }
+
+    int defaultWeight() {
+        return defaultWeight;
+    }
+
+    abstract HttpRequest request(Catalogue catalogue, Random random);
+
+    static Operation byKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equals(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестная операция " + key);
+    }
+
+    private static HttpRequest get(URI uri) {
+        return HttpRequest.newBuilder(uri).GET().build();
+    }
+
+    private static HttpRequest get(URI uri, long userId) {
+        return HttpRequest.newBuilder(uri).header(USER_ID_HEADER, Long.toString(userId)).GET().build();
+    }
+
+    private static HttpRequest send(String method, URI uri, long userId, String json) {
+        return HttpRequest.newBuilder(uri)
+                .header(USER_ID_HEADER, Long.toString(userId))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+}
@@ -0,0 +1,41 @@
+package ru.practicum.shareit.booking;
+
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.validation.exception.ValidationException;
+
+import java.time.LocalDateTime;
+
+public enum BookingState {
+    ALL,
+    CURRENT,
+    PAST,
+    FUTURE,
+    WAITING,
+    REJECTED;
+
+    public static BookingState from(String state) {
+        for (BookingState value : values()) {
+            if (value.name().equalsIgnoreCase(state)) {
+                return value;
+            }
+        }
+        throw new ValidationException("Unknown state: " + state);
+    }
+
+    public boolean matches(Booking booking, LocalDateTime now) {
+        switch (this) {
+            case CURRENT:
+                return !booking.getStart().isAfter(now) && booking.getEnd().isAfter(now);
+            case PAST:
+                return booking.getEnd().isBefore(now);
+            case FUTURE:
+                return booking.getStart().isAfter(now);
+            case WAITING:
+                return booking.getStatus() == BookingStatus.WAITING;
+            case REJECTED:
+                return booking.getStatus() == BookingStatus.REJECTED;
+            default:
+                return true;
+        }
+    }
+}
@@ -1,12 +1,59 @@
 package ru.practicum.shareit.booking.controller;
 
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import lombok.RequiredArgsConstructor;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.booking.BookingState;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.validation.valid.OnCreate;
+
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+import java.util.List;
 
-/**
- * TODO Sprint add-bookings.
- */
 @RestController
 @RequestMapping(path = "/bookings")
+@RequiredArgsConstructor
+@Validated
 public class BookingController {
+
+    private static final String ALL = "" + Integer.MAX_VALUE;
+
+    private final BookingService bookingService;
+
+    @PostMapping
+    public BookingDto add(@RequestHeader("X-Sharer-User-Id") long userId,
+                          @Validated(OnCreate.class) @RequestBody BookingDto bookingDto) {
+        return bookingService.add(userId, bookingDto);
+    }
+
+    @PatchMapping("/{bookingId}")
+    public BookingDto approve(@RequestHeader("X-Sharer-User-Id") long userId,
+                              @PathVariable long bookingId,
+                              @RequestParam boolean approved) {
+        return bookingService.approve(userId, bookingId, approved);
+    }
+
+    @GetMapping("/{bookingId}")
+    public BookingDto get(@RequestHeader("X-Sharer-User-Id") long userId,
+                          @PathVariable long bookingId) {
+        return bookingService.getById(userId, bookingId);
+    }
+
+    @GetMapping
+    public List<BookingDto> getByBooker(@RequestHeader("X-Sharer-User-Id") long userId,
+                                        @RequestParam(defaultValue = "ALL") String state,
+                                        @RequestParam(defaultValue = "0") @PositiveOrZero int from,
+                                        @RequestParam(defaultValue = ALL) @Positive int size) {
+        return bookingService.getByBooker(userId, BookingState.from(state), from, size);
+    }
+
+    @GetMapping("/owner")
+    public List<BookingDto> getByOwner(@RequestHeader("X-Sharer-User-Id") long userId,
+                                       @RequestParam(defaultValue = "ALL") String state,
+                                       @RequestParam(defaultValue = "0") @PositiveOrZero int from,
+                                       @RequestParam(defaultValue = ALL) @Positive int size) {
+        return bookingService.getByOwner(userId, BookingState.from(state), from, size);
+    }
 }
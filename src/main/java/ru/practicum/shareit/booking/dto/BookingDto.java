@@ -1,16 +1,33 @@
 package ru.practicum.shareit.booking.dto;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.validation.valid.OnCreate;
 
+import javax.validation.constraints.Future;
+import javax.validation.constraints.FutureOrPresent;
+import javax.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class BookingDto {
     private Long id;
+
+    @NotNull(message = "Дата начала бронирования не может быть пустой", groups = OnCreate.class)
+    @FutureOrPresent(message = "Дата начала бронирования не может быть в прошлом", groups = OnCreate.class)
     private LocalDateTime start;
+
+    @NotNull(message = "Дата окончания бронирования не может быть пустой", groups = OnCreate.class)
+    @Future(message = "Дата окончания бронирования должна быть в будущем", groups = OnCreate.class)
     private LocalDateTime end;
+
+    @NotNull(message = "Вещь для бронирования не может быть пустой", groups = OnCreate.class)
     private Long item;
+
     private Long booker;
     private BookingStatus status;
 }
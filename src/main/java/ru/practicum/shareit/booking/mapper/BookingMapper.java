@@ -0,0 +1,39 @@
+package ru.practicum.shareit.booking.mapper;
+
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.model.Booking;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BookingMapper {
+    public static BookingDto toBookingDto(Booking booking) {
+        return new BookingDto(
+                booking.getId(),
+                booking.getStart(),
+                booking.getEnd(),
+                booking.getItem(),
+                booking.getBooker(),
+                booking.getStatus()
+        );
+    }
+
+    public static Booking toBooking(BookingDto bookingDto) {
+        return new Booking(
+                bookingDto.getId(),
+                bookingDto.getStart(),
+                bookingDto.getEnd(),
+                bookingDto.getItem(),
+                bookingDto.getBooker(),
+                bookingDto.getStatus()
+        );
+    }
+
+    public static List<BookingDto> toBookingDtoList(List<Booking> bookingList) {
+        List<BookingDto> bookingDtoList = new ArrayList<>(bookingList.size());
+        for (Booking booking : bookingList) {
+            bookingDtoList.add(toBookingDto(booking));
+        }
+        return bookingDtoList;
+    }
+}
@@ -1,4 +1,25 @@
 package ru.practicum.shareit.booking.mem;
 
-interface BookingRepository {
+import ru.practicum.shareit.booking.BookingState;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.model.Booking;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface BookingRepository {
+    Booking add(Booking booking, Long ownerId);
+
+    /**
+     * Подтверждает или отклоняет ожидающее бронирование. Статус проверяется под блокировкой вещи,
+     * поэтому из одновременных решений по одному бронированию применяется только первое.
+     */
+    Booking updateStatus(Long bookingId, BookingStatus status);
+
+    Optional<Booking> getById(Long bookingId);
+
+    List<Booking> findByBooker(Long bookerId, BookingState state, LocalDateTime now, int from, int size);
+
+    List<Booking> findByOwner(Long ownerId, BookingState state, LocalDateTime now, int from, int size);
 }
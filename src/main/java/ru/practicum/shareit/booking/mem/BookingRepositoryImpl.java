@@ -1,4 +1,127 @@
 package ru.practicum.shareit.booking.mem;
 
-public class BookingRepositoryImpl {
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.booking.BookingState;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.storage.StripedLock;
+import ru.practicum.shareit.validation.exception.ConflictException;
+import ru.practicum.shareit.validation.exception.NotFoundException;
+import ru.practicum.shareit.validation.exception.ValidationException;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+
+@Repository
+public class BookingRepositoryImpl implements BookingRepository {
+
+    private final Map<Long, Booking> bookings = new ConcurrentHashMap<>();
+    private final Map<Long, Long> bookingOwners = new ConcurrentHashMap<>();
+    private final Map<Long, NavigableMap<LocalDateTime, Booking>> approvedByItem = new ConcurrentHashMap<>();
+    private final Map<Long, BookingTimeline> bookerTimelines = new ConcurrentHashMap<>();
+    private final Map<Long, BookingTimeline> ownerTimelines = new ConcurrentHashMap<>();
+    private final StripedLock locks = new StripedLock(64);
+    private final AtomicLong idGenerator = new AtomicLong(0);
+
+    @Override
+    public Booking add(Booking booking, Long ownerId) {
+        Lock lock = locks.get(booking.getItem());
+        lock.lock();
+        try {
+            if (overlapsApproved(booking)) {
+                throw new ConflictException("Вещь уже забронирована на это время");
+            }
+            booking.setId(idGenerator.incrementAndGet());
+            bookings.put(booking.getId(), booking);
+            bookingOwners.put(booking.getId(), ownerId);
+            bookerTimelines.computeIfAbsent(booking.getBooker(), id -> new BookingTimeline()).add(booking);
+            ownerTimelines.computeIfAbsent(ownerId, id -> new BookingTimeline()).add(booking);
+            if (booking.getStatus() == BookingStatus.APPROVED) {
+                approvedTimeline(booking.getItem()).put(booking.getStart(), booking);
+            }
+            return booking;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Booking updateStatus(Long bookingId, BookingStatus status) {
+        Booking booking = getById(bookingId)
+                .orElseThrow(() -> new NotFoundException("Бронирование не найдено"));
+        Lock lock = locks.get(booking.getItem());
+        lock.lock();
+        try {
+            Booking current = bookings.get(bookingId);
+            if (current.getStatus() != BookingStatus.WAITING) {
+                throw new ValidationException("Бронирование уже рассмотрено");
+            }
+            if (status == BookingStatus.APPROVED && overlapsApproved(current)) {
+                throw new ConflictException("Вещь уже забронирована на это время");
+            }
+            Booking updated = new Booking(current.getId(), current.getStart(), current.getEnd(),
+                    current.getItem(), current.getBooker(), status);
+            NavigableMap<LocalDateTime, Booking> approved = approvedTimeline(current.getItem());
+            if (status == BookingStatus.APPROVED) {
+                approved.put(updated.getStart(), updated);
+            } else if (current.getStatus() == BookingStatus.APPROVED) {
+                approved.remove(current.getStart());
+            }
+            bookings.put(bookingId, updated);
+            bookerTimelines.get(current.getBooker()).changeStatus(current, current.getStatus(), status);
+            ownerTimelines.get(bookingOwners.get(bookingId)).changeStatus(current, current.getStatus(), status);
+            return updated;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Booking> getById(Long bookingId) {
+        return Optional.ofNullable(bookings.get(bookingId));
+    }
+
+    @Override
+    public List<Booking> findByBooker(Long bookerId, BookingState state, LocalDateTime now, int from, int size) {
+        return find(bookerTimelines.get(bookerId), state, now, from, size);
+    }
+
+    @Override
+    public List<Booking> findByOwner(Long ownerId, BookingState state, LocalDateTime now, int from, int size) {
+        return find(ownerTimelines.get(ownerId), state, now, from, size);
+    }
+
+    private List<Booking> find(BookingTimeline timeline, BookingState state, LocalDateTime now, int from, int size) {
+        if (timeline == null) {
+            return Collections.emptyList();
+        }
+        return timeline.find(state, now)
+                .map(booking -> bookings.get(booking.getId()))
+                .filter(booking -> state.matches(booking, now))
+                .skip(from)
+                .limit(size)
+                .collect(Collectors.toList());
+    }
+
+    private NavigableMap<LocalDateTime, Booking> approvedTimeline(Long itemId) {
+        return approvedByItem.computeIfAbsent(itemId, id -> new ConcurrentSkipListMap<>());
+    }
+
+    private boolean overlapsApproved(Booking booking) {
+        NavigableMap<LocalDateTime, Booking> approved = approvedByItem.get(booking.getItem());
+        if (approved == null) {
+            return false;
+        }
+        Map.Entry<LocalDateTime, Booking> before = approved.floorEntry(booking.getStart());
+        if (before != null && before.getValue().getEnd().isAfter(booking.getStart())) {
+            return true;
+        }
+        Map.Entry<LocalDateTime, Booking> after = approved.higherEntry(booking.getStart());
+        return after != null && after.getKey().isBefore(booking.getEnd());
+    }
 }
@@ -0,0 +1,68 @@
+package ru.practicum.shareit.booking.mem;
+
+import ru.practicum.shareit.booking.BookingState;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.model.Booking;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.stream.Stream;
+
+/**
+ * Бронирования одного арендатора или одного владельца, упорядоченные по дате начала от новых к старым.
+ * Порядок определяется только датой начала и идентификатором, которые у бронирования не меняются,
+ * поэтому в наборах лежат ключи, а актуальное состояние бронирования хранит репозиторий.
+ */
+class BookingTimeline {
+
+    private static final Comparator<Booking> NEWEST_FIRST = Comparator
+            .comparing(Booking::getStart, Comparator.reverseOrder())
+            .thenComparing(Booking::getId, Comparator.reverseOrder());
+
+    private final NavigableSet<Booking> all = new ConcurrentSkipListSet<>(NEWEST_FIRST);
+    private final Map<BookingStatus, NavigableSet<Booking>> byStatus = new EnumMap<>(BookingStatus.class);
+    private final LongAccumulator maxDurationSeconds = new LongAccumulator(Math::max, 0);
+
+    BookingTimeline() {
+        for (BookingStatus status : BookingStatus.values()) {
+            byStatus.put(status, new ConcurrentSkipListSet<>(NEWEST_FIRST));
+        }
+    }
+
+    void add(Booking booking) {
+        maxDurationSeconds.accumulate(Duration.between(booking.getStart(), booking.getEnd()).getSeconds() + 1);
+        all.add(booking);
+        byStatus.get(booking.getStatus()).add(booking);
+    }
+
+    void changeStatus(Booking booking, BookingStatus from, BookingStatus to) {
+        byStatus.get(to).add(booking);
+        byStatus.get(from).remove(booking);
+    }
+
+    Stream<Booking> find(BookingState state, LocalDateTime now) {
+        Booking probe = new Booking(Long.MAX_VALUE, now, null, null, null, null);
+        switch (state) {
+            case FUTURE:
+                return all.headSet(probe, false).stream();
+            case CURRENT:
+                LocalDateTime earliestStart = now.minusSeconds(maxDurationSeconds.get());
+                return all.tailSet(probe, true).stream()
+                        .takeWhile(booking -> !booking.getStart().isBefore(earliestStart));
+            case PAST:
+                return all.tailSet(probe, true).stream();
+            case WAITING:
+                return byStatus.get(BookingStatus.WAITING).stream();
+            case REJECTED:
+                return byStatus.get(BookingStatus.REJECTED).stream();
+            default:
+                return all.stream();
+        }
+    }
+}
@@ -1,4 +1,19 @@
 package ru.practicum.shareit.booking.service;
 
-interface BookingService {
+import ru.practicum.shareit.booking.BookingState;
+import ru.practicum.shareit.booking.dto.BookingDto;
+
+import java.util.List;
+
+public interface BookingService {
+    BookingDto add(Long userId, BookingDto bookingDto);
+
+    BookingDto approve(Long userId, Long bookingId, boolean approved);
+
+    BookingDto getById(Long userId, Long bookingId);
+
+    List<BookingDto> getByBooker(Long userId, BookingState state, int from, int size);
+
+    List<BookingDto> getByOwner(Long userId, BookingState state, int from, int size);
+
 }
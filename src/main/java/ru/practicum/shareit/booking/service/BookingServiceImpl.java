@@ -1,4 +1,96 @@
 package ru.practicum.shareit.booking.service;
 
-public class BookingServiceImpl {
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import ru.practicum.shareit.booking.BookingState;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.mapper.BookingMapper;
+import ru.practicum.shareit.booking.mem.BookingRepository;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.item.mem.ItemRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.service.UserService;
+import ru.practicum.shareit.validation.exception.NotFoundException;
+import ru.practicum.shareit.validation.exception.ValidationException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Timed("shareit.service")
+public class BookingServiceImpl implements BookingService {
+
+    private final BookingRepository bookingRepository;
+
+    private final ItemRepository itemRepository;
+
+    private final UserService userService;
+
+    @Override
+    public BookingDto add(Long userId, BookingDto bookingDto) {
+        userService.getById(userId);
+        Item item = itemRepository.getById(bookingDto.getItem())
+                .orElseThrow(() -> new NotFoundException("Вещь не найдена"));
+        if (item.getOwner().getId().equals(userId)) {
+            throw new NotFoundException("Владелец не может забронировать свою вещь");
+        }
+        if (!Boolean.TRUE.equals(item.getAvailable())) {
+            throw new ValidationException("Вещь недоступна для бронирования");
+        }
+        if (!bookingDto.getEnd().isAfter(bookingDto.getStart())) {
+            throw new ValidationException("Дата окончания бронирования должна быть позже даты начала");
+        }
+
+        bookingDto.setBooker(userId);
+        bookingDto.setStatus(BookingStatus.WAITING);
+        Booking booking = BookingMapper.toBooking(bookingDto);
+        return BookingMapper.toBookingDto(bookingRepository.add(booking, item.getOwner().getId()));
+    }
+
+    @Override
+    public BookingDto approve(Long userId, Long bookingId, boolean approved) {
+        Booking booking = bookingRepository.getById(bookingId)
+                .orElseThrow(() -> new NotFoundException("Бронирование не найдено"));
+        if (!userId.equals(getOwnerId(booking))) {
+            throw new NotFoundException("Подтвердить бронирование может только владелец вещи");
+        }
+        if (booking.getStatus() != BookingStatus.WAITING) {
+            throw new ValidationException("Бронирование уже рассмотрено");
+        }
+        BookingStatus status = approved ? BookingStatus.APPROVED : BookingStatus.REJECTED;
+        return BookingMapper.toBookingDto(bookingRepository.updateStatus(bookingId, status));
+    }
+
+    @Override
+    public BookingDto getById(Long userId, Long bookingId) {
+        Booking booking = bookingRepository.getById(bookingId)
+                .orElseThrow(() -> new NotFoundException("Бронирование не найдено"));
+        if (!userId.equals(booking.getBooker()) && !userId.equals(getOwnerId(booking))) {
+            throw new NotFoundException("Бронирование не найдено");
+        }
+        return BookingMapper.toBookingDto(booking);
+    }
+
+    @Override
+    public List<BookingDto> getByBooker(Long userId, BookingState state, int from, int size) {
+        userService.getById(userId);
+        return BookingMapper.toBookingDtoList(
+                bookingRepository.findByBooker(userId, state, LocalDateTime.now(), from, size));
+    }
+
+    @Override
+    public List<BookingDto> getByOwner(Long userId, BookingState state, int from, int size) {
+        userService.getById(userId);
+        return BookingMapper.toBookingDtoList(
+                bookingRepository.findByOwner(userId, state, LocalDateTime.now(), from, size));
+    }
+
+    private Long getOwnerId(Booking booking) {
+        return itemRepository.getById(booking.getItem())
+                .map(item -> item.getOwner().getId())
+                .orElse(null);
+    }
 }
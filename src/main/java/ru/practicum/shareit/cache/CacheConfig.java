@@ -0,0 +1,17 @@
+package ru.practicum.shareit.cache;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Кэши сервисного слоя. Размер, время жизни и сбор статистики задаются свойствами
+ * {@code spring.cache.*}, статистика попаданий публикуется через actuator.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String USERS = "users";
+
+    public static final String ITEMS = "items";
+}
@@ -0,0 +1,206 @@
+package ru.practicum.shareit.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.user.mem.UserRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.EmailReservations;
+import ru.practicum.shareit.validation.exception.ConflictException;
+import ru.practicum.shareit.validation.exception.UnavailableException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Резервирование адресов почты в кластере. Адрес резервируется на узле, которому кольцо отводит хеш адреса,
+ * поэтому один адрес не достанется двум пользователям, даже если они живут на разных узлах. Узел помнит,
+ * какой узел зарезервировал адрес, и освобождает адрес только по его просьбе.
+ * <p>
+ * Резервирования хранятся в памяти. Запустившись, узел передаёт каждому узлу полный список адресов своих
+ * пользователей, которые тот резервирует, — резервирования прежнего запуска при этом заменяются, — и забирает
+ * у него адреса его пользователей, которые достаются себе. Недоступный узел пропускается: синхронизация
+ * с ним пройдёт, когда запустится он сам.
+ */
+@Component
+@ConditionalOnProperty(name = "shareit.cluster.enabled", havingValue = "true")
+@Slf4j
+public class ClusterEmailReservations implements EmailReservations {
+
+    static final String PATH = "/cluster/emails";
+
+    private static final String UNAVAILABLE = "Узел кластера недоступен, повторите запрос позже";
+
+    /**
+     * Адреса, отведённые этому узлу, и номер узла, который их зарезервировал.
+     */
+    private final Map<String, Integer> reserved = new ConcurrentHashMap<>();
+
+    private final ClusterTopology topology;
+
+    private final UserRepository userRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final HttpClient client;
+
+    private final Duration timeout;
+
+    public ClusterEmailReservations(ClusterTopology topology, UserRepository userRepository,
+                                    ObjectMapper objectMapper,
+                                    @Value("${shareit.cluster.timeout:2s}") Duration timeout) {
+        this.topology = topology;
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    @Override
+    public void reserve(String email) {
+        int node = topology.nodeForEmail(email);
+        if (node == topology.self()) {
+            reserve(email, node);
+            return;
+        }
+        int status = send(node, HttpRequest.newBuilder(uri(node, email)).POST(HttpRequest.BodyPublishers.noBody()))
+                .statusCode();
+        if (status == HttpStatus.CONFLICT.value()) {
+            throw conflict();
+        }
+        if (status != HttpStatus.OK.value()) {
+            throw unavailable(node, "ответил " + status);
+        }
+    }
+
+    /**
+     * Освобождает адрес. Если узел, хранящий резервирование, недоступен, адрес остаётся занятым до его
+     * перезапуска: операция над пользователем уже выполнена, и отменять её из-за этого не нужно.
+     */
+    @Override
+    public void release(String email) {
+        int node = topology.nodeForEmail(email);
+        if (node == topology.self()) {
+            release(email, node);
+            return;
+        }
+        try {
+            send(node, HttpRequest.newBuilder(uri(node, email)).DELETE());
+        } catch (UnavailableException e) {
+            log.warn("Адрес почты на узле {} не освобождён и останется занятым до перезапуска узла", node);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void synchronize() {
+        replace(topology.self(), emailsOfUsersFor(topology.self()));
+        for (int node = 0; node < topology.size(); node++) {
+            if (node == topology.self()) {
+                continue;
+            }
+            try {
+                send(node, HttpRequest.newBuilder(topology.uri(node).resolve(PATH))
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .PUT(HttpRequest.BodyPublishers.ofByteArray(
+                                objectMapper.writeValueAsBytes(emailsOfUsersFor(node)))));
+                HttpResponse<byte[]> emails = send(node, HttpRequest.newBuilder(topology.uri(node).resolve(PATH)));
+                if (emails.statusCode() == HttpStatus.OK.value()) {
+                    replace(node, Arrays.asList(objectMapper.readValue(emails.body(), String[].class)));
+                }
+            } catch (UnavailableException | IOException e) {
+                log.info("Узел {} недоступен, адреса почты синхронизируются при его запуске", node);
+            }
+        }
+        log.info("Узел хранит {} резервирований адресов почты", reserved.size());
+    }
+
+    void reserve(String email, int holder) {
+        Integer current = reserved.putIfAbsent(email, holder);
+        if (current != null) {
+            throw conflict();
+        }
+    }
+
+    void release(String email, int holder) {
+        reserved.remove(email, holder);
+    }
+
+    /**
+     * Заменяет резервирования узла {@code holder} списком адресов его пользователей.
+     */
+    void replace(int holder, List<String> emails) {
+        Set<String> held = new HashSet<>(emails);
+        reserved.entrySet().removeIf(entry -> entry.getValue() == holder && !held.contains(entry.getKey()));
+        add(holder, emails);
+    }
+
+    /**
+     * Адреса пользователей этого узла, которые резервирует узел {@code node}.
+     */
+    List<String> emailsOfUsersFor(int node) {
+        try (Stream<User> users = userRepository.streamAll()) {
+            return users.map(User::getEmail)
+                    .filter(email -> topology.nodeForEmail(email) == node)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private void add(int holder, List<String> emails) {
+        for (String email : emails) {
+            Integer current = reserved.putIfAbsent(email, holder);
+            if (current != null && current != holder) {
+                log.warn("Адрес почты зарезервирован узлом {}, но есть и у пользователя узла {}", current, holder);
+            }
+        }
+    }
+
+    private URI uri(int node, String email) {
+        return topology.uri(node).resolve(PATH + "?email=" + URLEncoder.encode(email, StandardCharsets.UTF_8));
+    }
+
+    private HttpResponse<byte[]> send(int node, HttpRequest.Builder request) {
+        try {
+            return client.send(request.timeout(timeout)
+                    .header(ShardRoutingFilter.FORWARDED_HEADER, Integer.toString(topology.self()))
+                    .build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            throw unavailable(node, e.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw unavailable(node, e.toString());
+        }
+    }
+
+    private static ConflictException conflict() {
+        return new ConflictException("Пользователь с таким e-mail уже существует");
+    }
+
+    private static UnavailableException unavailable(int node, String reason) {
+        log.warn("Узел кластера {} не выполнил резервирование адреса почты: {}", node, reason);
+        return new UnavailableException(UNAVAILABLE);
+    }
+}
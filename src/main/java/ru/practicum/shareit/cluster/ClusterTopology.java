@@ -0,0 +1,160 @@
+package ru.practicum.shareit.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.storage.IdGenerator;
+import ru.practicum.shareit.storage.RestorableRepository;
+import ru.practicum.shareit.user.model.User;
+
+import javax.servlet.http.HttpServletRequest;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Состав кластера: адреса узлов в {@code shareit.cluster.nodes} и номер этого узла в списке.
+ * Пользователи вместе с их вещами распределяются по узлам кольцом согласованного хеширования
+ * по идентификатору пользователя. Хранилища в памяти переключаются на идентификаторы Snowflake с номером
+ * узла, а новый пользователь получает только такой идентификатор, который кольцо отводит этому узлу:
+ * пользователь и его вещи всегда оказываются там, куда {@link ShardRoutingFilter} направит запросы о них.
+ */
+@Component
+@ConditionalOnProperty(name = "shareit.cluster.enabled", havingValue = "true")
+@Slf4j
+public class ClusterTopology {
+
+    private final List<URI> nodes;
+
+    private final int self;
+
+    private final ConsistentHashRing ring;
+
+    private final Set<InetAddress> nodeAddresses = new HashSet<>();
+
+    public ClusterTopology(@Value("${shareit.cluster.nodes}") List<URI> nodes,
+                           @Value("${shareit.cluster.node-id}") int self,
+                           @Value("${shareit.cluster.points-per-node:128}") int pointsPerNode,
+                           ObjectProvider<RestorableRepository<User>> userRepository,
+                           ObjectProvider<RestorableRepository<Item>> itemRepository,
+                           ObjectProvider<RestorableRepository<ItemRequest>> itemRequestRepository) {
+        if (nodes.isEmpty() || nodes.size() > SnowflakeIdGenerator.MAX_NODES) {
+            throw new IllegalArgumentException("В кластере должно быть от 1 до " + SnowflakeIdGenerator.MAX_NODES
+                    + " узлов");
+        }
+        if (self < 0 || self >= nodes.size()) {
+            throw new IllegalArgumentException("Номер узла " + self + " вне списка из " + nodes.size() + " узлов");
+        }
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+        this.self = self;
+        this.ring = new ConsistentHashRing(nodes.size(), pointsPerNode);
+        for (URI node : nodes) {
+            try {
+                nodeAddresses.addAll(Arrays.asList(InetAddress.getAllByName(node.getHost())));
+            } catch (UnknownHostException e) {
+                log.warn("Не удалось определить адрес узла {}: запросы с него не считаются пересланными", node);
+            }
+        }
+        userRepository.ifAvailable(repository -> repository.setIdGenerator(new PlacedIdGenerator()));
+        itemRepository.ifAvailable(repository -> repository.setIdGenerator(new SnowflakeIdGenerator(self)));
+        itemRequestRepository.ifAvailable(repository -> repository.setIdGenerator(new SnowflakeIdGenerator(self)));
+        log.info("Узел {} из {}: {}", self, nodes.size(), nodes.get(self));
+    }
+
+    public int self() {
+        return self;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public URI uri(int node) {
+        return nodes.get(node);
+    }
+
+    /**
+     * Запрос переслан другим узлом: несёт заголовок {@value ShardRoutingFilter#FORWARDED_HEADER} и пришёл
+     * с адреса одного из узлов кластера. Заголовок может подставить и клиент, поэтому без адреса ему не верят.
+     */
+    public boolean isForwarded(HttpServletRequest request) {
+        if (request.getHeader(ShardRoutingFilter.FORWARDED_HEADER) == null) {
+            return false;
+        }
+        try {
+            return nodeAddresses.contains(InetAddress.getByName(request.getRemoteAddr()));
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Узел, на котором живут пользователь и его вещи.
+     */
+    public int nodeForUser(long userId) {
+        return ring.nodeFor(userId);
+    }
+
+    /**
+     * Узел, на котором резервируется адрес почты.
+     */
+    public int nodeForEmail(String email) {
+        return ring.nodeFor(email.hashCode());
+    }
+
+    /**
+     * Узел, выдавший идентификатор вещи, — на нём вещь и хранится.
+     */
+    public int nodeForItem(long itemId) {
+        int node = SnowflakeIdGenerator.nodeOf(itemId);
+        return node < nodes.size() ? node : self;
+    }
+
+    private final class PlacedIdGenerator implements IdGenerator {
+
+        private final SnowflakeIdGenerator ids = new SnowflakeIdGenerator(self);
+
+        @Override
+        public long next() {
+            long id;
+            do {
+                id = ids.next();
+            } while (ring.nodeFor(id) != self);
+            return id;
+        }
+
+        @Override
+        public long[] next(int count) {
+            long[] placed = new long[count];
+            int filled = 0;
+            while (filled < count) {
+                for (long id : ids.next(count - filled)) {
+                    if (ring.nodeFor(id) == self) {
+                        placed[filled++] = id;
+                    }
+                }
+            }
+            return placed;
+        }
+
+        @Override
+        public long last() {
+            return ids.last();
+        }
+
+        @Override
+        public void advanceTo(long id) {
+            ids.advanceTo(id);
+        }
+    }
+}
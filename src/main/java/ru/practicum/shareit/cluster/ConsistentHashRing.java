@@ -0,0 +1,55 @@
+package ru.practicum.shareit.cluster;
+
+import java.util.Arrays;
+
+/**
+ * Кольцо согласованного хеширования: каждый узел ставит на кольцо {@code pointsPerNode} точек,
+ * ключ принадлежит узлу первой точки по часовой стрелке от хеша ключа. При добавлении узла
+ * к нему переезжает примерно {@code 1/n} ключей, остальные остаются на месте.
+ * Кольцо неизменяемо; точки лежат в отсортированном массиве, поиск — двоичный.
+ */
+public class ConsistentHashRing {
+
+    private final long[] points;
+    private final int[] nodes;
+
+    public ConsistentHashRing(int nodeCount, int pointsPerNode) {
+        if (nodeCount < 1 || pointsPerNode < 1) {
+            throw new IllegalArgumentException("На кольце должен быть хотя бы один узел и одна точка");
+        }
+        long[][] entries = new long[nodeCount * pointsPerNode][];
+        for (int node = 0; node < nodeCount; node++) {
+            for (int point = 0; point < pointsPerNode; point++) {
+                entries[node * pointsPerNode + point] = new long[]{mix((long) node << 32 | point), node};
+            }
+        }
+        Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+        this.points = new long[entries.length];
+        this.nodes = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            points[i] = entries[i][0];
+            nodes[i] = (int) entries[i][1];
+        }
+    }
+
+    public int nodeFor(long key) {
+        int index = Arrays.binarySearch(points, mix(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return nodes[index == points.length ? 0 : index];
+    }
+
+    /**
+     * Финальное перемешивание MurmurHash3: соседние ключи и номера узлов расходятся по всему кольцу.
+     */
+    private static long mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
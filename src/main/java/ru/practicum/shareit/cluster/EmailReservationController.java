@@ -0,0 +1,61 @@
+package ru.practicum.shareit.cluster;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.validation.exception.NotFoundException;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+
+/**
+ * Резервирования адресов почты для других узлов кластера. Номер узла-отправителя берётся из заголовка
+ * {@value ShardRoutingFilter#FORWARDED_HEADER}; запросы не от узлов кластера отклоняются.
+ */
+@RestController
+@RequestMapping(path = ClusterEmailReservations.PATH)
+@ConditionalOnProperty(name = "shareit.cluster.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class EmailReservationController {
+
+    private final ClusterEmailReservations reservations;
+
+    private final ClusterTopology topology;
+
+    @PostMapping
+    public void reserve(@RequestParam String email, HttpServletRequest request) {
+        reservations.reserve(email, peer(request));
+    }
+
+    @DeleteMapping
+    public void release(@RequestParam String email, HttpServletRequest request) {
+        reservations.release(email, peer(request));
+    }
+
+    @PutMapping
+    public void replace(@RequestBody List<String> emails, HttpServletRequest request) {
+        reservations.replace(peer(request), emails);
+    }
+
+    /**
+     * Адреса пользователей этого узла, которые резервирует узел-отправитель.
+     */
+    @GetMapping
+    public List<String> emailsOfUsers(HttpServletRequest request) {
+        return reservations.emailsOfUsersFor(peer(request));
+    }
+
+    private int peer(HttpServletRequest request) {
+        if (topology.isForwarded(request)) {
+            try {
+                int node = Integer.parseInt(request.getHeader(ShardRoutingFilter.FORWARDED_HEADER));
+                if (node >= 0 && node < topology.size() && node != topology.self()) {
+                    return node;
+                }
+            } catch (NumberFormatException e) {
+                // отклоняется ниже вместе с запросами не от узлов кластера
+            }
+        }
+        throw new NotFoundException("Узел кластера не найден");
+    }
+}
@@ -0,0 +1,346 @@
+package ru.practicum.shareit.cluster;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.mem.SearchRanking;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserService;
+import ru.practicum.shareit.validation.error.ErrorResponse;
+import ru.practicum.shareit.web.RateLimitFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Маршрутизация запросов между узлами кластера. Запросы о пользователе и о вещах владельца уходят
+ * на узел, который кольцо отводит пользователю; вещь по идентификатору ищется на узле, выдавшем
+ * идентификатор. Поиск вещей и список пользователей собираются со всех узлов: каждый отдаёт свои лучшие
+ * {@code from + size} записей, выдачи сливаются по {@link SearchRanking} или по идентификатору.
+ * Пересланный запрос помечается заголовком {@value #FORWARDED_HEADER} и обрабатывается на месте.
+ * Уникальность адресов почты проверяется по всему кластеру через {@link ClusterEmailReservations}.
+ * <p>
+ * Бронирования и запросы вещей связывают данные разных владельцев, которые лежат на разных узлах,
+ * поэтому в кластере они отклоняются с кодом 501, а не отвечают по данным одного узла. Выгрузки и поток
+ * изменений обслуживаются локально и видят только данные своего узла.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 3)
+@ConditionalOnProperty(name = "shareit.cluster.enabled", havingValue = "true")
+@Slf4j
+public class ShardRoutingFilter extends OncePerRequestFilter {
+
+    public static final String FORWARDED_HEADER = "X-Shareit-Forwarded";
+
+    private static final int LOCAL = -1;
+
+    private static final int SEARCH_PAGE = 1000;
+
+    private static final Set<String> UNSUPPORTED_RESOURCES = Set.of("bookings", "requests");
+
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of("connection", "content-length", "date", "expect",
+            "from", "host", "keep-alive", "te", "trailer", "transfer-encoding", "upgrade", "via", "warning",
+            "accept-encoding");
+
+    private final ClusterTopology topology;
+
+    private final ItemService itemService;
+
+    private final UserService userService;
+
+    private final ObjectMapper objectMapper;
+
+    private final HttpClient client;
+
+    private final Duration timeout;
+
+    private final byte[] unavailableBody;
+
+    private final byte[] unsupportedBody;
+
+    private final Counter forwarded;
+
+    private final Counter gathered;
+
+    public ShardRoutingFilter(ClusterTopology topology, ItemService itemService, UserService userService,
+                              ObjectMapper objectMapper, MeterRegistry registry,
+                              @Value("${shareit.cluster.timeout:2s}") Duration timeout) throws JsonProcessingException {
+        this.topology = topology;
+        this.itemService = itemService;
+        this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        this.unavailableBody = objectMapper.writeValueAsBytes(
+                new ErrorResponse("Узел кластера недоступен, повторите запрос позже"));
+        this.unsupportedBody = objectMapper.writeValueAsBytes(
+                new ErrorResponse("Бронирования и запросы вещей в кластере не поддерживаются"));
+        this.forwarded = Counter.builder("shareit.cluster.requests")
+                .description("Количество запросов, переданных на другие узлы кластера")
+                .tag("route", "forward")
+                .register(registry);
+        this.gathered = Counter.builder("shareit.cluster.requests")
+                .description("Количество запросов, переданных на другие узлы кластера")
+                .tag("route", "gather")
+                .register(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return topology.isForwarded(request) || topology.size() == 1;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI();
+        if (isUnsupported(path)) {
+            response.setStatus(HttpStatus.NOT_IMPLEMENTED.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            write(response, unsupportedBody);
+            return;
+        }
+        boolean jsonGet = HttpMethod.GET.matches(request.getMethod()) && !acceptsNdjson(request);
+        try {
+            if (jsonGet && path.equals("/items/search") && gatherSearch(request, response)) {
+                return;
+            }
+            if (jsonGet && path.equals("/users") && gatherUsers(request, response)) {
+                return;
+            }
+            int node = route(request.getMethod(), path, request.getHeader(RateLimitFilter.USER_ID_HEADER));
+            if (node == LOCAL || node == topology.self()) {
+                chain.doFilter(request, response);
+            } else {
+                forward(request, response, node);
+            }
+        } catch (UncheckedIOException | CompletionException e) {
+            unavailable(response, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unavailable(response, e);
+        }
+    }
+
+    private int route(String method, String path, String userHeader) {
+        String[] segments = path.split("/");
+        if (segments.length < 2) {
+            return LOCAL;
+        }
+        if (segments[1].equals("users")) {
+            return segments.length == 3 ? userNode(segments[2]) : LOCAL;
+        }
+        if (!segments[1].equals("items")) {
+            return LOCAL;
+        }
+        if (segments.length == 2 || segments.length == 3 && segments[2].equals("batch")) {
+            return userNode(userHeader);
+        }
+        if (segments.length == 3 && HttpMethod.GET.matches(method)) {
+            Long itemId = parseId(segments[2]);
+            return itemId == null ? LOCAL : topology.nodeForItem(itemId);
+        }
+        return segments.length == 3 ? userNode(userHeader) : LOCAL;
+    }
+
+    private static boolean isUnsupported(String path) {
+        String[] segments = path.split("/");
+        return segments.length >= 2 && UNSUPPORTED_RESOURCES.contains(segments[1]);
+    }
+
+    private int userNode(String userId) {
+        Long id = parseId(userId);
+        return id == null ? LOCAL : topology.nodeForUser(id);
+    }
+
+    private void forward(HttpServletRequest request, HttpServletResponse response, int node)
+            throws IOException, InterruptedException {
+        forwarded.increment();
+        String query = request.getQueryString();
+        HttpRequest.Builder upstream = HttpRequest.newBuilder(
+                        topology.uri(node).resolve(request.getRequestURI() + (query == null ? "" : "?" + query)))
+                .timeout(timeout)
+                .method(request.getMethod(), HttpRequest.BodyPublishers.ofByteArray(
+                        request.getInputStream().readAllBytes()));
+        for (String name : Collections.list(request.getHeaderNames())) {
+            if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                for (String value : Collections.list(request.getHeaders(name))) {
+                    upstream.header(name, value);
+                }
+            }
+        }
+        upstream.header(FORWARDED_HEADER, Integer.toString(topology.self()));
+        HttpResponse<byte[]> result;
+        try {
+            result = client.send(upstream.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            unavailable(response, e);
+            return;
+        }
+        response.setStatus(result.statusCode());
+        result.headers().map().forEach((name, values) -> {
+            if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase(Locale.ROOT)) && !values.isEmpty()) {
+                response.setHeader(name, values.get(0));
+                values.subList(1, values.size()).forEach(value -> response.addHeader(name, value));
+            }
+        });
+        write(response, result.body());
+    }
+
+    /**
+     * Поиск по всем узлам. Узел отдаёт выдачу страницами не больше {@value #SEARCH_PAGE}, поэтому
+     * глубокая страница собирается из нескольких запросов к каждому узлу. В нечётком поиске найденные
+     * по опечатке вещи получают нулевую оценку и после слияния идут за точными совпадениями по id.
+     */
+    private boolean gatherSearch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String text = request.getParameter("text");
+        Integer from = parseCount(request.getParameter("from"), 0);
+        Integer size = parseCount(request.getParameter("size"), SEARCH_PAGE);
+        boolean fuzzy = Boolean.parseBoolean(request.getParameter("fuzzy"));
+        if (text == null || from == null || size == null || size < 1 || size > SEARCH_PAGE) {
+            return false;
+        }
+        gathered.increment();
+        int limit = (int) Math.min((long) from + size, Integer.MAX_VALUE);
+        List<CompletableFuture<List<ItemDto>>> remote = new ArrayList<>();
+        for (int node = 0; node < topology.size(); node++) {
+            if (node != topology.self()) {
+                remote.add(searchNode(node, text, fuzzy, 0, limit, new ArrayList<>()));
+            }
+        }
+        List<ItemDto> items = new ArrayList<>(fuzzy
+                ? itemService.searchFuzzy(text, 0, limit) : itemService.search(text, 0, limit));
+        remote.forEach(future -> items.addAll(future.join()));
+        Map<ItemDto, Integer> scores = new IdentityHashMap<>();
+        items.forEach(item -> scores.put(item, SearchRanking.score(item.getName(), item.getDescription(), text)));
+        items.sort(Comparator.comparing((ItemDto item) -> scores.get(item)).reversed()
+                .thenComparing(ItemDto::getId));
+        writeJson(response, items.subList(Math.min(from, items.size()), Math.min(limit, items.size())));
+        return true;
+    }
+
+    private CompletableFuture<List<ItemDto>> searchNode(int node, String text, boolean fuzzy, int from, int limit,
+                                                        List<ItemDto> collected) {
+        int size = Math.min(SEARCH_PAGE, limit - from);
+        return get(node, "/items/search?text=" + URLEncoder.encode(text, StandardCharsets.UTF_8)
+                + "&from=" + from + "&size=" + size + "&fuzzy=" + fuzzy, ItemDto[].class)
+                .thenCompose(page -> {
+                    collected.addAll(Arrays.asList(page));
+                    return page.length < size || from + size >= limit
+                            ? CompletableFuture.completedFuture(collected)
+                            : searchNode(node, text, fuzzy, from + size, limit, collected);
+                });
+    }
+
+    private boolean gatherUsers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Integer from = parseCount(request.getParameter("from"), 0);
+        Integer size = parseCount(request.getParameter("size"), Integer.MAX_VALUE);
+        if (from == null || size == null || size < 1) {
+            return false;
+        }
+        gathered.increment();
+        int limit = (int) Math.min((long) from + size, Integer.MAX_VALUE);
+        List<CompletableFuture<UserDto[]>> remote = new ArrayList<>();
+        for (int node = 0; node < topology.size(); node++) {
+            if (node != topology.self()) {
+                remote.add(get(node, "/users?from=0&size=" + limit, UserDto[].class));
+            }
+        }
+        List<UserDto> users = new ArrayList<>(userService.getAll(0, limit));
+        remote.forEach(future -> users.addAll(Arrays.asList(future.join())));
+        users.sort(Comparator.comparing(UserDto::getId));
+        writeJson(response, users.subList(Math.min(from, users.size()), Math.min(limit, users.size())));
+        return true;
+    }
+
+    private <T> CompletableFuture<T> get(int node, String pathAndQuery, Class<T> type) {
+        HttpRequest request = HttpRequest.newBuilder(topology.uri(node).resolve(pathAndQuery))
+                .timeout(timeout)
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .header(FORWARDED_HEADER, Integer.toString(topology.self()))
+                .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).thenApply(response -> {
+            if (response.statusCode() != HttpStatus.OK.value()) {
+                throw new UncheckedIOException(new IOException("Узел " + node + " ответил " + response.statusCode()));
+            }
+            try {
+                return objectMapper.readValue(response.body(), type);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void writeJson(HttpServletResponse response, Object body) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        write(response, objectMapper.writeValueAsBytes(body));
+    }
+
+    private void unavailable(HttpServletResponse response, Exception e) throws IOException {
+        log.warn("Узел кластера недоступен: {}", e.toString());
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        write(response, unavailableBody);
+    }
+
+    private static void write(HttpServletResponse response, byte[] body) throws IOException {
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static boolean acceptsNdjson(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+    }
+
+    private static Long parseId(String value) {
+        try {
+            return value == null ? null : Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Integer parseCount(String value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int count = Integer.parseInt(value);
+            return count < 0 ? null : count;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ru.practicum.shareit.cluster;
+
+import ru.practicum.shareit.storage.IdGenerator;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Идентификаторы в духе Snowflake: 41 бит миллисекунд от {@link #EPOCH}, 10 бит номера узла и 12 бит
+ * счётчика внутри миллисекунды. Узлы выдают непересекающиеся идентификаторы без согласования,
+ * а по идентификатору видно, какой узел его выдал.
+ * <p>
+ * Состояние — последний выданный идентификатор в одном {@link AtomicLong}, выдача — compare-and-set без
+ * блокировок. Если счётчик миллисекунды исчерпан или часы отстали от уже выданного, генератор берёт
+ * время последнего идентификатора и идёт дальше, не дожидаясь часов: идентификаторы остаются растущими.
+ * Блок идентификаторов выдаётся одним compare-and-set, поэтому блоки разных потоков не перемежаются.
+ */
+public class SnowflakeIdGenerator implements IdGenerator {
+
+    public static final Instant EPOCH = Instant.parse("2024-01-01T00:00:00Z");
+
+    public static final int MAX_NODES = 1 << 10;
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final int TIMESTAMP_SHIFT = SEQUENCE_BITS + 10;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long node;
+    private final LongSupplier clock;
+    private final AtomicLong lastId = new AtomicLong();
+
+    public SnowflakeIdGenerator(int node) {
+        this(node, System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(int node, LongSupplier clock) {
+        if (node < 0 || node >= MAX_NODES) {
+            throw new IllegalArgumentException("Номер узла должен быть от 0 до " + (MAX_NODES - 1) + ": " + node);
+        }
+        this.node = node;
+        this.clock = clock;
+    }
+
+    public static int nodeOf(long id) {
+        return (int) (id >>> SEQUENCE_BITS) & (MAX_NODES - 1);
+    }
+
+    @Override
+    public long next() {
+        while (true) {
+            long last = lastId.get();
+            long id = following(last, clock.getAsLong() - EPOCH.toEpochMilli());
+            if (lastId.compareAndSet(last, id)) {
+                return id;
+            }
+        }
+    }
+
+    @Override
+    public long[] next(int count) {
+        long[] ids = new long[count];
+        while (true) {
+            long last = lastId.get();
+            long timestamp = clock.getAsLong() - EPOCH.toEpochMilli();
+            long id = last;
+            for (int i = 0; i < count; i++) {
+                id = following(id, timestamp);
+                ids[i] = id;
+            }
+            if (lastId.compareAndSet(last, id)) {
+                return ids;
+            }
+        }
+    }
+
+    @Override
+    public long last() {
+        return lastId.get();
+    }
+
+    @Override
+    public void advanceTo(long id) {
+        lastId.accumulateAndGet(id, Math::max);
+    }
+
+    private long following(long last, long timestamp) {
+        long lastTimestamp = last >>> TIMESTAMP_SHIFT;
+        if (timestamp > lastTimestamp) {
+            return compose(timestamp, 0);
+        }
+        if ((last & SEQUENCE_MASK) < SEQUENCE_MASK && nodeOf(last) == node) {
+            return compose(lastTimestamp, (last & SEQUENCE_MASK) + 1);
+        }
+        return compose(lastTimestamp + 1, 0);
+    }
+
+    private long compose(long timestamp, long sequence) {
+        return timestamp << TIMESTAMP_SHIFT | node << SEQUENCE_BITS | sequence;
+    }
+}
@@ -1,73 +1,124 @@
 package ru.practicum.shareit.item.controller;
 
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.event.ItemEventStream;
 import ru.practicum.shareit.item.service.ItemService;
 import ru.practicum.shareit.validation.valid.OnCreate;
 import ru.practicum.shareit.validation.valid.OnUpdate;
+import ru.practicum.shareit.web.BatchReader;
+import ru.practicum.shareit.web.EntityTags;
+import ru.practicum.shareit.web.NdjsonWriter;
 
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
 @RequestMapping("/items")
 @RequiredArgsConstructor
-@Slf4j
+@Validated
 public class ItemController {
 
+    private static final String ALL = "" + Integer.MAX_VALUE;
+
+    private static final int MAX_SEARCH_RESULTS = 1000;
+
+    private static final String SEARCH_PAGE = "" + MAX_SEARCH_RESULTS;
+
     private final ItemService itemService;
 
+    private final NdjsonWriter ndjsonWriter;
+
+    private final BatchReader batchReader;
+
+    private final EntityTags entityTags;
+
+    private final ItemEventStream itemEventStream;
+
     @GetMapping
-    public List<ItemDto> getItems(@RequestHeader("X-Sharer-User-Id") long userId) {
-        log.info("Получение списка вещей");
-        List<ItemDto> items = itemService.getItems(userId);
-        log.info("Получено {} вещей ", items.size());
-        return items;
+    public List<ItemDto> getItems(@RequestHeader("X-Sharer-User-Id") long userId,
+                                  @RequestParam(defaultValue = "0") @PositiveOrZero int from,
+                                  @RequestParam(defaultValue = ALL) @Positive int size,
+                                  WebRequest request) {
+        if (request.checkNotModified(entityTags.of(itemService.getItemsVersion(userId)))) {
+            return null;
+        }
+        return itemService.getItems(userId, from, size);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamItems(@RequestHeader("X-Sharer-User-Id") long userId) {
+        return ndjsonWriter.write(itemService.streamItems(userId));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export() {
+        return ndjsonWriter.write(itemService.streamAll());
     }
 
     @GetMapping("/{itemId}")
-    public ItemDto get(@PathVariable long itemId) {
-        log.info("Получение вещи с идентификатором: {}", itemId);
-        ItemDto itemDto = itemService.getById(itemId);
-        log.info("Вещь с идентификатором {} получен", itemId);
-        return itemDto;
+    public ItemDto get(@PathVariable long itemId, WebRequest request) {
+        ItemDto item = itemService.getById(itemId);
+        if (request.checkNotModified(entityTags.of(item.getVersion()))) {
+            return null;
+        }
+        return item;
     }
 
     @PostMapping
     public ItemDto add(@RequestHeader("X-Sharer-User-Id") long userId,
                        @Validated(OnCreate.class) @RequestBody ItemDto itemDto) {
-        log.info("Пользователь с id: {}, создает вещь", userId);
-        ItemDto createItem = itemService.add(userId, itemDto);
-        log.info("Вещь создана");
-        return createItem;
+        return itemService.add(userId, itemDto);
+    }
+
+    @PostMapping(path = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public List<ItemDto> addAll(@RequestHeader("X-Sharer-User-Id") long userId,
+                                InputStream body) throws IOException {
+        List<ItemDto> items = batchReader.read(body, ItemDto.class, OnCreate.class);
+        return itemService.addAll(userId, items);
     }
 
     @DeleteMapping("/{itemId}")
     public void deleteItem(@RequestHeader("X-Sharer-User-Id") long userId,
                            @PathVariable long itemId) {
-        log.info("Удаление вещи с id: {}, у пользователя с id: {}", itemId, userId);
         itemService.delete(userId, itemId);
-        log.info("Вещь с id: {}, у пользователя с id: {} удален", itemId, userId);
     }
 
     @PatchMapping("/{itemId}")
     public ItemDto update(@RequestHeader("X-Sharer-User-Id") long userId,
                           @PathVariable long itemId,
                           @Validated(OnUpdate.class) @RequestBody ItemDto itemDto) {
-        log.info("Редактирование свойств вещи у пользователя с id: {}", userId);
-        ItemDto updateItem = itemService.update(itemId, userId, itemDto);
-        log.info("Вещь с идентификатором: {} отредактирована", itemId);
-        return updateItem;
+        return itemService.update(itemId, userId, itemDto);
     }
 
     @GetMapping("/search")
-    public List<ItemDto> search(@RequestParam("text") String searchText) {
-        log.info("Поиск вещей по тексту: {}", searchText);
-        List<ItemDto> items = itemService.search(searchText);
-        log.info("Найдено {} вещей по тексту {}", items.size(), searchText);
-        return items;
+    public List<ItemDto> search(@RequestParam("text") String searchText,
+                                @RequestParam(defaultValue = "0") @PositiveOrZero int from,
+                                @RequestParam(defaultValue = SEARCH_PAGE) @Positive @Max(MAX_SEARCH_RESULTS) int size,
+                                @RequestParam(defaultValue = "false") boolean fuzzy) {
+        return fuzzy ? itemService.searchFuzzy(searchText, from, size) : itemService.search(searchText, from, size);
     }
-}
 
+    @GetMapping(path = "/search", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSearch(@RequestParam("text") String searchText) {
+        return ndjsonWriter.write(itemService.streamSearch(searchText));
+    }
+
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(required = false) String text,
+                             @RequestParam(required = false) Long owner,
+                             @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return itemEventStream.subscribe(text, owner, lastEventId);
+    }
+}
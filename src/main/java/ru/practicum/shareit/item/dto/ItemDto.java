@@ -1,6 +1,6 @@
 package ru.practicum.shareit.item.dto;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import ru.practicum.shareit.validation.valid.OnCreate;
 import ru.practicum.shareit.validation.valid.OnUpdate;
@@ -9,7 +9,6 @@ import javax.validation.constraints.*;
 
 
 @Data
-@AllArgsConstructor
 public class ItemDto {
 
     private Long id;
@@ -28,4 +27,15 @@ public class ItemDto {
     private Long owner;
     private Long request;
 
+    @JsonIgnore
+    private long version;
+
+    public ItemDto(Long id, String name, String description, Boolean available, Long owner, Long request) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.available = available;
+        this.owner = owner;
+        this.request = request;
+    }
 }
@@ -0,0 +1,61 @@
+package ru.practicum.shareit.item.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+
+/**
+ * Пишет вещь напрямую в генератор, без обхода свойств через отражение; имена полей закодированы заранее.
+ * Поля и их порядок совпадают с тем, что выдавал Jackson по умолчанию, поэтому JSON-ответы не меняются;
+ * новое поле в {@link ItemDto} нужно добавить и сюда.
+ */
+@JsonComponent
+public class ItemDtoSerializer extends StdSerializer<ItemDto> {
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString NAME = new SerializedString("name");
+    private static final SerializableString DESCRIPTION = new SerializedString("description");
+    private static final SerializableString AVAILABLE = new SerializedString("available");
+    private static final SerializableString OWNER = new SerializedString("owner");
+    private static final SerializableString REQUEST = new SerializedString("request");
+
+    public ItemDtoSerializer() {
+        super(ItemDto.class);
+    }
+
+    @Override
+    public void serialize(ItemDto item, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(item, 6);
+        writeLong(generator, ID, item.getId());
+        writeString(generator, NAME, item.getName());
+        writeString(generator, DESCRIPTION, item.getDescription());
+        generator.writeFieldName(AVAILABLE);
+        if (item.getAvailable() == null) {
+            generator.writeNull();
+        } else {
+            generator.writeBoolean(item.getAvailable());
+        }
+        writeLong(generator, OWNER, item.getOwner());
+        writeLong(generator, REQUEST, item.getRequest());
+        generator.writeEndObject();
+    }
+
+    private static void writeString(JsonGenerator generator, SerializableString name, String value) throws IOException {
+        generator.writeFieldName(name);
+        generator.writeString(value);
+    }
+
+    private static void writeLong(JsonGenerator generator, SerializableString name, Long value) throws IOException {
+        generator.writeFieldName(name);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package ru.practicum.shareit.item.event;
+
+import lombok.Value;
+import ru.practicum.shareit.item.dto.ItemDto;
+
+@Value
+public class ItemEvent {
+
+    long sequence;
+
+    ItemEventType type;
+
+    ItemDto item;
+}
@@ -0,0 +1,81 @@
+package ru.practicum.shareit.item.event;
+
+import ru.practicum.shareit.item.dto.ItemDto;
+
+/**
+ * Кольцевой буфер последних изменений вещей. Ячейки создаются заранее и перезаписываются по кругу,
+ * поэтому публикация ничего не выделяет и никого не ждёт: запись одна за раз, под короткой блокировкой,
+ * читатели не блокируются. Читатель, которого писатель обогнал на целый круг, получает {@code null}
+ * и сам решает, как догонять.
+ * <p>
+ * Номера событий начинаются с 1. Ячейка на время записи помечается номером -1; читатель сверяет номер
+ * ячейки до и после чтения полей и так отличает целое событие от наполовину перезаписанного.
+ */
+class ItemEventRing {
+
+    private final Slot[] slots;
+    private final int mask;
+    private volatile long cursor;
+
+    ItemEventRing(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Размер кольцевого буфера должен быть степенью двойки: " + capacity);
+        }
+        slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+        mask = capacity - 1;
+    }
+
+    synchronized long publish(ItemEventType type, ItemDto item) {
+        long sequence = cursor + 1;
+        Slot slot = slots[(int) (sequence & mask)];
+        slot.sequence = -1;
+        slot.type = type;
+        slot.id = item.getId();
+        slot.name = item.getName();
+        slot.description = item.getDescription();
+        slot.available = item.getAvailable();
+        slot.owner = item.getOwner();
+        slot.request = item.getRequest();
+        slot.sequence = sequence;
+        cursor = sequence;
+        return sequence;
+    }
+
+    /**
+     * Номер последнего опубликованного события или 0, если событий ещё не было.
+     */
+    long cursor() {
+        return cursor;
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Событие с номером {@code sequence} или {@code null}, если оно уже перезаписано или ещё не опубликовано.
+     */
+    ItemEvent read(long sequence) {
+        Slot slot = slots[(int) (sequence & mask)];
+        if (slot.sequence != sequence) {
+            return null;
+        }
+        ItemEventType type = slot.type;
+        ItemDto item = new ItemDto(slot.id, slot.name, slot.description, slot.available, slot.owner, slot.request);
+        return slot.sequence == sequence ? new ItemEvent(sequence, type, item) : null;
+    }
+
+    private static final class Slot {
+        private volatile long sequence;
+        private volatile ItemEventType type;
+        private volatile Long id;
+        private volatile String name;
+        private volatile String description;
+        private volatile Boolean available;
+        private volatile Long owner;
+        private volatile Long request;
+    }
+}
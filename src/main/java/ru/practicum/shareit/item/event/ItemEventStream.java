@@ -0,0 +1,307 @@
+package ru.practicum.shareit.item.event;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.item.dto.ItemDto;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Поток изменений вещей для {@code GET /items/stream}. Сервис публикует изменения в {@link ItemEventRing},
+ * а подписчики читают буфер каждый со своей позиции: планировщик раз в {@code poll-interval} отдаёт
+ * отстающих подписчиков пулу отправителей, и медленный клиент задерживает только себя.
+ * <p>
+ * Подписчик, которого буфер обогнал на круг, получает событие {@code reset} с номером последнего
+ * события — пропущенное ему нужно перечитать поиском — и продолжает с текущей позиции. После
+ * {@value #MAX_RESETS} таких сбросов подряд подписчик отключается.
+ * <p>
+ * Запись в ответ блокирующая, и Tomcat не прерывает её до таймаута записи соединения. Подписчик, одна запись
+ * которому длится дольше {@code send-timeout}, отключается, а пул отправителей получает поток взамен
+ * занятого, пока запись не завершится: клиент, переставший читать, не занимает потоки остальных подписчиков.
+ */
+@Component
+@Slf4j
+public class ItemEventStream implements MeterBinder {
+
+    static final String RESET_EVENT = "reset";
+
+    private static final int MAX_RESETS = 3;
+
+    private final ItemEventRing ring;
+    private final long heartbeatNanos;
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+    private final int senderThreads;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler;
+    private final ThreadPoolExecutor senders;
+    private final LongAdder resets = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicInteger stalledSenders = new AtomicInteger();
+
+    public ItemEventStream(@Value("${shareit.items.stream.capacity:4096}") int capacity,
+                           @Value("${shareit.items.stream.poll-interval:50ms}") Duration pollInterval,
+                           @Value("${shareit.items.stream.heartbeat:15s}") Duration heartbeat,
+                           @Value("${shareit.items.stream.timeout:30m}") Duration timeout,
+                           @Value("${shareit.items.stream.send-timeout:5s}") Duration sendTimeout,
+                           @Value("${shareit.items.stream.senders:4}") int senders) {
+        this.ring = new ItemEventRing(capacity);
+        this.heartbeatNanos = heartbeat.toNanos();
+        this.timeoutMillis = timeout.toMillis();
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.senderThreads = senders;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("item-events"));
+        this.senders = new ThreadPoolExecutor(senders, senders, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), daemonThreads("item-events-sender"));
+        long period = pollInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::dispatch, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public void publish(ItemEventType type, ItemDto item) {
+        ring.publish(type, item);
+    }
+
+    /**
+     * Подписка на изменения вещей, подходящих под фильтры; пустой фильтр пропускает всё.
+     * С {@code lastEventId} поток продолжается после этого события, иначе начинается со следующего изменения.
+     */
+    public SseEmitter subscribe(String text, Long owner, Long lastEventId) {
+        return subscribe(new SseEmitter(timeoutMillis), text, owner, lastEventId);
+    }
+
+    /**
+     * Подписка переданного эмиттера; его таймаут задаёт тот, кто эмиттер создал.
+     */
+    public SseEmitter subscribe(SseEmitter emitter, String text, Long owner, Long lastEventId) {
+        long cursor = ring.cursor();
+        if (lastEventId != null && lastEventId >= 0 && lastEventId < cursor) {
+            cursor = lastEventId;
+        }
+        Subscriber subscriber = new Subscriber(emitter, text == null || text.isBlank() ? null : text.toLowerCase(),
+                owner, cursor);
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        return emitter;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("shareit.items.stream.events", ring, ItemEventRing::cursor)
+                .description("Количество опубликованных изменений вещей")
+                .register(registry);
+        Gauge.builder("shareit.items.stream.subscribers", subscribers, Set::size)
+                .description("Количество подписчиков на изменения вещей")
+                .register(registry);
+        FunctionCounter.builder("shareit.items.stream.resets", resets, LongAdder::sum)
+                .description("Количество сбросов подписчиков, отставших от буфера")
+                .register(registry);
+        FunctionCounter.builder("shareit.items.stream.dropped", dropped, LongAdder::sum)
+                .description("Количество отключённых медленных подписчиков")
+                .register(registry);
+        Gauge.builder("shareit.items.stream.stalled-senders", stalledSenders, AtomicInteger::get)
+                .description("Количество потоков отправителей, занятых записью отключённым подписчикам")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        senders.shutdownNow();
+        // завершение эмиттера ждёт окончания идущей в него записи
+        subscribers.stream()
+                .filter(subscriber -> !subscriber.isWriting())
+                .forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    private void dispatch() {
+        long cursor = ring.cursor();
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.stallIfStuck(now)) {
+                subscribers.remove(subscriber);
+                dropped.increment();
+                resizeSenders(stalledSenders.incrementAndGet());
+                log.debug("Подписчик на изменения вещей не читает поток дольше {} мс и отключён",
+                        TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+                continue;
+            }
+            boolean pending = subscriber.cursor < cursor || now - subscriber.lastSent >= heartbeatNanos;
+            if (pending && subscriber.sending.compareAndSet(false, true)) {
+                try {
+                    senders.execute(subscriber::drain);
+                } catch (RejectedExecutionException e) {
+                    subscriber.sending.set(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Держит в пуле {@code senders} потоков сверх занятых записью отключённым подписчикам.
+     */
+    private synchronized void resizeSenders(int stalled) {
+        int size = senderThreads + stalled;
+        if (size > senders.getMaximumPoolSize()) {
+            senders.setMaximumPoolSize(size);
+            senders.setCorePoolSize(size);
+        } else {
+            senders.setCorePoolSize(size);
+            senders.setMaximumPoolSize(size);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final String text;
+        private final Long owner;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile long cursor;
+        private volatile long lastSent = System.nanoTime();
+        private int resetsInRow;
+        private boolean writing;
+        private long writeStartedAt;
+        private boolean stalled;
+
+        private Subscriber(SseEmitter emitter, String text, Long owner, long cursor) {
+            this.emitter = emitter;
+            this.text = text;
+            this.owner = owner;
+            this.cursor = cursor;
+        }
+
+        private void drain() {
+            try {
+                long end = ring.cursor();
+                if (cursor < end - ring.capacity()) {
+                    reset(end);
+                    return;
+                }
+                for (long sequence = cursor + 1; sequence <= end; sequence++) {
+                    ItemEvent event = ring.read(sequence);
+                    if (event == null) {
+                        return;
+                    }
+                    cursor = sequence;
+                    if (matches(event.getItem())) {
+                        send(SseEmitter.event()
+                                .id(Long.toString(sequence))
+                                .name(event.getType().eventName())
+                                .data(event.getItem(), MediaType.APPLICATION_JSON));
+                        if (isStalled()) {
+                            return;
+                        }
+                    }
+                }
+                resetsInRow = 0;
+                if (System.nanoTime() - lastSent >= heartbeatNanos) {
+                    send(SseEmitter.event().comment("ping"));
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Подписчик на изменения вещей отключился: {}", e.getMessage());
+                subscribers.remove(this);
+            } finally {
+                if (isStalled()) {
+                    resizeSenders(stalledSenders.decrementAndGet());
+                    emitter.complete();
+                }
+                sending.set(false);
+            }
+        }
+
+        private void reset(long end) throws IOException {
+            resets.increment();
+            if (++resetsInRow > MAX_RESETS) {
+                dropped.increment();
+                subscribers.remove(this);
+                emitter.complete();
+                return;
+            }
+            cursor = end;
+            send(SseEmitter.event().id(Long.toString(end)).name(RESET_EVENT).data(Map.of("lastEventId", end)));
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            startWrite();
+            try {
+                emitter.send(event);
+            } finally {
+                finishWrite();
+            }
+            lastSent = System.nanoTime();
+        }
+
+        private synchronized void startWrite() {
+            writing = true;
+            writeStartedAt = System.nanoTime();
+        }
+
+        private synchronized void finishWrite() {
+            writing = false;
+        }
+
+        private synchronized boolean isWriting() {
+            return writing;
+        }
+
+        private synchronized boolean isStalled() {
+            return stalled;
+        }
+
+        /**
+         * Помечает подписчика зависшим, если идущая запись длится дольше {@code send-timeout}.
+         * Пометка и завершение записи взаимно исключены, поэтому зависшей считается только незавершённая запись.
+         */
+        private synchronized boolean stallIfStuck(long now) {
+            if (!writing || stalled || now - writeStartedAt < sendTimeoutNanos) {
+                return false;
+            }
+            stalled = true;
+            return true;
+        }
+
+        private boolean matches(ItemDto item) {
+            if (owner != null && !owner.equals(item.getOwner())) {
+                return false;
+            }
+            return text == null || contains(item.getName()) || contains(item.getDescription());
+        }
+
+        private boolean contains(String field) {
+            return field != null && field.toLowerCase().contains(text);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package ru.practicum.shareit.item.event;
+
+public enum ItemEventType {
+    CREATED,
+    UPDATED,
+    AVAILABILITY,
+    DELETED;
+
+    public String eventName() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,245 @@
+package ru.practicum.shareit.item.jpa;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.item.mem.ItemRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.storage.KeysetStream;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.validation.exception.NotFoundException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.util.*;
+import java.util.stream.Stream;
+
+@Repository
+@ConditionalOnProperty(name = "shareit.storage.type", havingValue = "jpa")
+@Transactional(readOnly = true)
+public class JpaItemRepository implements ItemRepository {
+
+    private static final int FETCH_SIZE = 500;
+
+    private static final int BATCH_SIZE = 50;
+
+    private static final String SEARCH_CONDITION = "i.available = true "
+            + "and (lower(i.name) like :pattern escape '\\' or lower(i.description) like :pattern escape '\\')";
+
+    /**
+     * Оценка релевантности как в хранилище в памяти, но по границам поля и пробелам вместо границ слов:
+     * название выше описания, совпадение всего поля выше совпадения с начала слова, а то — выше остальных.
+     */
+    private static final String SEARCH_RANK = "case when lower(i.name) = :text then 8 "
+            + "when lower(i.name) like :prefix escape '\\' or lower(i.name) like :wordPrefix escape '\\' then 6 "
+            + "when lower(i.name) like :pattern escape '\\' then 4 else 0 end "
+            + "+ case when lower(i.description) = :text then 3 "
+            + "when lower(i.description) like :prefix escape '\\' "
+            + "or lower(i.description) like :wordPrefix escape '\\' then 2 "
+            + "when lower(i.description) like :pattern escape '\\' then 1 else 0 end";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Item> findItemByUserId(Long userId, int from, int size) {
+        return entityManager.createQuery("select i from Item i where i.owner.id = :userId order by i.id", Item.class)
+                .setParameter("userId", userId)
+                .setFirstResult(from)
+                .setMaxResults(size)
+                .getResultList();
+    }
+
+    @Override
+    public Stream<Item> streamItemByUserId(Long userId) {
+        return KeysetStream.of(lastId -> entityManager
+                        .createQuery("select i from Item i where i.owner.id = :userId and i.id > :lastId "
+                                + "order by i.id", Item.class)
+                        .setParameter("userId", userId)
+                        .setParameter("lastId", lastId)
+                        .setMaxResults(FETCH_SIZE)
+                        .getResultList(),
+                Item::getId);
+    }
+
+    @Override
+    public Stream<Item> streamAll() {
+        return KeysetStream.of(lastId -> entityManager
+                        .createQuery("select i from Item i where i.id > :lastId order by i.id", Item.class)
+                        .setParameter("lastId", lastId)
+                        .setMaxResults(FETCH_SIZE)
+                        .getResultList(),
+                Item::getId);
+    }
+
+    @Override
+    public Optional<Item> getById(Long itemId) {
+        return Optional.ofNullable(entityManager.find(Item.class, itemId));
+    }
+
+    /**
+     * Счётчика изменений в базе нет, поэтому версия — свёртка количества вещей, наибольшего идентификатора
+     * и суммы версий: добавление меняет первые два, удаление — количество, изменение — сумму.
+     */
+    @Override
+    public long getOwnerVersion(Long userId) {
+        Object[] state = entityManager.createQuery("select count(i), coalesce(max(i.id), 0), "
+                        + "coalesce(sum(i.version), 0) from Item i where i.owner.id = :userId", Object[].class)
+                .setParameter("userId", userId)
+                .getSingleResult();
+        long version = 0;
+        for (Object value : state) {
+            version = version * 0x9E3779B97F4A7C15L + ((Number) value).longValue();
+        }
+        return version;
+    }
+
+    @Override
+    @Transactional
+    public Item add(Item item) {
+        attachReferences(item);
+        entityManager.persist(item);
+        return item;
+    }
+
+    @Override
+    @Transactional
+    public List<Item> addAll(Long userId, List<Item> items) {
+        User owner = entityManager.getReference(User.class, userId);
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            item.setOwner(owner);
+            if (item.getRequest() != null) {
+                attachReferences(item);
+            }
+            entityManager.persist(item);
+            if ((i + 1) % BATCH_SIZE == 0) {
+                entityManager.flush();
+                entityManager.clear();
+                owner = entityManager.getReference(User.class, userId);
+            }
+        }
+        return items;
+    }
+
+    @Override
+    @Transactional
+    public boolean update(Long userId, Item item) {
+        Item currentItem = entityManager.find(Item.class, item.getId());
+        if (currentItem == null || !currentItem.getOwner().getId().equals(userId)) {
+            return false;
+        }
+        attachReferences(item);
+        Item merged = entityManager.merge(item);
+        entityManager.flush();
+        item.setVersion(merged.getVersion());
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public void deleteByUserIdAndItemId(Long userId, Long itemId) {
+        entityManager.createQuery("delete from Item i where i.id = :itemId and i.owner.id = :userId")
+                .setParameter("itemId", itemId)
+                .setParameter("userId", userId)
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public List<Item> deleteByUserId(Long userId) {
+        List<Item> items = entityManager.createQuery("select i from Item i where i.owner.id = :userId", Item.class)
+                .setParameter("userId", userId)
+                .getResultList();
+        entityManager.createQuery("delete from Item i where i.owner.id = :userId")
+                .setParameter("userId", userId)
+                .executeUpdate();
+        return items;
+    }
+
+    @Override
+    @Transactional
+    public List<Item> detachRequests(Long userId, Collection<Long> requestIds) {
+        if (requestIds.isEmpty()) {
+            return List.of();
+        }
+        List<Item> items = entityManager.createQuery("select i from Item i "
+                        + "where i.owner.id = :userId and i.request.id in :requestIds", Item.class)
+                .setParameter("userId", userId)
+                .setParameter("requestIds", requestIds)
+                .getResultList();
+        items.forEach(item -> item.setRequest(null));
+        entityManager.flush();
+        return items;
+    }
+
+    @Override
+    public List<Item> search(String searchText, int from, int size) {
+        String escaped = escape(searchText);
+        return searchQuery("select i from Item i where " + SEARCH_CONDITION
+                        + " order by " + SEARCH_RANK + " desc, i.id", searchText)
+                .setParameter("text", searchText.toLowerCase())
+                .setParameter("prefix", escaped + "%")
+                .setParameter("wordPrefix", "% " + escaped + "%")
+                .setFirstResult(from)
+                .setMaxResults(size)
+                .getResultList();
+    }
+
+    /**
+     * Индекса триграмм у этого хранилища нет, поэтому поиск остаётся точным.
+     */
+    @Override
+    public List<Item> searchFuzzy(String searchText, int from, int size) {
+        return search(searchText, from, size);
+    }
+
+    @Override
+    public Stream<Item> streamSearch(String searchText) {
+        return KeysetStream.of(lastId -> searchQuery("select i from Item i where " + SEARCH_CONDITION
+                                + " and i.id > :lastId order by i.id", searchText)
+                        .setParameter("lastId", lastId)
+                        .setMaxResults(FETCH_SIZE)
+                        .getResultList(),
+                Item::getId);
+    }
+
+    @Override
+    public Map<Long, List<Item>> findByRequestIds(Collection<Long> requestIds) {
+        List<Long> ids = new ArrayList<>(requestIds);
+        Map<Long, List<Item>> result = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += FETCH_SIZE) {
+            entityManager.createQuery("select i from Item i where i.request.id in :requestIds order by i.id", Item.class)
+                    .setParameter("requestIds", ids.subList(from, Math.min(from + FETCH_SIZE, ids.size())))
+                    .getResultList()
+                    .forEach(item -> result.computeIfAbsent(item.getRequest().getId(), id -> new ArrayList<>())
+                            .add(item));
+        }
+        return result;
+    }
+
+    private TypedQuery<Item> searchQuery(String query, String searchText) {
+        return entityManager.createQuery(query, Item.class)
+                .setParameter("pattern", "%" + escape(searchText) + "%");
+    }
+
+    private static String escape(String searchText) {
+        return searchText.toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+
+    private void attachReferences(Item item) {
+        item.setOwner(entityManager.getReference(User.class, item.getOwner().getId()));
+        if (item.getRequest() != null) {
+            ItemRequest request = entityManager.find(ItemRequest.class, item.getRequest().getId());
+            if (request == null) {
+                throw new NotFoundException("Запрос не найден");
+            }
+            item.setRequest(request);
+        }
+    }
+}
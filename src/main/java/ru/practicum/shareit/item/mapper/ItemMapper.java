@@ -10,7 +10,7 @@ import java.util.List;
 
 public class ItemMapper {
     public static ItemDto toItemDto(Item item) {
-        return new ItemDto(
+        ItemDto itemDto = new ItemDto(
                 item.getId(),
                 item.getName(),
                 item.getDescription(),
@@ -18,6 +18,8 @@ public class ItemMapper {
                 item.getOwner() != null ? item.getOwner().getId() : null,
                 item.getRequest() != null ? item.getRequest().getId() : null
         );
+        itemDto.setVersion(item.getVersion());
+        return itemDto;
     }
 
     public static Item toItem(ItemDto itemDto) {
@@ -43,16 +45,9 @@ public class ItemMapper {
     }
 
     public static List<ItemDto> toItemDtoList(List<Item> itemList) {
-        List<ItemDto> itemDtoList = new ArrayList<>();
+        List<ItemDto> itemDtoList = new ArrayList<>(itemList.size());
         for (Item item : itemList) {
-            itemDtoList.add(new ItemDto(
-                    item.getId(),
-                    item.getName(),
-                    item.getDescription(),
-                    item.getAvailable(),
-                    item.getOwner() != null ? item.getOwner().getId() : null,
-                    item.getRequest() != null ? item.getRequest().getId() : null
-            ));
+            itemDtoList.add(toItemDto(item));
         }
         return itemDtoList;
     }
@@ -0,0 +1,462 @@
+package ru.practicum.shareit.item.mem;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.storage.ChangeListener;
+import ru.practicum.shareit.storage.IdGenerator;
+import ru.practicum.shareit.storage.RestorableRepository;
+import ru.practicum.shareit.storage.compact.LongIntHashMap;
+import ru.practicum.shareit.storage.compact.LongListMap;
+import ru.practicum.shareit.storage.compact.StringDictionary;
+import ru.practicum.shareit.user.model.User;
+
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище вещей для больших каталогов. Вещь лежит не объектом, а строкой параллельных массивов:
+ * идентификатор, владелец и запрос — long, название и описание — коды в общем словаре строк,
+ * версия — int, доступность — биты в байте флагов. Строку по идентификатору находит хеш-таблица из long в int,
+ * а вещи владельца и ответы на запрос — упорядоченные массивы идентификаторов. Объекты {@link Item}
+ * собираются при каждом чтении. Изменения сериализует блокировка на запись, чтение идёт под общей.
+ */
+@Repository
+@ConditionalOnProperty(name = "shareit.storage.type", havingValue = "compact")
+public class CompactItemRepository implements ItemRepository, MeterBinder, RestorableRepository<Item> {
+
+    private static final byte IN_USE = 1;
+    private static final byte AVAILABILITY_SET = 2;
+    private static final byte AVAILABLE = 4;
+    private static final long NO_ID = 0;
+    private static final int INITIAL_ROWS = 1024;
+    private static final int STREAM_BATCH = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongIntHashMap rows = new LongIntHashMap(INITIAL_ROWS);
+    private final LongListMap ownerItems = new LongListMap();
+    private final LongListMap requestItems = new LongListMap();
+    private final LongIntHashMap ownerVersions = new LongIntHashMap();
+    private final StringDictionary strings = new StringDictionary();
+    private final ItemSearchIndex searchIndex = new ItemSearchIndex();
+    private volatile IdGenerator idGenerator = IdGenerator.sequence();
+    private volatile ChangeListener<Item> listener = ChangeListener.none();
+
+    private long[] ids = new long[INITIAL_ROWS];
+    private long[] owners = new long[INITIAL_ROWS];
+    private long[] requests = new long[INITIAL_ROWS];
+    private int[] names = new int[INITIAL_ROWS];
+    private int[] descriptions = new int[INITIAL_ROWS];
+    private int[] versions = new int[INITIAL_ROWS];
+    private byte[] flags = new byte[INITIAL_ROWS];
+    private int[] freeRows = new int[16];
+    private int freeCount;
+    private int usedRows;
+
+    @Override
+    public List<Item> findItemByUserId(Long userId, int from, int size) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return toItems(ownerItems.get(userId, from, size));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public Stream<Item> streamItemByUserId(Long userId) {
+        return findItemByUserId(userId, 0, Integer.MAX_VALUE).stream();
+    }
+
+    /**
+     * Читает хранилище пачками, отпуская блокировку между ними: строки, добавленные после начала обхода,
+     * в поток не попадают.
+     */
+    @Override
+    public Stream<Item> streamAll() {
+        int rowCount = read(() -> usedRows);
+        return IntStream.range(0, (rowCount + STREAM_BATCH - 1) / STREAM_BATCH)
+                .mapToObj(batch -> readRows(batch * STREAM_BATCH, Math.min(rowCount, (batch + 1) * STREAM_BATCH)))
+                .flatMap(List::stream);
+    }
+
+    @Override
+    public Optional<Item> getById(Long itemId) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            int row = rows.get(itemId);
+            return row == LongIntHashMap.MISSING ? Optional.empty() : Optional.of(toItem(row));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public long getOwnerVersion(Long userId) {
+        return Math.max(0, read(() -> ownerVersions.get(userId)));
+    }
+
+    @Override
+    public Item add(Item item) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            item.setId(idGenerator.next());
+            insert(item);
+            bumpOwnerVersion(item.getOwner().getId());
+            listener.saved(item);
+        } finally {
+            writeLock.unlock();
+        }
+        listener.committed();
+        return item;
+    }
+
+    @Override
+    public List<Item> addAll(Long userId, List<Item> newItems) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            long[] ids = idGenerator.next(newItems.size());
+            for (int i = 0; i < ids.length; i++) {
+                Item item = newItems.get(i);
+                item.setId(ids[i]);
+                insert(item);
+                listener.saved(item);
+            }
+            bumpOwnerVersion(userId);
+        } finally {
+            writeLock.unlock();
+        }
+        listener.committed();
+        return newItems;
+    }
+
+    @Override
+    public boolean update(Long userId, Item item) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        boolean updated = false;
+        try {
+            int row = rows.get(item.getId());
+            if (row != LongIntHashMap.MISSING && owners[row] == userId) {
+                if (versions[row] != item.getVersion()) {
+                    throw new OptimisticLockingFailureException("Вещь " + item.getId() + " изменена другим запросом");
+                }
+                item.setVersion(versions[row] + 1L);
+                write(row, item);
+                searchIndex.index(item);
+                bumpOwnerVersion(userId);
+                listener.saved(item);
+                updated = true;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        listener.committed();
+        return updated;
+    }
+
+    @Override
+    public void deleteByUserIdAndItemId(Long userId, Long itemId) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            int row = rows.get(itemId);
+            if (row != LongIntHashMap.MISSING && owners[row] == userId) {
+                rows.remove(itemId);
+                erase(row);
+                releaseRow(row);
+                searchIndex.remove(itemId);
+                bumpOwnerVersion(userId);
+                listener.deleted(itemId);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        listener.committed();
+    }
+
+    @Override
+    public List<Item> deleteByUserId(Long userId) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        List<Item> deleted;
+        try {
+            long[] itemIds = ownerItems.get(userId, 0, Integer.MAX_VALUE);
+            deleted = new ArrayList<>(itemIds.length);
+            for (long itemId : itemIds) {
+                int row = rows.get(itemId);
+                deleted.add(toItem(row));
+                rows.remove(itemId);
+                erase(row);
+                releaseRow(row);
+                searchIndex.remove(itemId);
+                listener.deleted(itemId);
+            }
+            if (itemIds.length > 0) {
+                bumpOwnerVersion(userId);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        listener.committed();
+        return deleted;
+    }
+
+    @Override
+    public List<Item> detachRequests(Long userId, Collection<Long> requestIds) {
+        List<Item> detached = new ArrayList<>();
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            for (Long requestId : requestIds) {
+                for (long itemId : requestItems.get(requestId, 0, Integer.MAX_VALUE)) {
+                    int row = rows.get(itemId);
+                    if (owners[row] == userId) {
+                        requestItems.remove(requestId, itemId);
+                        requests[row] = NO_ID;
+                        versions[row]++;
+                        Item item = toItem(row);
+                        listener.saved(item);
+                        detached.add(item);
+                    }
+                }
+            }
+            if (!detached.isEmpty()) {
+                bumpOwnerVersion(userId);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        listener.committed();
+        return detached;
+    }
+
+    @Override
+    public List<Item> search(String searchText, int from, int size) {
+        return searchIndex.top(searchText, (int) Math.min((long) from + size, Integer.MAX_VALUE)).stream()
+                .skip(from)
+                .map(this::getById)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Item> searchFuzzy(String searchText, int from, int size) {
+        return searchIndex.fuzzyTop(searchText, (int) Math.min((long) from + size, Integer.MAX_VALUE)).stream()
+                .skip(from)
+                .map(this::getById)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Item> streamSearch(String searchText) {
+        return searchIndex.search(searchText).stream()
+                .map(this::getById)
+                .flatMap(Optional::stream);
+    }
+
+    @Override
+    public Map<Long, List<Item>> findByRequestIds(Collection<Long> requestIds) {
+        Map<Long, List<Item>> result = new HashMap<>();
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            for (Long requestId : requestIds) {
+                long[] answers = requestItems.get(requestId, 0, Integer.MAX_VALUE);
+                if (answers.length > 0) {
+                    result.put(requestId, toItems(answers));
+                }
+            }
+        } finally {
+            readLock.unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public void setListener(ChangeListener<Item> listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void setIdGenerator(IdGenerator idGenerator) {
+        idGenerator.advanceTo(this.idGenerator.last());
+        this.idGenerator = idGenerator;
+    }
+
+    @Override
+    public long lastId() {
+        return idGenerator.last();
+    }
+
+    @Override
+    public void restore(Collection<Item> restored, long lastId) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            rows.clear();
+            ownerItems.clear();
+            requestItems.clear();
+            ownerVersions.clear();
+            strings.clear();
+            searchIndex.clear();
+            Arrays.fill(flags, (byte) 0);
+            freeCount = 0;
+            usedRows = 0;
+            restored.forEach(this::insert);
+            idGenerator.advanceTo(lastId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("shareit.items", this, repository -> repository.read(repository.rows::size))
+                .description("Количество вещей")
+                .register(registry);
+        Gauge.builder("shareit.items.owners", this, repository -> repository.read(repository.ownerItems::keyCount))
+                .description("Количество владельцев вещей")
+                .register(registry);
+        Gauge.builder("shareit.items.per.owner.max", this, repository -> repository.read(repository.ownerItems::maxSize))
+                .description("Наибольшее количество вещей у одного владельца")
+                .register(registry);
+        Gauge.builder("shareit.items.strings", this, repository -> repository.read(repository.strings::size))
+                .description("Количество различных названий и описаний в словаре строк")
+                .register(registry);
+        searchIndex.bindTo(registry);
+    }
+
+    private void bumpOwnerVersion(long userId) {
+        ownerVersions.put(userId, Math.max(0, ownerVersions.get(userId)) + 1);
+    }
+
+    private void insert(Item item) {
+        int row = allocateRow();
+        rows.put(item.getId(), row);
+        write(row, item);
+        searchIndex.index(item);
+    }
+
+    private void write(int row, Item item) {
+        // новые коды берутся до освобождения старых, чтобы не пересоздавать в словаре неизменившиеся строки
+        int name = strings.encode(item.getName());
+        int description = strings.encode(item.getDescription());
+        if ((flags[row] & IN_USE) != 0) {
+            erase(row);
+        }
+        ids[row] = item.getId();
+        owners[row] = item.getOwner().getId();
+        requests[row] = item.getRequest() != null ? item.getRequest().getId() : NO_ID;
+        names[row] = name;
+        descriptions[row] = description;
+        versions[row] = (int) item.getVersion();
+        flags[row] = packFlags(item.getAvailable());
+        ownerItems.add(owners[row], ids[row]);
+        if (requests[row] != NO_ID) {
+            requestItems.add(requests[row], ids[row]);
+        }
+    }
+
+    private void erase(int row) {
+        ownerItems.remove(owners[row], ids[row]);
+        if (requests[row] != NO_ID) {
+            requestItems.remove(requests[row], ids[row]);
+        }
+        strings.release(names[row]);
+        strings.release(descriptions[row]);
+        flags[row] = 0;
+    }
+
+    private Item toItem(int row) {
+        Boolean available = (flags[row] & AVAILABILITY_SET) == 0 ? null : (flags[row] & AVAILABLE) != 0;
+        Item item = new Item(ids[row], strings.decode(names[row]), strings.decode(descriptions[row]),
+                available, new User(owners[row], null, null), null);
+        if (requests[row] != NO_ID) {
+            item.setRequest(new ItemRequest(requests[row], null, null, null));
+        }
+        item.setVersion(versions[row]);
+        return item;
+    }
+
+    private List<Item> toItems(long[] itemIds) {
+        List<Item> result = new ArrayList<>(itemIds.length);
+        for (long itemId : itemIds) {
+            result.add(toItem(rows.get(itemId)));
+        }
+        return result;
+    }
+
+    private List<Item> readRows(int from, int to) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            List<Item> result = new ArrayList<>(to - from);
+            for (int row = from; row < to; row++) {
+                if ((flags[row] & IN_USE) != 0) {
+                    result.add(toItem(row));
+                }
+            }
+            return result;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private int read(IntSupplier supplier) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return supplier.getAsInt();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private int allocateRow() {
+        if (freeCount > 0) {
+            return freeRows[--freeCount];
+        }
+        if (usedRows == ids.length) {
+            int capacity = usedRows + (usedRows >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            owners = Arrays.copyOf(owners, capacity);
+            requests = Arrays.copyOf(requests, capacity);
+            names = Arrays.copyOf(names, capacity);
+            descriptions = Arrays.copyOf(descriptions, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+        }
+        return usedRows++;
+    }
+
+    private void releaseRow(int row) {
+        if (freeCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, freeCount << 1);
+        }
+        freeRows[freeCount++] = row;
+    }
+
+    private static byte packFlags(Boolean available) {
+        if (available == null) {
+            return IN_USE;
+        }
+        return (byte) (IN_USE | AVAILABILITY_SET | (available ? AVAILABLE : 0));
+    }
+}
@@ -0,0 +1,51 @@
+package ru.practicum.shareit.item.mem;
+
+/**
+ * Расстояние Дамерау — Левенштейна в варианте «оптимального выравнивания строк»: вставка, удаление,
+ * замена и перестановка соседних символов стоят по единице. Считается только до заданного предела:
+ * как только все значения строки таблицы превысили предел, расчёт прекращается.
+ */
+final class EditDistance {
+
+    private EditDistance() {
+    }
+
+    /**
+     * Расстояние между строками, если оно не больше {@code max}, иначе {@code max + 1}.
+     */
+    static int bounded(String a, String b, int max) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > max) {
+            return max + 1;
+        }
+        int[] beforePrevious = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                char cb = b.charAt(j - 1);
+                int value = Math.min(Math.min(previous[j], current[j - 1]) + 1, previous[j - 1] + (ca == cb ? 0 : 1));
+                if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+                    value = Math.min(value, beforePrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[m], max + 1);
+    }
+}
@@ -2,19 +2,63 @@ package ru.practicum.shareit.item.mem;
 
 import ru.practicum.shareit.item.model.Item;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ItemRepository {
-    List<Item> findItemByUserId(Long userId);
+    List<Item> findItemByUserId(Long userId, int from, int size);
+
+    Stream<Item> streamItemByUserId(Long userId);
+
+    Stream<Item> streamAll();
 
     Optional<Item> getById(Long itemId);
 
+    /**
+     * Версия списка вещей владельца: меняется при любом добавлении, изменении или удалении его вещи.
+     */
+    long getOwnerVersion(Long userId);
+
     Item add(Item item);
 
-    void update(Long userId, Item item);
+    List<Item> addAll(Long userId, List<Item> items);
+
+    /**
+     * Изменяет вещь владельца, если её версия совпадает с версией переданной вещи.
+     *
+     * @return {@code false}, если вещи нет или у неё другой владелец
+     * @throws org.springframework.dao.OptimisticLockingFailureException если вещь уже изменена
+     */
+    boolean update(Long userId, Item item);
 
     void deleteByUserIdAndItemId(Long userId, Long itemId);
 
-    List<Item> search(String searchText);
+    /**
+     * Удаляет все вещи владельца — так же, как база по {@code ON DELETE CASCADE} при удалении пользователя.
+     *
+     * @return удалённые вещи
+     */
+    List<Item> deleteByUserId(Long userId);
+
+    /**
+     * Убирает у вещей владельца ссылки на запросы — так же, как база по {@code ON DELETE SET NULL}.
+     * Ссылки снимаются под блокировкой владельца с вещей в том виде, в каком они хранятся.
+     *
+     * @return изменённые вещи
+     */
+    List<Item> detachRequests(Long userId, Collection<Long> requestIds);
+
+    List<Item> search(String searchText, int from, int size);
+
+    /**
+     * Поиск, допускающий опечатки: после точных совпадений идут вещи со словами, близкими к запросу.
+     */
+    List<Item> searchFuzzy(String searchText, int from, int size);
+
+    Stream<Item> streamSearch(String searchText);
+
+    Map<Long, List<Item>> findByRequestIds(Collection<Long> requestIds);
 }
@@ -1,21 +1,52 @@
 package ru.practicum.shareit.item.mem;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Repository;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.storage.ChangeListener;
+import ru.practicum.shareit.storage.IdGenerator;
+import ru.practicum.shareit.storage.RestorableRepository;
+import ru.practicum.shareit.storage.StripedLock;
 
 import java.util.*;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
-public class ItemRepositoryImpl implements ItemRepository {
-    private final Map<Long, Set<Item>> items = new HashMap<>();
-    private final Map<Long, Item> allItems = new HashMap<>();
-    private final AtomicLong idGenerator = new AtomicLong(0);
+@ConditionalOnProperty(name = "shareit.storage.type", havingValue = "memory", matchIfMissing = true)
+public class ItemRepositoryImpl implements ItemRepository, MeterBinder, RestorableRepository<Item> {
+    private final Map<Long, Map<Long, Item>> items = new ConcurrentHashMap<>();
+    private final Map<Long, Item> allItems = new ConcurrentHashMap<>();
+    private final Map<Long, Map<Long, Item>> requestItems = new ConcurrentHashMap<>();
+    private final Map<Long, Long> ownerVersions = new ConcurrentHashMap<>();
+    private final ItemSearchIndex searchIndex = new ItemSearchIndex();
+    private final StripedLock locks = new StripedLock(64);
+    private volatile IdGenerator idGenerator = IdGenerator.sequence();
+    private volatile ChangeListener<Item> listener = ChangeListener.none();
 
     @Override
-    public List<Item> findItemByUserId(Long userId) {
-        return new ArrayList<>(items.getOrDefault(userId, Collections.emptySet()));
+    public List<Item> findItemByUserId(Long userId, int from, int size) {
+        return streamItemByUserId(userId)
+                .skip(from)
+                .limit(size)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Item> streamItemByUserId(Long userId) {
+        return items.getOrDefault(userId, Collections.emptyMap()).values().stream();
+    }
+
+    @Override
+    public Stream<Item> streamAll() {
+        return allItems.values().stream();
     }
 
     @Override
@@ -23,44 +54,280 @@ public class ItemRepositoryImpl implements ItemRepository {
         return Optional.ofNullable(allItems.get(itemId));
     }
 
+    @Override
+    public long getOwnerVersion(Long userId) {
+        return ownerVersions.getOrDefault(userId, 0L);
+    }
+
     @Override
     public Item add(Item item) {
-        item.setId(idGenerator.incrementAndGet());
-        items.computeIfAbsent(item.getOwner().getId(), userId -> new HashSet<>()).add(item);
-        allItems.put(item.getId(), item);
+        Long ownerId = item.getOwner().getId();
+        Lock lock = locks.get(ownerId);
+        lock.lock();
+        try {
+            item.setId(idGenerator.next());
+            items.computeIfAbsent(ownerId, userId -> new ConcurrentSkipListMap<>()).put(item.getId(), item);
+            allItems.put(item.getId(), item);
+            indexRequest(item);
+            searchIndex.index(item);
+            bumpOwnerVersion(ownerId);
+            listener.saved(item);
+        } finally {
+            lock.unlock();
+        }
+        listener.committed();
         return item;
     }
 
     @Override
-    public void update(Long userId, Item item) {
-        Set<Item> userItems = items.get(userId);
+    public List<Item> addAll(Long userId, List<Item> newItems) {
+        Lock lock = locks.get(userId);
+        lock.lock();
+        try {
+            Map<Long, Item> userItems = items.computeIfAbsent(userId, key -> new ConcurrentSkipListMap<>());
+            long[] ids = idGenerator.next(newItems.size());
+            for (int i = 0; i < ids.length; i++) {
+                Item item = newItems.get(i);
+                item.setId(ids[i]);
+                userItems.put(item.getId(), item);
+                allItems.put(item.getId(), item);
+                indexRequest(item);
+                searchIndex.index(item);
+                listener.saved(item);
+            }
+            bumpOwnerVersion(userId);
+        } finally {
+            lock.unlock();
+        }
+        listener.committed();
+        return newItems;
+    }
 
-        if (userItems != null) {
-            if (userItems.removeIf(currentItem -> currentItem.getId().equals(item.getId()))) {
-                userItems.add(item);
+    @Override
+    public boolean update(Long userId, Item item) {
+        Lock lock = locks.get(userId);
+        lock.lock();
+        Item oldItem;
+        try {
+            Map<Long, Item> userItems = items.get(userId);
+            oldItem = userItems == null ? null : userItems.get(item.getId());
+            if (oldItem != null) {
+                if (oldItem.getVersion() != item.getVersion()) {
+                    throw new OptimisticLockingFailureException("Вещь " + item.getId() + " изменена другим запросом");
+                }
+                item.setVersion(oldItem.getVersion() + 1);
+                userItems.put(item.getId(), item);
                 allItems.put(item.getId(), item);
+                unindexRequest(oldItem);
+                indexRequest(item);
+                searchIndex.index(item);
+                bumpOwnerVersion(userId);
+                listener.saved(item);
             }
+        } finally {
+            lock.unlock();
         }
+        listener.committed();
+        return oldItem != null;
     }
 
 
     @Override
     public void deleteByUserIdAndItemId(Long userId, Long itemId) {
-        Set<Item> userItems = items.get(userId);
-        if (userItems != null) {
-            userItems.removeIf(item -> item.getId().equals(itemId));
-            allItems.remove(itemId);
+        Lock lock = locks.get(userId);
+        lock.lock();
+        try {
+            Map<Long, Item> userItems = items.get(userId);
+            Item item = userItems == null ? null : userItems.remove(itemId);
+            if (item != null) {
+                allItems.remove(itemId);
+                unindexRequest(item);
+                searchIndex.remove(itemId);
+                bumpOwnerVersion(userId);
+                listener.deleted(itemId);
+            }
+        } finally {
+            lock.unlock();
         }
+        listener.committed();
     }
 
     @Override
-    public List<Item> search(String searchText) {
-        String searchLower = searchText.toLowerCase();
-        return allItems.values().stream()
-                .filter(Item::getAvailable)
-                .filter(item -> item.getName().toLowerCase().contains(searchLower) ||
-                        item.getDescription().toLowerCase().contains(searchLower))
+    public List<Item> deleteByUserId(Long userId) {
+        List<Item> deleted = List.of();
+        Lock lock = locks.get(userId);
+        lock.lock();
+        try {
+            Map<Long, Item> userItems = items.remove(userId);
+            if (userItems != null) {
+                deleted = new ArrayList<>(userItems.values());
+                for (Item item : deleted) {
+                    allItems.remove(item.getId());
+                    unindexRequest(item);
+                    searchIndex.remove(item.getId());
+                    listener.deleted(item.getId());
+                }
+                bumpOwnerVersion(userId);
+            }
+        } finally {
+            lock.unlock();
+        }
+        listener.committed();
+        return deleted;
+    }
+
+    @Override
+    public List<Item> detachRequests(Long userId, Collection<Long> requestIds) {
+        List<Item> detached = new ArrayList<>();
+        Lock lock = locks.get(userId);
+        lock.lock();
+        try {
+            Map<Long, Item> userItems = items.get(userId);
+            for (Long requestId : requestIds) {
+                Map<Long, Item> answers = userItems == null ? null : requestItems.get(requestId);
+                if (answers == null) {
+                    continue;
+                }
+                for (Item item : new ArrayList<>(answers.values())) {
+                    if (item.getOwner().getId().equals(userId)) {
+                        Item detachedItem = new Item(item.getId(), item.getName(), item.getDescription(),
+                                item.getAvailable(), item.getOwner(), null);
+                        detachedItem.setVersion(item.getVersion() + 1);
+                        userItems.put(item.getId(), detachedItem);
+                        allItems.put(item.getId(), detachedItem);
+                        unindexRequest(item);
+                        searchIndex.index(detachedItem);
+                        listener.saved(detachedItem);
+                        detached.add(detachedItem);
+                    }
+                }
+            }
+            if (!detached.isEmpty()) {
+                bumpOwnerVersion(userId);
+            }
+        } finally {
+            lock.unlock();
+        }
+        listener.committed();
+        return detached;
+    }
+
+    @Override
+    public List<Item> search(String searchText, int from, int size) {
+        return searchIndex.top(searchText, (int) Math.min((long) from + size, Integer.MAX_VALUE)).stream()
+                .skip(from)
+                .map(allItems::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Item> searchFuzzy(String searchText, int from, int size) {
+        return searchIndex.fuzzyTop(searchText, (int) Math.min((long) from + size, Integer.MAX_VALUE)).stream()
+                .skip(from)
+                .map(allItems::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public Stream<Item> streamSearch(String searchText) {
+        return searchIndex.search(searchText).stream()
+                .map(allItems::get)
+                .filter(Objects::nonNull);
+    }
+
+    @Override
+    public Map<Long, List<Item>> findByRequestIds(Collection<Long> requestIds) {
+        Map<Long, List<Item>> result = new HashMap<>();
+        for (Long requestId : requestIds) {
+            Map<Long, Item> answers = requestItems.get(requestId);
+            if (answers != null) {
+                result.put(requestId, new ArrayList<>(answers.values()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void setListener(ChangeListener<Item> listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void setIdGenerator(IdGenerator idGenerator) {
+        idGenerator.advanceTo(this.idGenerator.last());
+        this.idGenerator = idGenerator;
+    }
+
+    @Override
+    public long lastId() {
+        return idGenerator.last();
+    }
+
+    /**
+     * Заменяет содержимое хранилища восстановленными вещами и перестраивает индексы.
+     * Вызывается до начала работы.
+     */
+    @Override
+    public void restore(Collection<Item> restored, long lastId) {
+        for (Long itemId : allItems.keySet()) {
+            searchIndex.remove(itemId);
+        }
+        items.clear();
+        allItems.clear();
+        requestItems.clear();
+        ownerVersions.clear();
+        for (Item item : restored) {
+            items.computeIfAbsent(item.getOwner().getId(), userId -> new ConcurrentSkipListMap<>())
+                    .put(item.getId(), item);
+            allItems.put(item.getId(), item);
+            indexRequest(item);
+            searchIndex.index(item);
+        }
+        idGenerator.advanceTo(lastId);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("shareit.items", allItems, Map::size)
+                .description("Количество вещей")
+                .register(registry);
+        Gauge.builder("shareit.items.owners", items, Map::size)
+                .description("Количество владельцев вещей")
+                .register(registry);
+        Gauge.builder("shareit.items.per.owner.max", this, ItemRepositoryImpl::maxItemsPerOwner)
+                .description("Наибольшее количество вещей у одного владельца")
+                .register(registry);
+        searchIndex.bindTo(registry);
+    }
+
+    private void bumpOwnerVersion(Long userId) {
+        ownerVersions.merge(userId, 1L, Long::sum);
+    }
+
+    private void indexRequest(Item item) {
+        if (item.getRequest() != null) {
+            requestItems.computeIfAbsent(item.getRequest().getId(), requestId -> new ConcurrentSkipListMap<>())
+                    .put(item.getId(), item);
+        }
+    }
+
+    private void unindexRequest(Item item) {
+        if (item.getRequest() != null) {
+            requestItems.computeIfPresent(item.getRequest().getId(), (requestId, answers) -> {
+                answers.remove(item.getId());
+                return answers.isEmpty() ? null : answers;
+            });
+        }
+    }
+
+    private double maxItemsPerOwner() {
+        int max = 0;
+        for (Map<Long, Item> userItems : items.values()) {
+            max = Math.max(max, userItems.size());
+        }
+        return max;
+    }
+
 }
@@ -0,0 +1,483 @@
+package ru.practicum.shareit.item.mem;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Инвертированный индекс для поиска доступных вещей по подстроке в названии или описании.
+ * Текст приводится к нижнему регистру и разбивается на слова; слово ведёт на множество вещей,
+ * а n-граммы слов (длиной от 1 до 3 символов) ведут на слова, поэтому поиск по подстроке
+ * затрагивает только те вещи, в словах которых эта подстрока встречается.
+ * Чтение не блокируется; изменения одной вещи вызывающий код должен сериализовать сам,
+ * а общие для разных вещей слова и n-граммы обновляются атомарно.
+ * <p>
+ * Ранжированный поиск упорядочивает вещи по оценке {@link SearchRanking}.
+ * <p>
+ * Нечёткий поиск находит и слова с опечатками: кандидаты — слова с достаточным числом общих с запросом
+ * триграмм (у коротких слов — биграмм) из того же индекса n-грамм, а подтверждает совпадение ограниченное расстояние
+ * Дамерау — Левенштейна. Перебирается словарь, а не каталог, поэтому время поиска растёт с числом
+ * различных слов, а не вещей.
+ */
+class ItemSearchIndex {
+
+    private static final int MAX_GRAM_LENGTH = 3;
+
+    /**
+     * До этой длины слова с опечаткой сравниваются по биграммам: в коротком слове одна перестановка
+     * может не оставить ни одной общей триграммы.
+     */
+    private static final int SHORT_TOKEN_LENGTH = 5;
+
+    private final Map<Long, IndexedItem> documents = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> grams = new ConcurrentHashMap<>();
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder candidates = new LongAdder();
+    private final LongAdder fuzzyQueries = new LongAdder();
+
+    void index(Item item) {
+        remove(item.getId());
+        if (!Boolean.TRUE.equals(item.getAvailable())) {
+            return;
+        }
+        IndexedItem document = new IndexedItem(normalize(item.getName()), normalize(item.getDescription()));
+        documents.put(item.getId(), document);
+        for (String term : document.terms()) {
+            addPosting(term, item.getId());
+        }
+    }
+
+    void remove(Long itemId) {
+        IndexedItem document = documents.remove(itemId);
+        if (document == null) {
+            return;
+        }
+        for (String term : document.terms()) {
+            removePosting(term, itemId);
+        }
+    }
+
+    void clear() {
+        documents.clear();
+        postings.clear();
+        grams.clear();
+    }
+
+    SortedSet<Long> search(String searchText) {
+        String query = normalize(searchText);
+        String token = longestToken(query);
+        SortedSet<Long> result = new TreeSet<>();
+        queries.increment();
+        if (token.isEmpty()) {
+            candidates.add(documents.size());
+            documents.forEach((itemId, document) -> {
+                if (document.contains(query)) {
+                    result.add(itemId);
+                }
+            });
+            return result;
+        }
+        long scanned = 0;
+        for (String term : termsContaining(token)) {
+            Set<Long> itemIds = postings.getOrDefault(term, Collections.emptySet());
+            scanned += itemIds.size();
+            for (Long itemId : itemIds) {
+                IndexedItem document = documents.get(itemId);
+                if (document != null && document.contains(query)) {
+                    result.add(itemId);
+                }
+            }
+        }
+        candidates.add(scanned);
+        return result;
+    }
+
+    /**
+     * Не больше {@code limit} лучших по релевантности вещей, от лучшей к худшей; при равной оценке
+     * раньше идёт меньший идентификатор. Слова, содержащие искомое, перебираются от совпадающих целиком
+     * к содержащим его внутри: вещь, впервые найденная по слову, где искомое стоит не с начала, не может
+     * набрать больше оценки совпадений внутри слова. Как только такая граница становится ниже худшей
+     * оценки в заполненной выборке, перебор прекращается, а вещь, которая и с наибольшей возможной
+     * оценкой не войдёт в выборку, не оценивается вовсе.
+     */
+    List<Long> top(String searchText, int limit) {
+        String query = normalize(searchText);
+        String token = longestToken(query);
+        queries.increment();
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        TopK top = new TopK(limit);
+        if (token.isEmpty()) {
+            candidates.add(documents.size());
+            documents.forEach((itemId, document) -> top.offer(itemId, document.score(query)));
+            return top.ids();
+        }
+        List<String> terms = new ArrayList<>(termsContaining(token));
+        terms.sort(Comparator.comparingInt((String term) -> matchOf(term, token)).reversed());
+        // вещь с несколькими подходящими словами встречается в нескольких списках, но оценивается один раз
+        Set<Long> seen = terms.size() > 1 ? new HashSet<>() : null;
+        long scanned = 0;
+        for (String term : terms) {
+            int match = matchOf(term, token);
+            int bound = SearchRanking.nameScore(match) + SearchRanking.descriptionScore(match);
+            if (top.isFull() && bound < top.worstScore()) {
+                break;
+            }
+            for (Long itemId : postings.getOrDefault(term, Collections.emptySet())) {
+                if (!top.admits(itemId, bound)) {
+                    continue;
+                }
+                IndexedItem document = documents.get(itemId);
+                if (document == null || seen != null && !seen.add(itemId)) {
+                    continue;
+                }
+                scanned++;
+                int nameScore = SearchRanking.nameScore(SearchRanking.bestMatch(document.name, query));
+                if (top.admits(itemId, nameScore + SearchRanking.descriptionScore(match))) {
+                    top.offer(itemId, nameScore
+                            + SearchRanking.descriptionScore(SearchRanking.bestMatch(document.description, query)));
+                }
+            }
+        }
+        candidates.add(scanned);
+        return top.ids();
+    }
+
+    /**
+     * Ранжированный поиск с опечатками: сначала точные совпадения в порядке {@link #top}, затем вещи, в которых
+     * нашлось слово на расстоянии не больше {@link #maxDistance} от самого длинного слова запроса, — от
+     * меньшего расстояния к большему, совпадения в названии раньше. Остальные слова запроса тоже должны
+     * найтись в вещи точно или с опечаткой.
+     */
+    List<Long> fuzzyTop(String searchText, int limit) {
+        List<Long> exact = top(searchText, limit);
+        fuzzyQueries.increment();
+        List<String> tokens = new ArrayList<>(tokenize(normalize(searchText)));
+        if (exact.size() >= limit || tokens.isEmpty()) {
+            return exact;
+        }
+        tokens.sort(Comparator.comparingInt(String::length).reversed());
+        String token = tokens.get(0);
+        List<String> others = tokens.subList(1, tokens.size());
+        Set<Long> seen = new HashSet<>(exact);
+        List<FuzzyMatch> matches = new ArrayList<>();
+        long scanned = 0;
+        for (Map.Entry<String, Integer> similar : similarTerms(token).entrySet()) {
+            for (Long itemId : postings.getOrDefault(similar.getKey(), Collections.emptySet())) {
+                IndexedItem document = documents.get(itemId);
+                if (document == null || !seen.add(itemId)) {
+                    continue;
+                }
+                scanned++;
+                if (others.stream().allMatch(document::fuzzyContains)) {
+                    boolean inName = SearchRanking.bestMatch(document.name, similar.getKey()) != SearchRanking.NONE;
+                    matches.add(new FuzzyMatch(itemId, similar.getValue(), inName));
+                }
+            }
+        }
+        candidates.add(scanned);
+        matches.sort(Comparator.comparingInt(FuzzyMatch::getDistance)
+                .thenComparing(match -> !match.isInName())
+                .thenComparing(FuzzyMatch::getItemId));
+        List<Long> result = new ArrayList<>(exact);
+        for (int i = 0; i < matches.size() && result.size() < limit; i++) {
+            result.add(matches.get(i).getItemId());
+        }
+        return result;
+    }
+
+    void bindTo(MeterRegistry registry) {
+        Gauge.builder("shareit.items.index.documents", documents, Map::size)
+                .description("Количество вещей в поисковом индексе")
+                .register(registry);
+        Gauge.builder("shareit.items.index.terms", postings, Map::size)
+                .description("Количество различных слов в поисковом индексе")
+                .register(registry);
+        FunctionCounter.builder("shareit.items.search.queries", queries, LongAdder::sum)
+                .description("Количество поисковых запросов")
+                .register(registry);
+        FunctionCounter.builder("shareit.items.search.fuzzy.queries", fuzzyQueries, LongAdder::sum)
+                .description("Количество нечётких поисковых запросов")
+                .register(registry);
+        FunctionCounter.builder("shareit.items.search.candidates", candidates, LongAdder::sum)
+                .description("Количество вещей, проверенных при поиске")
+                .register(registry);
+    }
+
+    private Collection<String> termsContaining(String token) {
+        if (token.length() <= MAX_GRAM_LENGTH) {
+            return grams.getOrDefault(token, Collections.emptySet());
+        }
+        Set<String> rarest = null;
+        for (int i = 0; i + MAX_GRAM_LENGTH <= token.length(); i++) {
+            Set<String> terms = grams.get(token.substring(i, i + MAX_GRAM_LENGTH));
+            if (terms == null) {
+                return Collections.emptySet();
+            }
+            if (rarest == null || terms.size() < rarest.size()) {
+                rarest = terms;
+            }
+        }
+        List<String> result = new ArrayList<>();
+        for (String term : rarest) {
+            if (term.contains(token)) {
+                result.add(term);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Слова индекса, отличные от {@code token}, но не дальше {@link #maxDistance}, с их расстоянием.
+     * Одна правка портит не больше {@code q + 1} из {@code t} q-грамм запроса, поэтому слово на расстоянии
+     * {@code k} сохраняет хотя бы {@code t - (q + 1) * k} из них; для слов с меньшим числом общих q-грамм
+     * или со слишком отличной длиной расстояние не считается. Слова без единой общей q-граммы
+     * не находятся, даже если граница это допускает.
+     */
+    private Map<String, Integer> similarTerms(String token) {
+        int max = maxDistance(token);
+        if (max == 0) {
+            return Collections.emptyMap();
+        }
+        int gramLength = token.length() <= SHORT_TOKEN_LENGTH ? 2 : MAX_GRAM_LENGTH;
+        Set<String> queryGrams = new HashSet<>();
+        for (int i = 0; i + gramLength <= token.length(); i++) {
+            queryGrams.add(token.substring(i, i + gramLength));
+        }
+        Map<String, Integer> shared = new HashMap<>();
+        for (String gram : queryGrams) {
+            for (String term : grams.getOrDefault(gram, Collections.emptySet())) {
+                if (Math.abs(term.length() - token.length()) <= max) {
+                    shared.merge(term, 1, Integer::sum);
+                }
+            }
+        }
+        int minShared = Math.max(1, queryGrams.size() - (gramLength + 1) * max);
+        Map<String, Integer> result = new HashMap<>();
+        shared.forEach((term, count) -> {
+            if (count >= minShared && !term.equals(token)) {
+                int distance = EditDistance.bounded(token, term, max);
+                if (distance <= max) {
+                    result.put(term, distance);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Допустимое число опечаток в слове: в словах до двух букв — ни одной, до пяти — одна, в длинных — две.
+     */
+    private static int maxDistance(String token) {
+        if (token.length() <= 2) {
+            return 0;
+        }
+        return token.length() <= SHORT_TOKEN_LENGTH ? 1 : 2;
+    }
+
+    private void addPosting(String term, Long itemId) {
+        postings.compute(term, (key, itemIds) -> {
+            if (itemIds == null) {
+                itemIds = ConcurrentHashMap.newKeySet();
+                for (String gram : gramsOf(term)) {
+                    grams.compute(gram, (g, terms) -> {
+                        Set<String> result = terms == null ? ConcurrentHashMap.newKeySet() : terms;
+                        result.add(term);
+                        return result;
+                    });
+                }
+            }
+            itemIds.add(itemId);
+            return itemIds;
+        });
+    }
+
+    private void removePosting(String term, Long itemId) {
+        postings.computeIfPresent(term, (key, itemIds) -> {
+            if (!itemIds.remove(itemId) || !itemIds.isEmpty()) {
+                return itemIds;
+            }
+            for (String gram : gramsOf(term)) {
+                grams.computeIfPresent(gram, (g, terms) -> {
+                    terms.remove(term);
+                    return terms.isEmpty() ? null : terms;
+                });
+            }
+            return null;
+        });
+    }
+
+    private static int matchOf(String term, String token) {
+        if (term.equals(token)) {
+            return SearchRanking.WHOLE_WORD;
+        }
+        return term.startsWith(token) ? SearchRanking.WORD_PREFIX : SearchRanking.INSIDE_WORD;
+    }
+
+    private static Set<String> gramsOf(String term) {
+        Set<String> result = new HashSet<>();
+        for (int length = 1; length <= MAX_GRAM_LENGTH; length++) {
+            for (int i = 0; i + length <= term.length(); i++) {
+                result.add(term.substring(i, i + length));
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> tokenize(String text) {
+        Set<String> result = new HashSet<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                result.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    private static String longestToken(String query) {
+        String longest = "";
+        for (String token : tokenize(query)) {
+            if (token.length() > longest.length()) {
+                longest = token;
+            }
+        }
+        return longest;
+    }
+
+    private static String normalize(String text) {
+        return SearchRanking.normalize(text);
+    }
+
+    private static final class IndexedItem {
+        private final String name;
+        private final String description;
+
+        private IndexedItem(String name, String description) {
+            this.name = name;
+            this.description = description;
+        }
+
+        private boolean contains(String query) {
+            return name.contains(query) || description.contains(query);
+        }
+
+        private boolean fuzzyContains(String token) {
+            if (contains(token)) {
+                return true;
+            }
+            int max = maxDistance(token);
+            return max > 0 && terms().stream().anyMatch(term -> EditDistance.bounded(token, term, max) <= max);
+        }
+
+        private int score(String query) {
+            return SearchRanking.normalizedScore(name, description, query);
+        }
+
+        private Set<String> terms() {
+            Set<String> terms = tokenize(name);
+            terms.addAll(tokenize(description));
+            return terms;
+        }
+    }
+
+    /**
+     * Ограниченная выборка лучших: куча держит худшую из отобранных вещей наверху.
+     */
+    private static final class TopK {
+        private final int limit;
+        private final PriorityQueue<Scored> heap = new PriorityQueue<>(Comparator.comparingInt(Scored::getScore)
+                .thenComparing(Scored::getItemId, Comparator.reverseOrder()));
+
+        private TopK(int limit) {
+            this.limit = limit;
+        }
+
+        private boolean admits(Long itemId, int score) {
+            if (heap.size() < limit) {
+                return true;
+            }
+            Scored worst = heap.peek();
+            return score > worst.getScore() || score == worst.getScore() && itemId < worst.getItemId();
+        }
+
+        private void offer(Long itemId, int score) {
+            if (score == 0 || !admits(itemId, score)) {
+                return;
+            }
+            if (heap.size() >= limit) {
+                heap.poll();
+            }
+            heap.add(new Scored(itemId, score));
+        }
+
+        private boolean isFull() {
+            return heap.size() >= limit;
+        }
+
+        private int worstScore() {
+            return heap.isEmpty() ? 0 : heap.peek().getScore();
+        }
+
+        private List<Long> ids() {
+            Long[] result = new Long[heap.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = heap.poll().getItemId();
+            }
+            return Arrays.asList(result);
+        }
+    }
+
+    private static final class FuzzyMatch {
+        private final Long itemId;
+        private final int distance;
+        private final boolean inName;
+
+        private FuzzyMatch(Long itemId, int distance, boolean inName) {
+            this.itemId = itemId;
+            this.distance = distance;
+            this.inName = inName;
+        }
+
+        private Long getItemId() {
+            return itemId;
+        }
+
+        private int getDistance() {
+            return distance;
+        }
+
+        private boolean isInName() {
+            return inName;
+        }
+    }
+
+    private static final class Scored {
+        private final Long itemId;
+        private final int score;
+
+        private Scored(Long itemId, int score) {
+            this.itemId = itemId;
+            this.score = score;
+        }
+
+        private Long getItemId() {
+            return itemId;
+        }
+
+        private int getScore() {
+            return score;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ru.practicum.shareit.item.mem;
+
+/**
+ * Оценка релевантности вещи поисковому запросу: совпадение в названии весит больше совпадения в описании,
+ * а внутри поля совпадение целым словом выше совпадения с начала слова, а то — выше совпадения внутри слова.
+ * По этой оценке ранжирует {@link ItemSearchIndex}, и по ней же сливаются выдачи разных узлов кластера.
+ */
+public final class SearchRanking {
+
+    static final int NONE = 0;
+    static final int INSIDE_WORD = 1;
+    static final int WORD_PREFIX = 2;
+    static final int WHOLE_WORD = 3;
+
+    private static final int[] NAME_SCORES = {0, 4, 6, 8};
+    private static final int[] DESCRIPTION_SCORES = {0, 1, 2, 3};
+
+    private SearchRanking() {
+    }
+
+    public static int score(String name, String description, String searchText) {
+        return normalizedScore(normalize(name), normalize(description), normalize(searchText));
+    }
+
+    static int normalizedScore(String name, String description, String query) {
+        return nameScore(bestMatch(name, query)) + descriptionScore(bestMatch(description, query));
+    }
+
+    static int nameScore(int match) {
+        return NAME_SCORES[match];
+    }
+
+    static int descriptionScore(int match) {
+        return DESCRIPTION_SCORES[match];
+    }
+
+    /**
+     * Лучшее вхождение {@code query} в {@code text}: целым словом, с начала слова, внутри слова или никакого.
+     * Оба аргумента уже приведены к нижнему регистру.
+     */
+    static int bestMatch(String text, String query) {
+        int best = NONE;
+        for (int i = text.indexOf(query); i >= 0 && best < WHOLE_WORD; i = text.indexOf(query, i + 1)) {
+            int end = i + query.length();
+            boolean startsWord = i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1));
+            boolean endsWord = end == text.length() || !Character.isLetterOrDigit(text.charAt(end));
+            best = Math.max(best, startsWord ? (endsWord ? WHOLE_WORD : WORD_PREFIX) : INSIDE_WORD);
+        }
+        return best;
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase();
+    }
+}
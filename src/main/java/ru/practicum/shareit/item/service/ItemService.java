@@ -4,18 +4,31 @@ import ru.practicum.shareit.item.dto.ItemDto;
 
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface ItemService {
-    List<ItemDto> getItems(Long userId);
+    List<ItemDto> getItems(Long userId, int from, int size);
+
+    long getItemsVersion(Long userId);
+
+    Stream<ItemDto> streamItems(Long userId);
+
+    Stream<ItemDto> streamAll();
 
     ItemDto getById(Long itemId);
 
     ItemDto add(Long userId, ItemDto itemDto);
 
+    List<ItemDto> addAll(Long userId, List<ItemDto> itemDtos);
+
     void delete(Long userId, Long itemId);
 
     ItemDto update(Long itemId, Long userId, ItemDto itemDto);
 
-    List<ItemDto> search(String searchText);
+    List<ItemDto> search(String searchText, int from, int size);
+
+    List<ItemDto> searchFuzzy(String searchText, int from, int size);
+
+    Stream<ItemDto> streamSearch(String searchText);
 
 }
@@ -1,33 +1,76 @@
 package ru.practicum.shareit.item.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import ru.practicum.shareit.cache.CacheConfig;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.event.ItemEventStream;
+import ru.practicum.shareit.item.event.ItemEventType;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.mem.ItemRepository;
 import ru.practicum.shareit.item.model.Item;
-import ru.practicum.shareit.user.mem.UserRepository;
+import ru.practicum.shareit.request.mem.ItemRequestRepository;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.storage.StripedLock;
+import ru.practicum.shareit.user.event.UserDeletedEvent;
+import ru.practicum.shareit.user.service.UserService;
 import ru.practicum.shareit.validation.exception.NotFoundException;
 
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Изменение вещей владельца и публикация его в поток изменений идут под одной блокировкой владельца:
+ * иначе события о двух изменениях одной вещи могли бы попасть в поток в обратном порядке.
+ */
 @Service
 @RequiredArgsConstructor
+@Timed("shareit.service")
 public class ItemServiceImpl implements ItemService {
 
+    private static final int LOCK_STRIPES = 64;
+
     private final ItemRepository itemRepository;
 
-    private final UserRepository userRepository;
+    private final UserService userService;
+
+    private final ItemRequestRepository itemRequestRepository;
+
+    private final ItemEventStream itemEventStream;
+
+    private final StripedLock ownerLocks = new StripedLock(LOCK_STRIPES);
+
+    @Override
+    public List<ItemDto> getItems(Long userId, int from, int size) {
+        userService.getById(userId);
+        return ItemMapper.toItemDtoList(itemRepository.findItemByUserId(userId, from, size));
+    }
+
+    @Override
+    public long getItemsVersion(Long userId) {
+        userService.getById(userId);
+        return itemRepository.getOwnerVersion(userId);
+    }
+
+    @Override
+    public Stream<ItemDto> streamItems(Long userId) {
+        userService.getById(userId);
+        return itemRepository.streamItemByUserId(userId).map(ItemMapper::toItemDto);
+    }
 
     @Override
-    public List<ItemDto> getItems(Long userId) {
-        userRepository.findById(userId)
-                .orElseThrow(() -> new NotFoundException("Пользователь не найден"));
-        return ItemMapper.toItemDtoList(itemRepository.findItemByUserId(userId));
+    public Stream<ItemDto> streamAll() {
+        return itemRepository.streamAll().map(ItemMapper::toItemDto);
     }
 
     @Override
+    @Cacheable(CacheConfig.ITEMS)
     public ItemDto getById(Long itemId) {
         return ItemMapper.toItemDto(itemRepository.getById(itemId)
                 .orElseThrow(() -> new NotFoundException("Вещь не найдена")));
@@ -35,28 +78,148 @@ public class ItemServiceImpl implements ItemService {
 
     @Override
     public ItemDto add(Long userId, ItemDto itemDto) {
-        userRepository.findById(userId)
-                .orElseThrow(() -> new NotFoundException("Пользователь не найден"));
+        userService.getById(userId);
 
+        checkRequest(itemDto.getRequest());
         itemDto.setOwner(userId);
         Item item = ItemMapper.toItem(itemDto);
-        return ItemMapper.toItemDto(itemRepository.add(item));
+        Lock lock = ownerLocks.get(userId);
+        lock.lock();
+        try {
+            ItemDto added = ItemMapper.toItemDto(itemRepository.add(item));
+            itemEventStream.publish(ItemEventType.CREATED, added);
+            return added;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<ItemDto> addAll(Long userId, List<ItemDto> itemDtos) {
+        userService.getById(userId);
+
+        Set<Long> requestIds = new HashSet<>();
+        List<Item> items = new ArrayList<>(itemDtos.size());
+        for (ItemDto itemDto : itemDtos) {
+            if (itemDto.getRequest() != null && requestIds.add(itemDto.getRequest())) {
+                checkRequest(itemDto.getRequest());
+            }
+            itemDto.setOwner(userId);
+            items.add(ItemMapper.toItem(itemDto));
+        }
+        Lock lock = ownerLocks.get(userId);
+        lock.lock();
+        try {
+            List<ItemDto> added = ItemMapper.toItemDtoList(itemRepository.addAll(userId, items));
+            added.forEach(item -> itemEventStream.publish(ItemEventType.CREATED, item));
+            return added;
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.ITEMS, key = "#itemId")
     public void delete(Long userId, Long itemId) {
-        itemRepository.deleteByUserIdAndItemId(userId, itemId);
+        Lock lock = ownerLocks.get(userId);
+        lock.lock();
+        try {
+            Optional<Item> item = itemRepository.getById(itemId);
+            itemRepository.deleteByUserIdAndItemId(userId, itemId);
+            if (item.isPresent() && item.get().getOwner().getId().equals(userId)) {
+                itemEventStream.publish(ItemEventType.DELETED, ItemMapper.toItemDto(item.get()));
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
+    /**
+     * Кэш вещи очищается, а не заполняется результатом: иначе изменение, разминувшееся с удалением,
+     * вернуло бы удалённую вещь в кэш.
+     */
     @Override
+    @CacheEvict(cacheNames = CacheConfig.ITEMS, key = "#itemId")
     public ItemDto update(Long itemId, Long userId, ItemDto itemDto) {
-        userRepository.findById(userId)
-                .orElseThrow(() -> new NotFoundException("Пользователь не найден"));
-        Item updateItem = itemRepository.getById(itemId)
-                .orElseThrow(() -> new NotFoundException("Вещь не найдена"));
-        if (!updateItem.getOwner().getId().equals(userId)) {
+        userService.getById(userId);
+        Lock lock = ownerLocks.get(userId);
+        lock.lock();
+        try {
+            return applyUpdate(userId, itemDto, itemRepository.getById(itemId)
+                    .orElseThrow(() -> new NotFoundException("Вещь не найдена")));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<ItemDto> search(String searchText, int from, int size) {
+        if (searchText == null || searchText.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return ItemMapper.toItemDtoList(itemRepository.search(searchText, from, size));
+    }
+
+    @Override
+    public List<ItemDto> searchFuzzy(String searchText, int from, int size) {
+        if (searchText == null || searchText.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return ItemMapper.toItemDtoList(itemRepository.searchFuzzy(searchText, from, size));
+    }
+
+    @Override
+    public Stream<ItemDto> streamSearch(String searchText) {
+        if (searchText == null || searchText.isEmpty()) {
+            return Stream.empty();
+        }
+        return itemRepository.streamSearch(searchText).map(ItemMapper::toItemDto);
+    }
+
+    /**
+     * Удаляет вещи и запросы удаляемого пользователя и убирает ссылки на его запросы у вещей, отвечавших
+     * на них, — так же, как база по внешним ключам. Подписчики потока изменений узнают о каждой такой вещи.
+     */
+    @EventListener
+    public void userDeleted(UserDeletedEvent event) {
+        Long userId = event.getUserId();
+        Lock lock = ownerLocks.get(userId);
+        lock.lock();
+        try {
+            for (Item item : itemRepository.deleteByUserId(userId)) {
+                itemEventStream.publish(ItemEventType.DELETED, ItemMapper.toItemDto(item));
+            }
+        } finally {
+            lock.unlock();
+        }
+        List<Long> requestIds = itemRequestRepository.findByRequester(userId).stream()
+                .map(ItemRequest::getId)
+                .collect(Collectors.toList());
+        Set<Long> answerOwners = itemRepository.findByRequestIds(requestIds).values().stream()
+                .flatMap(List::stream)
+                .map(item -> item.getOwner().getId())
+                .collect(Collectors.toSet());
+        for (Long ownerId : answerOwners) {
+            Lock ownerLock = ownerLocks.get(ownerId);
+            ownerLock.lock();
+            try {
+                for (Item item : itemRepository.detachRequests(ownerId, requestIds)) {
+                    itemEventStream.publish(ItemEventType.UPDATED, ItemMapper.toItemDto(item));
+                }
+            } finally {
+                ownerLock.unlock();
+            }
+        }
+        itemRequestRepository.deleteByRequester(userId);
+    }
+
+    private ItemDto applyUpdate(Long userId, ItemDto itemDto, Item storedItem) {
+        if (!storedItem.getOwner().getId().equals(userId)) {
             throw new NotFoundException("Вещь может редактировать только ёё владелец");
         }
+        Item updateItem = new Item(storedItem.getId(), storedItem.getName(), storedItem.getDescription(),
+                storedItem.getAvailable(), storedItem.getOwner(), storedItem.getRequest());
+        updateItem.setVersion(storedItem.getVersion());
         if (itemDto.getName() != null) {
             updateItem.setName(itemDto.getName());
         }
@@ -66,15 +229,19 @@ public class ItemServiceImpl implements ItemService {
         if (itemDto.getAvailable() != null) {
             updateItem.setAvailable(itemDto.getAvailable());
         }
-        itemRepository.update(userId, updateItem);
-        return ItemMapper.toItemDto(updateItem);
+        if (!itemRepository.update(userId, updateItem)) {
+            throw new NotFoundException("Вещь не найдена");
+        }
+        ItemDto updated = ItemMapper.toItemDto(updateItem);
+        itemEventStream.publish(Objects.equals(storedItem.getAvailable(), updateItem.getAvailable())
+                ? ItemEventType.UPDATED : ItemEventType.AVAILABILITY, updated);
+        return updated;
     }
 
-    @Override
-    public List<ItemDto> search(String searchText) {
-        if (searchText == null || searchText.isEmpty()) {
-            return Collections.emptyList();
+    private void checkRequest(Long requestId) {
+        if (requestId != null) {
+            itemRequestRepository.getById(requestId)
+                    .orElseThrow(() -> new NotFoundException("Запрос не найден"));
         }
-        return ItemMapper.toItemDtoList(itemRepository.search(searchText));
     }
 }
@@ -1,12 +1,47 @@
 package ru.practicum.shareit.request.controller;
 
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import lombok.RequiredArgsConstructor;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.service.ItemRequestService;
+import ru.practicum.shareit.validation.valid.OnCreate;
+
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+import java.util.List;
 
-/**
- * TODO Sprint add-item-requests.
- */
 @RestController
 @RequestMapping(path = "/requests")
+@RequiredArgsConstructor
+@Validated
 public class ItemRequestController {
+
+    private static final String ALL = "" + Integer.MAX_VALUE;
+
+    private final ItemRequestService itemRequestService;
+
+    @PostMapping
+    public ItemRequestDto add(@RequestHeader("X-Sharer-User-Id") long userId,
+                              @Validated(OnCreate.class) @RequestBody ItemRequestDto itemRequestDto) {
+        return itemRequestService.add(userId, itemRequestDto);
+    }
+
+    @GetMapping
+    public List<ItemRequestDto> getOwn(@RequestHeader("X-Sharer-User-Id") long userId) {
+        return itemRequestService.getOwn(userId);
+    }
+
+    @GetMapping("/all")
+    public List<ItemRequestDto> getAll(@RequestHeader("X-Sharer-User-Id") long userId,
+                                       @RequestParam(defaultValue = "0") @PositiveOrZero int from,
+                                       @RequestParam(defaultValue = ALL) @Positive int size) {
+        return itemRequestService.getAll(userId, from, size);
+    }
+
+    @GetMapping("/{requestId}")
+    public ItemRequestDto get(@RequestHeader("X-Sharer-User-Id") long userId,
+                              @PathVariable long requestId) {
+        return itemRequestService.getById(userId, requestId);
+    }
 }
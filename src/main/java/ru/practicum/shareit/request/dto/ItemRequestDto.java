@@ -1,13 +1,27 @@
 package ru.practicum.shareit.request.dto;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.validation.valid.OnCreate;
 
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Size;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class ItemRequestDto {
     private Long id;
+
+    @NotBlank(message = "Описание запроса не может быть пустым", groups = OnCreate.class)
+    @Size(max = 512, message = "Описание запроса должно содержать не более 512 символов.", groups = OnCreate.class)
     private String description;
+
     private Long requester;
     private LocalDateTime created;
+    private List<ItemDto> items;
 }
@@ -0,0 +1,59 @@
+package ru.practicum.shareit.request.jpa;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.request.mem.ItemRequestRepository;
+import ru.practicum.shareit.request.model.ItemRequest;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@ConditionalOnProperty(name = "shareit.storage.type", havingValue = "jpa")
+@Transactional(readOnly = true)
+public class JpaItemRequestRepository implements ItemRequestRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public ItemRequest add(ItemRequest itemRequest) {
+        entityManager.persist(itemRequest);
+        return itemRequest;
+    }
+
+    @Override
+    public Optional<ItemRequest> getById(Long requestId) {
+        return Optional.ofNullable(entityManager.find(ItemRequest.class, requestId));
+    }
+
+    @Override
+    public List<ItemRequest> findByRequester(Long requesterId) {
+        return entityManager.createQuery("select r from ItemRequest r where r.requester = :requesterId "
+                        + "order by r.created desc, r.id desc", ItemRequest.class)
+                .setParameter("requesterId", requesterId)
+                .getResultList();
+    }
+
+    @Override
+    public List<ItemRequest> findAllExceptRequester(Long requesterId, int from, int size) {
+        return entityManager.createQuery("select r from ItemRequest r where r.requester <> :requesterId "
+                        + "order by r.created desc, r.id desc", ItemRequest.class)
+                .setParameter("requesterId", requesterId)
+                .setFirstResult(from)
+                .setMaxResults(size)
+                .getResultList();
+    }
+
+    @Override
+    @Transactional
+    public void deleteByRequester(Long requesterId) {
+        entityManager.createQuery("delete from ItemRequest r where r.requester = :requesterId")
+                .setParameter("requesterId", requesterId)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,28 @@
+package ru.practicum.shareit.request.mapper;
+
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.model.ItemRequest;
+
+import java.util.List;
+
+public class ItemRequestMapper {
+    public static ItemRequestDto toItemRequestDto(ItemRequest itemRequest, List<ItemDto> items) {
+        return new ItemRequestDto(
+                itemRequest.getId(),
+                itemRequest.getDescription(),
+                itemRequest.getRequester(),
+                itemRequest.getCreated(),
+                items
+        );
+    }
+
+    public static ItemRequest toItemRequest(ItemRequestDto itemRequestDto) {
+        return new ItemRequest(
+                itemRequestDto.getId(),
+                itemRequestDto.getDescription(),
+                itemRequestDto.getRequester(),
+                itemRequestDto.getCreated()
+        );
+    }
+}
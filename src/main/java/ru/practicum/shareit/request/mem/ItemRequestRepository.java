@@ -1,4 +1,21 @@
 package ru.practicum.shareit.request.mem;
 
-interface ItemRequestRepository {
+import ru.practicum.shareit.request.model.ItemRequest;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ItemRequestRepository {
+    ItemRequest add(ItemRequest itemRequest);
+
+    Optional<ItemRequest> getById(Long requestId);
+
+    List<ItemRequest> findByRequester(Long requesterId);
+
+    List<ItemRequest> findAllExceptRequester(Long requesterId, int from, int size);
+
+    /**
+     * Удаляет запросы автора — так же, как база по {@code ON DELETE CASCADE} при удалении пользователя.
+     */
+    void deleteByRequester(Long requesterId);
 }
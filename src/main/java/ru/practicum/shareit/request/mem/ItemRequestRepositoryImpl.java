@@ -1,4 +1,107 @@
 package ru.practicum.shareit.request.mem;
 
-public class ItemRequestRepositoryImpl {
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.storage.ChangeListener;
+import ru.practicum.shareit.storage.IdGenerator;
+import ru.practicum.shareit.storage.RestorableRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Запросы хранятся в порядке убывания идентификатора, то есть от новых к старым: и все вместе,
+ * и отдельно по каждому автору, поэтому обе выдачи читаются готовыми без сортировки.
+ */
+@Repository
+@ConditionalOnExpression("'${shareit.storage.type:memory}' != 'jpa'")
+public class ItemRequestRepositoryImpl implements ItemRequestRepository, RestorableRepository<ItemRequest> {
+    private final Map<Long, ItemRequest> requests = new ConcurrentSkipListMap<>(Comparator.reverseOrder());
+    private final Map<Long, Map<Long, ItemRequest>> requesterRequests = new ConcurrentHashMap<>();
+    private volatile IdGenerator idGenerator = IdGenerator.sequence();
+    private volatile ChangeListener<ItemRequest> listener = ChangeListener.none();
+
+    @Override
+    public ItemRequest add(ItemRequest itemRequest) {
+        itemRequest.setId(idGenerator.next());
+        store(itemRequest);
+        listener.saved(itemRequest);
+        listener.committed();
+        return itemRequest;
+    }
+
+    @Override
+    public Optional<ItemRequest> getById(Long requestId) {
+        return Optional.ofNullable(requests.get(requestId));
+    }
+
+    @Override
+    public List<ItemRequest> findByRequester(Long requesterId) {
+        return new ArrayList<>(requesterRequests.getOrDefault(requesterId, Collections.emptyMap()).values());
+    }
+
+    @Override
+    public List<ItemRequest> findAllExceptRequester(Long requesterId, int from, int size) {
+        return requests.values().stream()
+                .filter(itemRequest -> !itemRequest.getRequester().equals(requesterId))
+                .skip(from)
+                .limit(size)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void deleteByRequester(Long requesterId) {
+        Map<Long, ItemRequest> removed = requesterRequests.remove(requesterId);
+        if (removed == null) {
+            return;
+        }
+        for (Long requestId : removed.keySet()) {
+            requests.remove(requestId);
+            listener.deleted(requestId);
+        }
+        listener.committed();
+    }
+
+    @Override
+    public Stream<ItemRequest> streamAll() {
+        return requests.values().stream();
+    }
+
+    @Override
+    public void setListener(ChangeListener<ItemRequest> listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void setIdGenerator(IdGenerator idGenerator) {
+        idGenerator.advanceTo(this.idGenerator.last());
+        this.idGenerator = idGenerator;
+    }
+
+    @Override
+    public long lastId() {
+        return idGenerator.last();
+    }
+
+    /**
+     * Заменяет содержимое хранилища восстановленными запросами. Вызывается до начала работы.
+     */
+    @Override
+    public void restore(Collection<ItemRequest> restored, long lastId) {
+        requests.clear();
+        requesterRequests.clear();
+        restored.forEach(this::store);
+        idGenerator.advanceTo(lastId);
+    }
+
+    private void store(ItemRequest itemRequest) {
+        requesterRequests.computeIfAbsent(itemRequest.getRequester(),
+                        requesterId -> new ConcurrentSkipListMap<>(Comparator.reverseOrder()))
+                .put(itemRequest.getId(), itemRequest);
+        requests.put(itemRequest.getId(), itemRequest);
+    }
 }
@@ -1,4 +1,15 @@
 package ru.practicum.shareit.request.service;
 
-interface ItemRequestService {
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+
+import java.util.List;
+
+public interface ItemRequestService {
+    ItemRequestDto add(Long userId, ItemRequestDto itemRequestDto);
+
+    List<ItemRequestDto> getOwn(Long userId);
+
+    List<ItemRequestDto> getAll(Long userId, int from, int size);
+
+    ItemRequestDto getById(Long userId, Long requestId);
 }
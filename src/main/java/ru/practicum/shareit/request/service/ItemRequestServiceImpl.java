@@ -1,4 +1,72 @@
 package ru.practicum.shareit.request.service;
 
-public class ItemRequestServiceImpl {
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.item.mem.ItemRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.mapper.ItemRequestMapper;
+import ru.practicum.shareit.request.mem.ItemRequestRepository;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.user.service.UserService;
+import ru.practicum.shareit.validation.exception.NotFoundException;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Service
+@RequiredArgsConstructor
+@Timed("shareit.service")
+public class ItemRequestServiceImpl implements ItemRequestService {
+
+    private final ItemRequestRepository itemRequestRepository;
+
+    private final ItemRepository itemRepository;
+
+    private final UserService userService;
+
+    @Override
+    public ItemRequestDto add(Long userId, ItemRequestDto itemRequestDto) {
+        userService.getById(userId);
+        itemRequestDto.setRequester(userId);
+        itemRequestDto.setCreated(LocalDateTime.now());
+        ItemRequest itemRequest = itemRequestRepository.add(ItemRequestMapper.toItemRequest(itemRequestDto));
+        return ItemRequestMapper.toItemRequestDto(itemRequest, Collections.emptyList());
+    }
+
+    @Override
+    public List<ItemRequestDto> getOwn(Long userId) {
+        userService.getById(userId);
+        return withItems(itemRequestRepository.findByRequester(userId));
+    }
+
+    @Override
+    public List<ItemRequestDto> getAll(Long userId, int from, int size) {
+        userService.getById(userId);
+        return withItems(itemRequestRepository.findAllExceptRequester(userId, from, size));
+    }
+
+    @Override
+    public ItemRequestDto getById(Long userId, Long requestId) {
+        userService.getById(userId);
+        ItemRequest itemRequest = itemRequestRepository.getById(requestId)
+                .orElseThrow(() -> new NotFoundException("Запрос не найден"));
+        return withItems(List.of(itemRequest)).get(0);
+    }
+
+    private List<ItemRequestDto> withItems(List<ItemRequest> itemRequests) {
+        List<Long> requestIds = new ArrayList<>(itemRequests.size());
+        for (ItemRequest itemRequest : itemRequests) {
+            requestIds.add(itemRequest.getId());
+        }
+        Map<Long, List<Item>> answers = itemRepository.findByRequestIds(requestIds);
+        List<ItemRequestDto> result = new ArrayList<>(itemRequests.size());
+        for (ItemRequest itemRequest : itemRequests) {
+            List<Item> items = answers.getOrDefault(itemRequest.getId(), Collections.emptyList());
+            result.add(ItemRequestMapper.toItemRequestDto(itemRequest, ItemMapper.toItemDtoList(items)));
+        }
+        return result;
+    }
 }
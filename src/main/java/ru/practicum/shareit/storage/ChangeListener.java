@@ -0,0 +1,44 @@
+package ru.practicum.shareit.storage;
+
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Получатель изменений хранилища в памяти. Хранилище вызывает его после того, как изменение
+ * стало видно читателям, под той же блокировкой, что и само изменение, поэтому изменения одной
+ * сущности приходят в том порядке, в котором применялись. Долгие действия вроде ожидания записи
+ * на диск стоит откладывать до {@link #committed()}.
+ */
+public interface ChangeListener<T> {
+
+    void saved(T entity);
+
+    void deleted(long id);
+
+    /**
+     * Вызывается после завершения операции хранилища, уже вне блокировок: все изменения,
+     * переданные этим потоком до вызова, относятся к завершённой операции.
+     */
+    default void committed() {
+    }
+
+    static <T> ChangeListener<T> none() {
+        return of(entity -> {
+        }, id -> {
+        });
+    }
+
+    static <T> ChangeListener<T> of(Consumer<T> onSave, LongConsumer onDelete) {
+        return new ChangeListener<>() {
+            @Override
+            public void saved(T entity) {
+                onSave.accept(entity);
+            }
+
+            @Override
+            public void deleted(long id) {
+                onDelete.accept(id);
+            }
+        };
+    }
+}
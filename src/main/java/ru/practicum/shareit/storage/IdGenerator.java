@@ -0,0 +1,37 @@
+package ru.practicum.shareit.storage;
+
+/**
+ * Источник идентификаторов для хранилищ в памяти. Идентификаторы только растут, поэтому порядок
+ * по идентификатору совпадает с порядком добавления.
+ */
+public interface IdGenerator {
+
+    long next();
+
+    /**
+     * Блок из {@code count} растущих идентификаторов, выданный одной операцией. Идентификаторы блока
+     * не обязательно идут подряд.
+     */
+    default long[] next(int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = next();
+        }
+        return ids;
+    }
+
+    /**
+     * Последний выданный идентификатор или 0, если выдач не было.
+     */
+    long last();
+
+    /**
+     * Следующие идентификаторы будут больше {@code id}. Вызывается при восстановлении хранилища
+     * и при замене генератора.
+     */
+    void advanceTo(long id);
+
+    static IdGenerator sequence() {
+        return new SequenceIdGenerator();
+    }
+}
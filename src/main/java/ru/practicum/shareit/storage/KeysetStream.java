@@ -0,0 +1,50 @@
+package ru.practicum.shareit.storage;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Ленивый поток записей, который дочитывает их из хранилища порциями по возрастанию ключа:
+ * каждая следующая порция запрашивается только после того, как предыдущая прочитана.
+ */
+public final class KeysetStream {
+
+    private KeysetStream() {
+    }
+
+    public static <T> Stream<T> of(LongFunction<List<T>> nextBatch, ToLongFunction<T> keyOf) {
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            private Iterator<T> batch = List.<T>of().iterator();
+            private long lastKey = 0;
+            private boolean exhausted;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                if (!batch.hasNext()) {
+                    if (exhausted) {
+                        return false;
+                    }
+                    List<T> next = nextBatch.apply(lastKey);
+                    if (next.isEmpty()) {
+                        exhausted = true;
+                        return false;
+                    }
+                    batch = next.iterator();
+                }
+                T element = batch.next();
+                lastKey = keyOf.applyAsLong(element);
+                action.accept(element);
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+}
@@ -0,0 +1,27 @@
+package ru.practicum.shareit.storage;
+
+import java.util.Collection;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище в памяти, которое сообщает о своих изменениях и умеет восстанавливаться из сохранённого
+ * состояния. На этом держатся журнал и снимки.
+ */
+public interface RestorableRepository<T> {
+
+    Stream<T> streamAll();
+
+    void setListener(ChangeListener<T> listener);
+
+    /**
+     * Заменяет генератор идентификаторов; новые идентификаторы будут больше уже выданных.
+     */
+    void setIdGenerator(IdGenerator idGenerator);
+
+    long lastId();
+
+    /**
+     * Заменяет содержимое хранилища восстановленными сущностями. Вызывается до начала работы.
+     */
+    void restore(Collection<T> restored, long lastId);
+}
@@ -0,0 +1,36 @@
+package ru.practicum.shareit.storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Последовательные идентификаторы с единицы в пределах одного процесса.
+ */
+class SequenceIdGenerator implements IdGenerator {
+
+    private final AtomicLong lastId = new AtomicLong();
+
+    @Override
+    public long next() {
+        return lastId.incrementAndGet();
+    }
+
+    @Override
+    public long[] next(int count) {
+        long first = lastId.getAndAdd(count) + 1;
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = first + i;
+        }
+        return ids;
+    }
+
+    @Override
+    public long last() {
+        return lastId.get();
+    }
+
+    @Override
+    public void advanceTo(long id) {
+        lastId.accumulateAndGet(id, Math::max);
+    }
+}
@@ -0,0 +1,26 @@
+package ru.practicum.shareit.storage;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Фиксированный набор блокировок, между которыми распределяются ключи.
+ * Операции над одним ключом сериализуются, над разными ключами — как правило, идут параллельно.
+ */
+public class StripedLock {
+
+    private final Lock[] locks;
+
+    public StripedLock(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public Lock get(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return locks[(int) (hash >>> 32) & (locks.length - 1)];
+    }
+}
@@ -0,0 +1,126 @@
+package ru.practicum.shareit.storage.compact;
+
+import java.util.Arrays;
+
+/**
+ * Отображение ключа в упорядоченный по возрастанию список long, например владельца в идентификаторы
+ * его вещей. Каждый список — массив с запасом; идентификаторы растут, поэтому добавление почти всегда
+ * дописывает в конец, а удаление сдвигает хвост. Пустые списки освобождаются, их ячейки переиспользуются.
+ * Не потокобезопасно.
+ */
+public class LongListMap {
+
+    private static final long[] EMPTY = new long[0];
+    private static final int MIN_LIST_CAPACITY = 4;
+
+    private final LongIntHashMap slots = new LongIntHashMap();
+    private long[][] lists = new long[16][];
+    private int[] sizes = new int[16];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int usedSlots;
+
+    public void add(long key, long value) {
+        int slot = slots.get(key);
+        if (slot == LongIntHashMap.MISSING) {
+            slot = allocateSlot();
+            slots.put(key, slot);
+        }
+        long[] list = lists[slot];
+        int size = sizes[slot];
+        int index = size == 0 || list[size - 1] < value ? size : Arrays.binarySearch(list, 0, size, value);
+        if (index >= 0 && index < size) {
+            return;
+        }
+        index = index < 0 ? -index - 1 : index;
+        if (size == list.length) {
+            list = Arrays.copyOf(list, list.length + (list.length >> 1));
+            lists[slot] = list;
+        }
+        System.arraycopy(list, index, list, index + 1, size - index);
+        list[index] = value;
+        sizes[slot] = size + 1;
+    }
+
+    public boolean remove(long key, long value) {
+        int slot = slots.get(key);
+        if (slot == LongIntHashMap.MISSING) {
+            return false;
+        }
+        long[] list = lists[slot];
+        int size = sizes[slot];
+        int index = Arrays.binarySearch(list, 0, size, value);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(list, index + 1, list, index, size - index - 1);
+        sizes[slot] = --size;
+        if (size == 0) {
+            slots.remove(key);
+            lists[slot] = null;
+            releaseSlot(slot);
+        } else if (size < list.length >> 2 && list.length > MIN_LIST_CAPACITY) {
+            lists[slot] = Arrays.copyOf(list, Math.max(MIN_LIST_CAPACITY, size << 1));
+        }
+        return true;
+    }
+
+    /**
+     * Копия части списка ключа: не больше {@code limit} значений, начиная с позиции {@code from}.
+     */
+    public long[] get(long key, int from, int limit) {
+        int slot = slots.get(key);
+        if (slot == LongIntHashMap.MISSING || from >= sizes[slot]) {
+            return EMPTY;
+        }
+        int to = (int) Math.min(sizes[slot], (long) from + limit);
+        return Arrays.copyOfRange(lists[slot], from, to);
+    }
+
+    public int size(long key) {
+        int slot = slots.get(key);
+        return slot == LongIntHashMap.MISSING ? 0 : sizes[slot];
+    }
+
+    public int keyCount() {
+        return slots.size();
+    }
+
+    public int maxSize() {
+        int max = 0;
+        for (int slot = 0; slot < usedSlots; slot++) {
+            max = Math.max(max, sizes[slot]);
+        }
+        return max;
+    }
+
+    public void clear() {
+        slots.clear();
+        Arrays.fill(lists, null);
+        Arrays.fill(sizes, 0);
+        freeCount = 0;
+        usedSlots = 0;
+    }
+
+    private int allocateSlot() {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            slot = usedSlots++;
+            if (slot == lists.length) {
+                lists = Arrays.copyOf(lists, slot << 1);
+                sizes = Arrays.copyOf(sizes, slot << 1);
+            }
+        }
+        lists[slot] = new long[MIN_LIST_CAPACITY];
+        return slot;
+    }
+
+    private void releaseSlot(int slot) {
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount << 1);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+}
@@ -0,0 +1,78 @@
+package ru.practicum.shareit.storage.compact;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Словарь строк со счётчиком ссылок: одинаковые строки хранятся в одном экземпляре, а записи
+ * ссылаются на них int-кодом. Код освобождается вместе с последней ссылкой и затем переиспользуется.
+ * {@code null} кодируется как {@link #NULL} и в словарь не попадает. Не потокобезопасен.
+ */
+public class StringDictionary {
+
+    public static final int NULL = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] strings = new String[16];
+    private int[] references = new int[16];
+    private int[] freeCodes = new int[16];
+    private int freeCount;
+    private int usedCodes;
+
+    public int encode(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = allocate(value);
+            codes.put(value, code);
+        }
+        references[code]++;
+        return code;
+    }
+
+    public String decode(int code) {
+        return code == NULL ? null : strings[code];
+    }
+
+    public void release(int code) {
+        if (code == NULL || --references[code] > 0) {
+            return;
+        }
+        codes.remove(strings[code]);
+        strings[code] = null;
+        if (freeCount == freeCodes.length) {
+            freeCodes = Arrays.copyOf(freeCodes, freeCount << 1);
+        }
+        freeCodes[freeCount++] = code;
+    }
+
+    public int size() {
+        return codes.size();
+    }
+
+    public void clear() {
+        codes.clear();
+        Arrays.fill(strings, null);
+        Arrays.fill(references, 0);
+        freeCount = 0;
+        usedCodes = 0;
+    }
+
+    private int allocate(String value) {
+        int code;
+        if (freeCount > 0) {
+            code = freeCodes[--freeCount];
+        } else {
+            code = usedCodes++;
+            if (code == strings.length) {
+                strings = Arrays.copyOf(strings, code << 1);
+                references = Arrays.copyOf(references, code << 1);
+            }
+        }
+        strings[code] = value;
+        return code;
+    }
+}
@@ -0,0 +1,253 @@
+package ru.practicum.shareit.storage.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал упреждающей записи из отображённых в память сегментов фиксированного размера.
+ * Запись — длина, CRC32 и тело; нулевая длина или неверная сумма означают конец сегмента.
+ * На диск данные сбрасывает отдельный поток: раз в {@code flushInterval} или по просьбе ожидающего
+ * писателя он вызывает {@code force()} и одним сбросом подтверждает все накопленные записи (group commit).
+ * Отображённые страницы принадлежат ядру, поэтому падение процесса записей не теряет даже без сброса.
+ */
+class Journal implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = Integer.BYTES * 2;
+
+    private final Path dir;
+    private final int segmentSize;
+    private final long flushIntervalMillis;
+    private final Object appendMonitor = new Object();
+    private final Object flushMonitor = new Object();
+    private final Thread flusher;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long segment;
+    private long appended;
+    private long forced;
+    private boolean flushRequested;
+    private volatile boolean closed;
+
+    Journal(Path dir, int segmentSize, Duration flushInterval) throws IOException {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.flushIntervalMillis = Math.max(1, flushInterval.toMillis());
+        Files.createDirectories(dir);
+        List<Path> segments = segments(dir);
+        segment = segments.isEmpty() ? 1 : segmentNumber(segments.get(segments.size() - 1)) + 1;
+        openSegment();
+        flusher = new Thread(this::flushLoop, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Передаёт записи всех сегментов с номером больше {@code afterSegment} в порядке их добавления.
+     */
+    static void replay(Path dir, long afterSegment, Consumer<ByteBuffer> consumer) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        CRC32 crc = new CRC32();
+        for (Path path : segments(dir)) {
+            if (segmentNumber(path) <= afterSegment) {
+                continue;
+            }
+            try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+                while (data.remaining() >= HEADER_SIZE) {
+                    int length = data.getInt();
+                    int checksum = data.getInt();
+                    if (length <= 0 || length > data.remaining()) {
+                        break;
+                    }
+                    ByteBuffer record = data.slice();
+                    record.limit(length);
+                    crc.reset();
+                    crc.update(record.duplicate());
+                    if ((int) crc.getValue() != checksum) {
+                        break;
+                    }
+                    consumer.accept(record);
+                    data.position(data.position() + length);
+                }
+            }
+        }
+    }
+
+    /**
+     * Добавляет запись в журнал, не дожидаясь сброса на диск.
+     *
+     * @return позиция конца записи для {@link #awaitForced(long)}
+     */
+    long append(byte[] record) {
+        if (HEADER_SIZE + record.length > segmentSize) {
+            throw new IllegalArgumentException("Запись журнала больше сегмента: " + record.length + " байт");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        synchronized (appendMonitor) {
+            if (closed) {
+                throw new IllegalStateException("Журнал закрыт");
+            }
+            if (buffer.remaining() < HEADER_SIZE + record.length) {
+                rotate();
+            }
+            buffer.putInt(record.length);
+            buffer.putInt((int) crc.getValue());
+            buffer.put(record);
+            appended += HEADER_SIZE + record.length;
+            return appended;
+        }
+    }
+
+    /**
+     * Ждёт, пока записи до указанной позиции не будут сброшены на диск. Ожидающие одновременно
+     * писатели подтверждаются одним сбросом.
+     */
+    void awaitForced(long position) {
+        synchronized (flushMonitor) {
+            flushRequested = true;
+            flushMonitor.notifyAll();
+            while (forced < position && !closed) {
+                try {
+                    flushMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Прервано ожидание записи журнала на диск", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Закрывает текущий сегмент и начинает новый.
+     *
+     * @return номер закрытого сегмента: все записи, добавленные до вызова, лежат в сегментах не старше него
+     */
+    long rotate() {
+        synchronized (appendMonitor) {
+            long closedSegment = segment;
+            buffer.force();
+            synchronized (flushMonitor) {
+                forced = appended;
+                flushMonitor.notifyAll();
+            }
+            try {
+                channel.close();
+                segment++;
+                openSegment();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return closedSegment;
+        }
+    }
+
+    void deleteSegmentsUpTo(long lastSegment) throws IOException {
+        for (Path path : segments(dir)) {
+            if (segmentNumber(path) <= lastSegment) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (appendMonitor) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        synchronized (flushMonitor) {
+            flushMonitor.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (appendMonitor) {
+            buffer.force();
+            channel.close();
+        }
+    }
+
+    private void flushLoop() {
+        while (!closed) {
+            synchronized (flushMonitor) {
+                if (!flushRequested) {
+                    try {
+                        flushMonitor.wait(flushIntervalMillis);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                flushRequested = false;
+            }
+            flush();
+        }
+        flush();
+    }
+
+    private void flush() {
+        MappedByteBuffer current;
+        long position;
+        synchronized (appendMonitor) {
+            current = buffer;
+            position = appended;
+        }
+        synchronized (flushMonitor) {
+            if (position <= forced) {
+                flushMonitor.notifyAll();
+                return;
+            }
+        }
+        current.force();
+        synchronized (flushMonitor) {
+            forced = Math.max(forced, position);
+            flushMonitor.notifyAll();
+        }
+    }
+
+    private void openSegment() throws IOException {
+        Path path = dir.resolve(SEGMENT_PREFIX + segment + SEGMENT_SUFFIX);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+
+    private static List<Path> segments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,133 @@
+package ru.practicum.shareit.storage.journal;
+
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.user.model.User;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * Двоичное представление записей журнала и снимка. Каждая запись начинается с байта типа;
+ * сохранение несёт полное состояние сущности, удаление — только идентификатор.
+ */
+final class JournalCodec {
+
+    static final byte USER_SAVED = 1;
+    static final byte USER_DELETED = 2;
+    static final byte ITEM_SAVED = 3;
+    static final byte ITEM_DELETED = 4;
+    static final byte REQUEST_SAVED = 5;
+    static final byte REQUEST_DELETED = 6;
+
+    private static final long NO_ID = 0;
+
+    private JournalCodec() {
+    }
+
+    static byte[] userSaved(User user) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(USER_SAVED);
+            out.writeLong(user.getId());
+            writeString(out, user.getName());
+            writeString(out, user.getEmail());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static byte[] itemSaved(Item item) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(ITEM_SAVED);
+            out.writeLong(item.getId());
+            writeString(out, item.getName());
+            writeString(out, item.getDescription());
+            out.writeByte(item.getAvailable() == null ? -1 : item.getAvailable() ? 1 : 0);
+            out.writeLong(item.getOwner() != null ? item.getOwner().getId() : NO_ID);
+            out.writeLong(item.getRequest() != null ? item.getRequest().getId() : NO_ID);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static byte[] requestSaved(ItemRequest request) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(REQUEST_SAVED);
+            out.writeLong(request.getId());
+            writeString(out, request.getDescription());
+            out.writeLong(request.getRequester());
+            writeString(out, request.getCreated() == null ? null : request.getCreated().toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static byte[] deleted(byte type, long id) {
+        return ByteBuffer.allocate(1 + Long.BYTES).put(type).putLong(id).array();
+    }
+
+    static User readUser(ByteBuffer in) {
+        return new User(in.getLong(), readString(in), readString(in));
+    }
+
+    static Item readItem(ByteBuffer in) {
+        Item item = new Item();
+        item.setId(in.getLong());
+        item.setName(readString(in));
+        item.setDescription(readString(in));
+        byte available = in.get();
+        item.setAvailable(available < 0 ? null : available == 1);
+        long ownerId = in.getLong();
+        if (ownerId != NO_ID) {
+            item.setOwner(new User(ownerId, null, null));
+        }
+        long requestId = in.getLong();
+        if (requestId != NO_ID) {
+            ItemRequest request = new ItemRequest();
+            request.setId(requestId);
+            item.setRequest(request);
+        }
+        return item;
+    }
+
+    static ItemRequest readRequest(ByteBuffer in) {
+        ItemRequest request = new ItemRequest();
+        request.setId(in.getLong());
+        request.setDescription(readString(in));
+        request.setRequester(in.getLong());
+        String created = readString(in);
+        request.setCreated(created == null ? null : LocalDateTime.parse(created));
+        return request;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
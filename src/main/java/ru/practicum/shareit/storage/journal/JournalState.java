@@ -0,0 +1,56 @@
+package ru.practicum.shareit.storage.journal;
+
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.user.model.User;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Состояние, собираемое при восстановлении: снимок, поверх которого по порядку применяются записи журнала.
+ * Записи несут полное состояние сущности, поэтому повторное применение уже учтённой в снимке записи безопасно.
+ */
+final class JournalState {
+
+    final Map<Long, User> users = new HashMap<>();
+    final Map<Long, Item> items = new HashMap<>();
+    final Map<Long, ItemRequest> requests = new HashMap<>();
+    long lastUserId;
+    long lastItemId;
+    long lastRequestId;
+    long segment;
+
+    void apply(ByteBuffer record) {
+        byte type = record.get();
+        switch (type) {
+            case JournalCodec.USER_SAVED:
+                User user = JournalCodec.readUser(record);
+                users.put(user.getId(), user);
+                lastUserId = Math.max(lastUserId, user.getId());
+                break;
+            case JournalCodec.USER_DELETED:
+                users.remove(record.getLong());
+                break;
+            case JournalCodec.ITEM_SAVED:
+                Item item = JournalCodec.readItem(record);
+                items.put(item.getId(), item);
+                lastItemId = Math.max(lastItemId, item.getId());
+                break;
+            case JournalCodec.ITEM_DELETED:
+                items.remove(record.getLong());
+                break;
+            case JournalCodec.REQUEST_SAVED:
+                ItemRequest request = JournalCodec.readRequest(record);
+                requests.put(request.getId(), request);
+                lastRequestId = Math.max(lastRequestId, request.getId());
+                break;
+            case JournalCodec.REQUEST_DELETED:
+                requests.remove(record.getLong());
+                break;
+            default:
+                throw new IllegalStateException("Неизвестный тип записи журнала: " + type);
+        }
+    }
+}
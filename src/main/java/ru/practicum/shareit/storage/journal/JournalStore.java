@@ -0,0 +1,169 @@
+package ru.practicum.shareit.storage.journal;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.storage.ChangeListener;
+import ru.practicum.shareit.storage.RestorableRepository;
+import ru.practicum.shareit.user.model.User;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Режим долговечности для хранилищ в памяти. При старте восстанавливает пользователей, запросы и вещи
+ * из снимка и журнала, затем записывает в журнал каждое изменение и периодически сворачивает
+ * журнал в новый снимок. Никто не зависит от него явно, поэтому он создаётся сразу и при ленивой
+ * инициализации бинов: иначе хранилища начали бы работу, не восстановившись.
+ */
+@Component
+@Lazy(false)
+@ConditionalOnProperty(name = "shareit.storage.journal.enabled", havingValue = "true")
+@Slf4j
+public class JournalStore {
+
+    private final RestorableRepository<User> userRepository;
+    private final RestorableRepository<Item> itemRepository;
+    private final RestorableRepository<ItemRequest> itemRequestRepository;
+    private final Path dir;
+    private final int segmentSize;
+    private final Duration flushInterval;
+    private final boolean syncCommit;
+    private final Duration compactInterval;
+
+    private final ThreadLocal<long[]> pendingPosition = ThreadLocal.withInitial(() -> new long[1]);
+
+    private Journal journal;
+    private ScheduledExecutorService compactor;
+
+    public JournalStore(RestorableRepository<User> userRepository,
+                        RestorableRepository<Item> itemRepository,
+                        RestorableRepository<ItemRequest> itemRequestRepository,
+                        @Value("${shareit.storage.journal.dir:data}") Path dir,
+                        @Value("${shareit.storage.journal.segment-size:64MB}") DataSize segmentSize,
+                        @Value("${shareit.storage.journal.flush-interval:10ms}") Duration flushInterval,
+                        @Value("${shareit.storage.journal.sync-commit:true}") boolean syncCommit,
+                        @Value("${shareit.storage.journal.compact-interval:10m}") Duration compactInterval) {
+        this.userRepository = userRepository;
+        this.itemRepository = itemRepository;
+        this.itemRequestRepository = itemRequestRepository;
+        this.dir = dir;
+        this.segmentSize = Math.toIntExact(segmentSize.toBytes());
+        this.flushInterval = flushInterval;
+        this.syncCommit = syncCommit;
+        this.compactInterval = compactInterval;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        long started = System.nanoTime();
+        JournalState state = Snapshot.read(dir);
+        Journal.replay(dir, state.segment, state::apply);
+        userRepository.restore(state.users.values(), state.lastUserId);
+        itemRequestRepository.restore(state.requests.values(), state.lastRequestId);
+        itemRepository.restore(state.items.values(), state.lastItemId);
+        log.info("Из {} восстановлено {} пользователей, {} запросов и {} вещей за {} мс", dir.toAbsolutePath(),
+                state.users.size(), state.requests.size(), state.items.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        journal = new Journal(dir, segmentSize, flushInterval);
+        userRepository.setListener(new JournalListener<>(JournalCodec::userSaved, JournalCodec.USER_DELETED));
+        itemRepository.setListener(new JournalListener<>(JournalCodec::itemSaved, JournalCodec.ITEM_DELETED));
+        itemRequestRepository.setListener(
+                new JournalListener<>(JournalCodec::requestSaved, JournalCodec.REQUEST_DELETED));
+
+        compactor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = compactInterval.toMillis();
+        compactor.scheduleWithFixedDelay(this::compactQuietly, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Записывает снимок текущего состояния и удаляет учтённые в нём сегменты журнала.
+     * Изменения, идущие во время снимка, попадают в новый сегмент и при восстановлении
+     * применяются поверх снимка.
+     */
+    public synchronized void compact() throws IOException {
+        long started = System.nanoTime();
+        JournalState header = new JournalState();
+        header.segment = journal.rotate();
+        header.lastUserId = userRepository.lastId();
+        header.lastItemId = itemRepository.lastId();
+        header.lastRequestId = itemRequestRepository.lastId();
+        Snapshot.write(dir, header, userRepository.streamAll(), itemRequestRepository.streamAll(),
+                itemRepository.streamAll());
+        journal.deleteSegmentsUpTo(header.segment);
+        log.info("Журнал свёрнут в снимок за {} мс", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            compact();
+        } finally {
+            userRepository.setListener(ChangeListener.none());
+            itemRepository.setListener(ChangeListener.none());
+            itemRequestRepository.setListener(ChangeListener.none());
+            journal.close();
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException | RuntimeException e) {
+            log.error("Не удалось свернуть журнал в снимок", e);
+        }
+    }
+
+    private final class JournalListener<T> implements ChangeListener<T> {
+
+        private final Function<T, byte[]> encoder;
+        private final byte deletedType;
+
+        private JournalListener(Function<T, byte[]> encoder, byte deletedType) {
+            this.encoder = encoder;
+            this.deletedType = deletedType;
+        }
+
+        @Override
+        public void saved(T entity) {
+            pendingPosition.get()[0] = journal.append(encoder.apply(entity));
+        }
+
+        @Override
+        public void deleted(long id) {
+            pendingPosition.get()[0] = journal.append(JournalCodec.deleted(deletedType, id));
+        }
+
+        @Override
+        public void committed() {
+            long[] position = pendingPosition.get();
+            if (syncCommit && position[0] > 0) {
+                journal.awaitForced(position[0]);
+            }
+            position[0] = 0;
+        }
+    }
+}
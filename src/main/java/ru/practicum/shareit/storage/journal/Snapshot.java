@@ -0,0 +1,99 @@
+package ru.practicum.shareit.storage.journal;
+
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.user.model.User;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Двоичный снимок хранилища: заголовок с номером последнего учтённого сегмента журнала и счётчиками
+ * идентификаторов, затем записи сохранения пользователей, запросов и вещей в формате журнала и CRC32 всего файла. Файл пишется рядом
+ * и подменяет старый атомарным переименованием, так что на диске всегда лежит целый снимок.
+ */
+final class Snapshot {
+
+    private static final String FILE_NAME = "snapshot.bin";
+    private static final int MAGIC = 0x53484954;
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private Snapshot() {
+    }
+
+    /**
+     * @param header номер сегмента и счётчики идентификаторов; коллекции в нём не используются
+     */
+    static void write(Path dir, JournalState header, Stream<User> users, Stream<ItemRequest> requests,
+                      Stream<Item> items) throws IOException {
+        Path tmp = dir.resolve(FILE_NAME + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(tmp.toFile())) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, BUFFER_SIZE),
+                    new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(header.segment);
+            out.writeLong(header.lastUserId);
+            out.writeLong(header.lastItemId);
+            out.writeLong(header.lastRequestId);
+            for (Iterator<User> it = users.iterator(); it.hasNext(); ) {
+                writeRecord(out, JournalCodec.userSaved(it.next()));
+            }
+            for (Iterator<ItemRequest> it = requests.iterator(); it.hasNext(); ) {
+                writeRecord(out, JournalCodec.requestSaved(it.next()));
+            }
+            for (Iterator<Item> it = items.iterator(); it.hasNext(); ) {
+                writeRecord(out, JournalCodec.itemSaved(it.next()));
+            }
+            out.writeInt(0);
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(tmp, dir.resolve(FILE_NAME), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static JournalState read(Path dir) throws IOException {
+        JournalState state = new JournalState();
+        Path path = dir.resolve(FILE_NAME);
+        if (!Files.exists(path)) {
+            return state;
+        }
+        CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE), new CRC32());
+        try (DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Неизвестный формат снимка " + path);
+            }
+            state.segment = in.readLong();
+            state.lastUserId = in.readLong();
+            state.lastItemId = in.readLong();
+            state.lastRequestId = in.readLong();
+            for (int length = in.readInt(); length > 0; length = in.readInt()) {
+                byte[] record = new byte[length];
+                in.readFully(record);
+                state.apply(ByteBuffer.wrap(record));
+            }
+            long checksum = checked.getChecksum().getValue();
+            if (in.readLong() != checksum) {
+                throw new IOException("Снимок повреждён: " + path);
+            }
+        }
+        return state;
+    }
+
+    private static void writeRecord(DataOutputStream out, byte[] record) throws IOException {
+        out.writeInt(record.length);
+        out.write(record);
+    }
+}
@@ -0,0 +1,91 @@
+package ru.practicum.shareit.storage.writebehind;
+
+import ru.practicum.shareit.storage.ChangeListener;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Изменения одного хранилища, ещё не записанные в базу. Изменения одной сущности сливаются: в очереди
+ * остаётся только последнее состояние или удаление, а время постановки — самое раннее, чтобы задержка
+ * записи считалась от первого незаписанного изменения.
+ */
+final class PendingChanges<T> implements ChangeListener<T> {
+
+    private final Map<Long, Change<T>> changes = new ConcurrentHashMap<>();
+    private final ToLongFunction<T> idOf;
+    private final Runnable onChange;
+
+    PendingChanges(ToLongFunction<T> idOf, Runnable onChange) {
+        this.idOf = idOf;
+        this.onChange = onChange;
+    }
+
+    @Override
+    public void saved(T entity) {
+        put(idOf.applyAsLong(entity), entity);
+    }
+
+    @Override
+    public void deleted(long id) {
+        put(id, null);
+    }
+
+    int size() {
+        return changes.size();
+    }
+
+    /**
+     * Забирает накопленные изменения. Изменения, пришедшие во время обхода, попадают либо в этот
+     * список, либо в следующий.
+     */
+    List<Change<T>> drain() {
+        List<Change<T>> drained = new ArrayList<>(changes.size());
+        for (Iterator<Long> ids = changes.keySet().iterator(); ids.hasNext(); ) {
+            Change<T> change = changes.remove(ids.next());
+            if (change != null) {
+                drained.add(change);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Возвращает в очередь изменения, которые не удалось записать. Если сущность успела измениться ещё раз,
+     * остаётся новое состояние.
+     */
+    void requeue(List<Change<T>> failed) {
+        for (Change<T> change : failed) {
+            changes.merge(change.id, change, (newer, old) -> newer.since(old.queuedAt));
+        }
+    }
+
+    private void put(long id, T entity) {
+        Change<T> change = new Change<>(id, entity, System.nanoTime());
+        changes.merge(id, change, (old, newer) -> newer.since(old.queuedAt));
+        onChange.run();
+    }
+
+    static final class Change<T> {
+        final long id;
+        /**
+         * Новое состояние сущности или {@code null}, если сущность удалена.
+         */
+        final T entity;
+        final long queuedAt;
+
+        private Change(long id, T entity, long queuedAt) {
+            this.id = id;
+            this.entity = entity;
+            this.queuedAt = queuedAt;
+        }
+
+        private Change<T> since(long earlier) {
+            return earlier < queuedAt ? new Change<>(id, entity, earlier) : this;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ru.practicum.shareit.storage.writebehind;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Запись сущностей одного вида в свою таблицу. Вставка-или-обновление сделана пакетом {@code UPDATE}
+ * и пакетом {@code INSERT} для строк, которых не оказалось в таблице: так одинаково работают PostgreSQL и H2.
+ */
+final class Table<T> {
+
+    private final String name;
+    private final Function<T, Object[]> values;
+    private final RowMapper<T> rowMapper;
+    private final String select;
+    private final String insert;
+    private final String update;
+    private final String delete;
+
+    /**
+     * @param columns столбцы таблицы, первый — {@code id}
+     * @param values  значения столбцов сущности в том же порядке
+     */
+    Table(String name, List<String> columns, Function<T, Object[]> values, RowMapper<T> rowMapper) {
+        this.name = name;
+        this.values = values;
+        this.rowMapper = rowMapper;
+        List<String> updated = columns.subList(1, columns.size());
+        this.select = "SELECT " + String.join(", ", columns) + " FROM " + name;
+        this.insert = "INSERT INTO " + name + " (" + String.join(", ", columns) + ") VALUES ("
+                + columns.stream().map(column -> "?").collect(Collectors.joining(", ")) + ")";
+        this.update = "UPDATE " + name + " SET "
+                + updated.stream().map(column -> column + " = ?").collect(Collectors.joining(", "))
+                + " WHERE id = ?";
+        this.delete = "DELETE FROM " + name + " WHERE id = ?";
+    }
+
+    String name() {
+        return name;
+    }
+
+    List<T> loadAll(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.query(select, rowMapper);
+    }
+
+    void upsert(JdbcTemplate jdbcTemplate, List<T> entities, int batchSize) {
+        for (int from = 0; from < entities.size(); from += batchSize) {
+            List<T> batch = entities.subList(from, Math.min(from + batchSize, entities.size()));
+            List<Object[]> rows = batch.stream().map(values).collect(Collectors.toList());
+            int[] counts = jdbcTemplate.batchUpdate(update, rows.stream()
+                    .map(Table::idLast)
+                    .collect(Collectors.toList()));
+            List<Object[]> missing = new ArrayList<>();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    missing.add(rows.get(i));
+                }
+            }
+            if (!missing.isEmpty()) {
+                jdbcTemplate.batchUpdate(insert, missing);
+            }
+        }
+    }
+
+    void delete(JdbcTemplate jdbcTemplate, List<Long> ids, int batchSize) {
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            jdbcTemplate.batchUpdate(delete, ids.subList(from, Math.min(from + batchSize, ids.size())).stream()
+                    .map(id -> new Object[]{id})
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    private static Object[] idLast(Object[] row) {
+        Object[] result = Arrays.copyOfRange(row, 1, row.length + 1);
+        result[row.length - 1] = row[0];
+        return result;
+    }
+}
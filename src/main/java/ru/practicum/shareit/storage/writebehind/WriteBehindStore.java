@@ -0,0 +1,372 @@
+package ru.practicum.shareit.storage.writebehind;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.storage.ChangeListener;
+import ru.practicum.shareit.storage.RestorableRepository;
+import ru.practicum.shareit.user.model.User;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Отложенная запись хранилищ в памяти в базу данных. Изменения сразу видны в памяти, а в базу уходят
+ * пакетами: когда накопится {@code batch-size} изменений или пройдёт {@code flush-interval}. Изменения
+ * одной сущности между сбросами сливаются в одно. При старте хранилища заполняются из базы, и новые
+ * идентификаторы продолжаются от наибольшего сохранённого.
+ * <p>
+ * Сброс записывает всё накопленное в одной транзакции. Если база недоступна, изменения остаются
+ * в очереди и сброс повторяется с растущей паузой. Если база отвергла пакет из-за ограничений целостности,
+ * изменения записываются по одному. Отвергнутое изменение повторяется один раз после остальных — оно могло
+ * зависеть от изменения, записанного позже, например от освобождения адреса почты другим пользователем, — и
+ * только отвергнутое повторно отбрасывается с ошибкой в журнале.
+ * Изменения, не записанные к остановке процесса, теряются.
+ */
+@Component
+@Lazy(false)
+@ConditionalOnProperty(name = "shareit.storage.write-behind.enabled", havingValue = "true")
+@Slf4j
+public class WriteBehindStore {
+
+    private static final Table<User> USERS = new Table<>("users", List.of("id", "name", "email", "version"),
+            user -> new Object[]{user.getId(), user.getName(), user.getEmail(), user.getVersion()},
+            (rs, row) -> {
+                User user = new User(rs.getLong("id"), rs.getString("name"), rs.getString("email"));
+                user.setVersion(rs.getLong("version"));
+                return user;
+            });
+
+    private static final Table<ItemRequest> REQUESTS = new Table<>("requests",
+            List.of("id", "description", "requester_id", "created"),
+            request -> new Object[]{request.getId(), request.getDescription(), request.getRequester(),
+                    request.getCreated() == null ? null : Timestamp.valueOf(request.getCreated())},
+            (rs, row) -> new ItemRequest(rs.getLong("id"), rs.getString("description"), rs.getLong("requester_id"),
+                    rs.getObject("created", LocalDateTime.class)));
+
+    private static final Table<Item> ITEMS = new Table<>("items",
+            List.of("id", "name", "description", "is_available", "owner_id", "request_id", "version"),
+            item -> new Object[]{item.getId(), item.getName(), item.getDescription(), item.getAvailable(),
+                    item.getOwner() == null ? null : item.getOwner().getId(),
+                    item.getRequest() == null ? null : item.getRequest().getId(), item.getVersion()},
+            (rs, row) -> {
+                Item item = new Item(rs.getLong("id"), rs.getString("name"), rs.getString("description"),
+                        rs.getBoolean("is_available"), new User(rs.getLong("owner_id"), null, null), null);
+                long requestId = rs.getLong("request_id");
+                if (!rs.wasNull()) {
+                    ItemRequest request = new ItemRequest();
+                    request.setId(requestId);
+                    item.setRequest(request);
+                }
+                item.setVersion(rs.getLong("version"));
+                return item;
+            });
+
+    private final RestorableRepository<User> userRepository;
+    private final RestorableRepository<Item> itemRepository;
+    private final RestorableRepository<ItemRequest> itemRequestRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration maxRetryDelay;
+
+    private final PendingChanges<User> pendingUsers = new PendingChanges<>(User::getId, this::changed);
+    private final PendingChanges<ItemRequest> pendingRequests =
+            new PendingChanges<>(ItemRequest::getId, this::changed);
+    private final PendingChanges<Item> pendingItems = new PendingChanges<>(Item::getId, this::changed);
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final Timer lag;
+    private final Counter written;
+    private final Counter retries;
+    private final Counter dropped;
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile long lastFlushed = System.nanoTime();
+    private int failuresInRow;
+    private long retryAt;
+
+    public WriteBehindStore(RestorableRepository<User> userRepository,
+                            RestorableRepository<Item> itemRepository,
+                            RestorableRepository<ItemRequest> itemRequestRepository,
+                            JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry registry,
+                            @Value("${shareit.storage.write-behind.batch-size:500}") int batchSize,
+                            @Value("${shareit.storage.write-behind.flush-interval:200ms}") Duration flushInterval,
+                            @Value("${shareit.storage.write-behind.max-retry-delay:30s}") Duration maxRetryDelay,
+                            @Value("${shareit.storage.journal.enabled:false}") boolean journalEnabled) {
+        if (journalEnabled) {
+            throw new IllegalStateException("Журнал и отложенная запись в базу не включаются одновременно");
+        }
+        this.userRepository = userRepository;
+        this.itemRepository = itemRepository;
+        this.itemRequestRepository = itemRequestRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.maxRetryDelay = maxRetryDelay;
+
+        this.lag = Timer.builder("shareit.storage.write-behind.lag")
+                .description("Время от изменения в памяти до его записи в базу")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.written = Counter.builder("shareit.storage.write-behind.written")
+                .description("Количество изменений, записанных в базу")
+                .register(registry);
+        this.retries = Counter.builder("shareit.storage.write-behind.retries")
+                .description("Количество неудачных сбросов, отложенных для повтора")
+                .register(registry);
+        this.dropped = Counter.builder("shareit.storage.write-behind.dropped")
+                .description("Количество изменений, отвергнутых базой")
+                .register(registry);
+        queueGauge(registry, USERS, pendingUsers);
+        queueGauge(registry, REQUESTS, pendingRequests);
+        queueGauge(registry, ITEMS, pendingItems);
+        Gauge.builder("shareit.storage.write-behind.unflushed.age", this, WriteBehindStore::unflushedSeconds)
+                .description("Сколько секунд в очереди лежат незаписанные изменения")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        long started = System.nanoTime();
+        List<User> users = USERS.loadAll(jdbcTemplate);
+        List<ItemRequest> requests = REQUESTS.loadAll(jdbcTemplate);
+        List<Item> items = ITEMS.loadAll(jdbcTemplate);
+        userRepository.restore(users, users.stream().mapToLong(User::getId).max().orElse(0));
+        itemRequestRepository.restore(requests, requests.stream().mapToLong(ItemRequest::getId).max().orElse(0));
+        itemRepository.restore(items, items.stream().mapToLong(Item::getId).max().orElse(0));
+        log.info("Из базы загружено {} пользователей, {} запросов и {} вещей за {} мс", users.size(),
+                requests.size(), items.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        userRepository.setListener(pendingUsers);
+        itemRequestRepository.setListener(pendingRequests);
+        itemRepository.setListener(pendingItems);
+        long period = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Записывает в базу всё накопленное. Вещи забираются из очереди раньше запросов и пользователей:
+     * тогда владелец и запрос каждой забранной вещи уже забраны этим или прошлым сбросом, и внешние ключи
+     * не нарушаются.
+     *
+     * @throws DataAccessException если записать не удалось; изменения возвращены в очередь
+     */
+    public synchronized void flush() {
+        List<PendingChanges.Change<Item>> items = pendingItems.drain();
+        List<PendingChanges.Change<ItemRequest>> requests = pendingRequests.drain();
+        List<PendingChanges.Change<User>> users = pendingUsers.drain();
+        int total = items.size() + requests.size() + users.size();
+        if (total == 0) {
+            lastFlushed = System.nanoTime();
+            return;
+        }
+        try {
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(users, requests, items));
+                recordWritten(users, requests, items);
+            } catch (DataIntegrityViolationException e) {
+                log.warn("База отвергла пакет из {} изменений, изменения записываются по одному: {}", total,
+                        e.getMostSpecificCause().getMessage());
+                writeOneByOne(users, requests, items);
+            }
+        } catch (RuntimeException e) {
+            // уже записанные изменения запишутся повторно, это безопасно
+            pendingItems.requeue(items);
+            pendingRequests.requeue(requests);
+            pendingUsers.requeue(users);
+            throw e;
+        }
+        lastFlushed = System.nanoTime();
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("При остановке не записаны в базу {} изменений", pendingCount(), e);
+        } finally {
+            userRepository.setListener(ChangeListener.none());
+            itemRequestRepository.setListener(ChangeListener.none());
+            itemRepository.setListener(ChangeListener.none());
+        }
+    }
+
+    int pendingCount() {
+        return pendingUsers.size() + pendingRequests.size() + pendingItems.size();
+    }
+
+    private void changed() {
+        if (pendingCount() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        flushRequested.set(false);
+        if (failuresInRow > 0 && System.nanoTime() - retryAt < 0) {
+            return;
+        }
+        try {
+            flush();
+            failuresInRow = 0;
+        } catch (RuntimeException e) {
+            retries.increment();
+            failuresInRow++;
+            long delay = Math.min(maxRetryDelay.toNanos(),
+                    flushInterval.toNanos() << Math.min(failuresInRow, 20));
+            retryAt = System.nanoTime() + delay;
+            log.error("Не удалось записать в базу {} изменений, повтор через {} мс", pendingCount(),
+                    TimeUnit.NANOSECONDS.toMillis(delay), e);
+        }
+    }
+
+    /**
+     * Сначала удаляются вещи, запросы и пользователи, затем создаются и обновляются пользователи, запросы
+     * и вещи — в порядке внешних ключей. Удаления идут первыми, чтобы новый пользователь мог занять адрес
+     * почты удалённого в том же пакете.
+     */
+    private void write(List<PendingChanges.Change<User>> users, List<PendingChanges.Change<ItemRequest>> requests,
+                       List<PendingChanges.Change<Item>> items) {
+        ITEMS.delete(jdbcTemplate, deleted(items), batchSize);
+        REQUESTS.delete(jdbcTemplate, deleted(requests), batchSize);
+        USERS.delete(jdbcTemplate, deleted(users), batchSize);
+        USERS.upsert(jdbcTemplate, saved(users), batchSize);
+        REQUESTS.upsert(jdbcTemplate, saved(requests), batchSize);
+        ITEMS.upsert(jdbcTemplate, saved(items), batchSize);
+    }
+
+    /**
+     * Записывает изменения в том же порядке, что и {@link #write}: сначала все удаления, затем остальное.
+     * Отвергнутые изменения повторяются в том же порядке после всех остальных.
+     */
+    private void writeOneByOne(List<PendingChanges.Change<User>> users,
+                               List<PendingChanges.Change<ItemRequest>> requests,
+                               List<PendingChanges.Change<Item>> items) {
+        List<Runnable> retries = new ArrayList<>();
+        writeEach(ITEMS, items, true, retries, item -> write(List.of(), List.of(), List.of(item)));
+        writeEach(REQUESTS, requests, true, retries, request -> write(List.of(), List.of(request), List.of()));
+        writeEach(USERS, users, true, retries, user -> write(List.of(user), List.of(), List.of()));
+        writeEach(USERS, users, false, retries, user -> write(List.of(user), List.of(), List.of()));
+        writeEach(REQUESTS, requests, false, retries, request -> write(List.of(), List.of(request), List.of()));
+        writeEach(ITEMS, items, false, retries, item -> write(List.of(), List.of(), List.of(item)));
+        retries.forEach(Runnable::run);
+    }
+
+    private <T> void writeEach(Table<T> table, List<PendingChanges.Change<T>> changes, boolean deletes,
+                               List<Runnable> retries, Consumer<PendingChanges.Change<T>> write) {
+        for (PendingChanges.Change<T> change : changes) {
+            if ((change.entity == null) == deletes) {
+                Runnable writeChange = () -> write.accept(change);
+                if (!writeOne(table, change, writeChange, false)) {
+                    retries.add(() -> writeOne(table, change, writeChange, true));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param last отбросить изменение, если база его отвергнет
+     * @return записано ли изменение
+     */
+    private boolean writeOne(Table<?> table, PendingChanges.Change<?> change, Runnable write, boolean last) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> write.run());
+            recordWritten(List.of(change));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            if (last) {
+                dropped.increment();
+                log.error("База отвергла изменение {} с id {}: {}", table.name(), change.id,
+                        e.getMostSpecificCause().getMessage());
+            } else {
+                log.debug("База отвергла изменение {} с id {}, оно будет повторено после остальных: {}",
+                        table.name(), change.id, e.getMostSpecificCause().getMessage());
+            }
+            return false;
+        }
+    }
+
+    @SafeVarargs
+    private void recordWritten(List<? extends PendingChanges.Change<?>>... changes) {
+        long now = System.nanoTime();
+        Arrays.stream(changes).flatMap(List::stream).forEach(change -> {
+            lag.record(now - change.queuedAt, TimeUnit.NANOSECONDS);
+            written.increment();
+        });
+    }
+
+    private double unflushedSeconds() {
+        return pendingCount() == 0 ? 0 : (System.nanoTime() - lastFlushed) / 1e9;
+    }
+
+    private static <T> List<T> saved(List<PendingChanges.Change<T>> changes) {
+        List<T> result = new ArrayList<>();
+        for (PendingChanges.Change<T> change : changes) {
+            if (change.entity != null) {
+                result.add(change.entity);
+            }
+        }
+        return result;
+    }
+
+    private static <T> List<Long> deleted(List<PendingChanges.Change<T>> changes) {
+        return changes.stream()
+                .filter(change -> change.entity == null)
+                .map(change -> change.id)
+                .collect(Collectors.toList());
+    }
+
+    private static void queueGauge(MeterRegistry registry, Table<?> table, PendingChanges<?> pending) {
+        Gauge.builder("shareit.storage.write-behind.queue", pending, PendingChanges::size)
+                .description("Количество изменений, ожидающих записи в базу")
+                .tag("table", table.name())
+                .register(registry);
+    }
+}
@@ -2,62 +2,87 @@ package ru.practicum.shareit.user.controller;
 
 
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.service.UserService;
 import ru.practicum.shareit.validation.valid.OnCreate;
 import ru.practicum.shareit.validation.valid.OnUpdate;
+import ru.practicum.shareit.web.BatchReader;
+import ru.practicum.shareit.web.EntityTags;
+import ru.practicum.shareit.web.NdjsonWriter;
 
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 
 @RestController
 @RequestMapping(path = "/users")
-@Slf4j
+@Validated
 @RequiredArgsConstructor
 public class UserController {
 
+    private static final String ALL = "" + Integer.MAX_VALUE;
+
     private final UserService userService;
 
+    private final NdjsonWriter ndjsonWriter;
+
+    private final BatchReader batchReader;
+
+    private final EntityTags entityTags;
+
     @PostMapping
     public UserDto create(@Validated(OnCreate.class) @RequestBody UserDto userDto) {
-        log.info("Создание пользователя: {}", userDto);
-        UserDto createdUser = userService.create(userDto);
-        log.info("Пользователь создан: {}", createdUser);
-        return createdUser;
+        return userService.create(userDto);
+    }
+
+    @PostMapping(path = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public List<UserDto> createAll(InputStream body) throws IOException {
+        List<UserDto> users = batchReader.read(body, UserDto.class, OnCreate.class);
+        return userService.createAll(users);
     }
 
     @GetMapping
-    public List<UserDto> getAll() {
-        log.info("Получение списка пользователей");
-        List<UserDto> usersDto = userService.getAll();
-        log.info("Получено {} пользователей", usersDto.size());
-        return usersDto;
+    public List<UserDto> getAll(@RequestParam(defaultValue = "0") @PositiveOrZero int from,
+                                @RequestParam(defaultValue = ALL) @Positive int size) {
+        return userService.getAll(from, size);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return ndjsonWriter.write(userService.streamAll());
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export() {
+        return ndjsonWriter.write(userService.streamAll());
     }
 
     @GetMapping("/{userId}")
-    public UserDto get(@PathVariable Long userId) {
-        log.info("Получение пользователя с идентификатором: {}", userId);
-        UserDto userDto = userService.getById(userId);
-        log.info("Пользователь с идентификатором {} получен", userId);
-        return userDto;
+    public UserDto get(@PathVariable Long userId, WebRequest request) {
+        UserDto user = userService.getById(userId);
+        if (request.checkNotModified(entityTags.of(user.getVersion()))) {
+            return null;
+        }
+        return user;
     }
 
     @PatchMapping("/{userId}")
     public UserDto update(@PathVariable Long userId, @Validated(OnUpdate.class) @RequestBody UserDto userDto) {
-        log.info("Обновление имени пользователя с идентификатором: {}", userId);
-        UserDto updatedUser = userService.update(userId, userDto);
-        log.info("Имя у пользователя с идентификатором: {} обновлен", userId);
-        return updatedUser;
+        return userService.update(userId, userDto);
     }
 
     @DeleteMapping("/{userId}")
     public void delete(@PathVariable Long userId) {
-        log.info("Удаление пользователя с идентификатором: {}", userId);
         userService.delete(userId);
-        log.info("Пользователь с идентификатором {} удален", userId);
     }
 
 }
@@ -1,6 +1,6 @@
 package ru.practicum.shareit.user.dto;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import ru.practicum.shareit.validation.valid.OnCreate;
 import ru.practicum.shareit.validation.valid.OnUpdate;
@@ -8,7 +8,6 @@ import ru.practicum.shareit.validation.valid.OnUpdate;
 import javax.validation.constraints.*;
 
 @Data
-@AllArgsConstructor
 public class UserDto {
 
     private Long id;
@@ -20,4 +19,13 @@ public class UserDto {
     @NotBlank(message = "Email пользователя не может быть пустым", groups = OnCreate.class)
     @Email(message = "Некорректный формат email", groups = {OnCreate.class, OnUpdate.class})
     private String email;
+
+    @JsonIgnore
+    private long version;
+
+    public UserDto(Long id, String name, String email) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+    }
 }
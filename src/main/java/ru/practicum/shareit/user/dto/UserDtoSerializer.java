@@ -0,0 +1,41 @@
+package ru.practicum.shareit.user.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+
+/**
+ * Пишет пользователя напрямую в генератор в том же виде, что и Jackson по умолчанию.
+ */
+@JsonComponent
+public class UserDtoSerializer extends StdSerializer<UserDto> {
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString NAME = new SerializedString("name");
+    private static final SerializableString EMAIL = new SerializedString("email");
+
+    public UserDtoSerializer() {
+        super(UserDto.class);
+    }
+
+    @Override
+    public void serialize(UserDto user, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(user, 3);
+        generator.writeFieldName(ID);
+        if (user.getId() == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(user.getId());
+        }
+        generator.writeFieldName(NAME);
+        generator.writeString(user.getName());
+        generator.writeFieldName(EMAIL);
+        generator.writeString(user.getEmail());
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,13 @@
+package ru.practicum.shareit.user.event;
+
+import lombok.Value;
+
+/**
+ * Пользователь удаляется. Публикуется синхронно, до удаления самого пользователя, чтобы зависящие от него
+ * данные удалялись раньше, чем база удалит их по внешним ключам.
+ */
+@Value
+public class UserDeletedEvent {
+
+    Long userId;
+}
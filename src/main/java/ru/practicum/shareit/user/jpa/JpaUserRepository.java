@@ -0,0 +1,163 @@
+package ru.practicum.shareit.user.jpa;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.storage.KeysetStream;
+import ru.practicum.shareit.user.mem.UserRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.validation.exception.ConflictException;
+import ru.practicum.shareit.validation.exception.NotFoundException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+@Repository
+@ConditionalOnProperty(name = "shareit.storage.type", havingValue = "jpa")
+@Transactional(readOnly = true)
+public class JpaUserRepository implements UserRepository, MeterBinder {
+
+    private static final int FETCH_SIZE = 500;
+
+    private static final int BATCH_SIZE = 50;
+
+    private final LongAdder emailConflicts = new LongAdder();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<User> getAll(int from, int size) {
+        return entityManager.createQuery("select u from User u order by u.id", User.class)
+                .setFirstResult(from)
+                .setMaxResults(size)
+                .getResultList();
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return KeysetStream.of(lastId -> entityManager
+                        .createQuery("select u from User u where u.id > :lastId order by u.id", User.class)
+                        .setParameter("lastId", lastId)
+                        .setMaxResults(FETCH_SIZE)
+                        .getResultList(),
+                User::getId);
+    }
+
+    @Override
+    @Transactional
+    public User create(User user) {
+        if (emailExists(user.getEmail())) {
+            emailConflicts.increment();
+            throw new ConflictException("Пользователь с таким e-mail уже существует");
+        }
+        entityManager.persist(user);
+        flush();
+        return user;
+    }
+
+    @Override
+    @Transactional
+    public List<User> createAll(List<User> users) {
+        Set<String> emails = new HashSet<>();
+        for (User user : users) {
+            if (!emails.add(user.getEmail())) {
+                emailConflicts.increment();
+                throw new ConflictException("Пользователь с e-mail " + user.getEmail() + " уже существует");
+            }
+        }
+        List<String> emailList = new ArrayList<>(emails);
+        for (int from = 0; from < emailList.size(); from += FETCH_SIZE) {
+            List<String> existing = entityManager
+                    .createQuery("select u.email from User u where u.email in :emails", String.class)
+                    .setParameter("emails", emailList.subList(from, Math.min(from + FETCH_SIZE, emailList.size())))
+                    .setMaxResults(1)
+                    .getResultList();
+            if (!existing.isEmpty()) {
+                emailConflicts.increment();
+                throw new ConflictException("Пользователь с e-mail " + existing.get(0) + " уже существует");
+            }
+        }
+        for (int i = 0; i < users.size(); i++) {
+            entityManager.persist(users.get(i));
+            if ((i + 1) % BATCH_SIZE == 0) {
+                flush();
+                entityManager.clear();
+            }
+        }
+        flush();
+        return users;
+    }
+
+    @Override
+    @Transactional
+    public void update(User user) {
+        User updateUser = Optional.ofNullable(entityManager.find(User.class, user.getId()))
+                .orElseThrow(() -> new NotFoundException("Пользователь не найден"));
+
+        String newEmail = user.getEmail();
+        if (newEmail != null && !newEmail.equals(updateUser.getEmail())) {
+            if (emailExists(newEmail)) {
+                emailConflicts.increment();
+                throw new ConflictException("Пользователь с таким e-mail уже существует");
+            }
+            updateUser.setEmail(newEmail);
+        }
+        if (user.getName() != null) {
+            updateUser.setName(user.getName());
+        }
+        flush();
+    }
+
+    @Override
+    @Transactional
+    public void deleteById(Long userId) {
+        User user = Optional.ofNullable(entityManager.find(User.class, userId))
+                .orElseThrow(() -> new NotFoundException("Пользователь не найден"));
+        entityManager.remove(user);
+    }
+
+    @Override
+    public Optional<User> findById(Long userId) {
+        return Optional.ofNullable(entityManager.find(User.class, userId));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("shareit.users.email.conflicts", emailConflicts, LongAdder::sum)
+                .description("Количество отказов из-за занятого e-mail")
+                .register(registry);
+    }
+
+    private boolean emailExists(String email) {
+        return !entityManager.createQuery("select u.id from User u where u.email = :email", Long.class)
+                .setParameter("email", email)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
+
+    private void flush() {
+        try {
+            entityManager.flush();
+        } catch (PersistenceException e) {
+            if (e.getCause() instanceof ConstraintViolationException) {
+                emailConflicts.increment();
+                throw new ConflictException("Пользователь с таким e-mail уже существует");
+            }
+            throw e;
+        }
+    }
+}
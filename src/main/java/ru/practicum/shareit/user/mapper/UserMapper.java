@@ -8,11 +8,13 @@ import java.util.List;
 
 public class UserMapper {
     public static UserDto toUserDto(User user) {
-        return new UserDto(
+        UserDto userDto = new UserDto(
                 user.getId(),
                 user.getName(),
                 user.getEmail()
         );
+        userDto.setVersion(user.getVersion());
+        return userDto;
     }
 
     public static User toUser(UserDto userDto) {
@@ -24,13 +26,9 @@ public class UserMapper {
     }
 
     public static List<UserDto> toUserDtoList(List<User> userList) {
-        List<UserDto> userDtoList = new ArrayList<>();
+        List<UserDto> userDtoList = new ArrayList<>(userList.size());
         for (User user : userList) {
-            userDtoList.add(new UserDto(
-                    user.getId(),
-                    user.getName(),
-                    user.getEmail()
-            ));
+            userDtoList.add(toUserDto(user));
         }
         return userDtoList;
     }
@@ -0,0 +1,303 @@
+package ru.practicum.shareit.user.mem;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.storage.ChangeListener;
+import ru.practicum.shareit.storage.IdGenerator;
+import ru.practicum.shareit.storage.RestorableRepository;
+import ru.practicum.shareit.storage.compact.LongIntHashMap;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.validation.exception.ConflictException;
+import ru.practicum.shareit.validation.exception.NotFoundException;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище пользователей для больших каталогов. Пользователи лежат строками параллельных массивов
+ * в порядке идентификаторов: идентификаторы растут, поэтому новая строка всегда дописывается в конец,
+ * а постраничная выдача читается подряд. Удалённая строка остаётся пустой, пока пустых не станет
+ * больше живых, — тогда массивы уплотняются. Строку по идентификатору находит хеш-таблица из long в int.
+ */
+@Repository
+@ConditionalOnProperty(name = "shareit.storage.type", havingValue = "compact")
+public class CompactUserRepository implements UserRepository, MeterBinder, RestorableRepository<User> {
+
+    private static final int INITIAL_ROWS = 1024;
+    private static final int STREAM_BATCH = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongIntHashMap rows = new LongIntHashMap(INITIAL_ROWS);
+    private final Map<String, Long> userEmails = new HashMap<>();
+    private volatile IdGenerator idGenerator = IdGenerator.sequence();
+    private final LongAdder emailConflicts = new LongAdder();
+    private volatile ChangeListener<User> listener = ChangeListener.none();
+
+    private long[] ids = new long[INITIAL_ROWS];
+    private String[] names = new String[INITIAL_ROWS];
+    private String[] emails = new String[INITIAL_ROWS];
+    private int[] versions = new int[INITIAL_ROWS];
+    private int usedRows;
+    private int deletedRows;
+
+    @Override
+    public List<User> getAll(int from, int size) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            List<User> result = new ArrayList<>(Math.min(size, rows.size()));
+            int skipped = 0;
+            for (int row = 0; row < usedRows && result.size() < size; row++) {
+                if (emails[row] != null && skipped++ >= from) {
+                    result.add(toUser(row));
+                }
+            }
+            return result;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Читает хранилище пачками по возрастанию идентификатора, отпуская блокировку между ними.
+     */
+    @Override
+    public Stream<User> streamAll() {
+        return Stream.iterate(readAfter(0), batch -> !batch.isEmpty(),
+                        batch -> readAfter(batch.get(batch.size() - 1).getId()))
+                .flatMap(List::stream);
+    }
+
+    @Override
+    public User create(User user) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            checkEmailIsFree(user.getEmail());
+            user.setId(idGenerator.next());
+            append(user);
+            listener.saved(user);
+        } finally {
+            writeLock.unlock();
+        }
+        listener.committed();
+        return user;
+    }
+
+    @Override
+    public List<User> createAll(List<User> newUsers) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            Set<String> batchEmails = new HashSet<>();
+            for (User user : newUsers) {
+                if (userEmails.containsKey(user.getEmail()) || !batchEmails.add(user.getEmail())) {
+                    emailConflicts.increment();
+                    throw new ConflictException("Пользователь с e-mail " + user.getEmail() + " уже существует");
+                }
+            }
+            long[] ids = idGenerator.next(newUsers.size());
+            for (int i = 0; i < ids.length; i++) {
+                User user = newUsers.get(i);
+                user.setId(ids[i]);
+                append(user);
+                listener.saved(user);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        listener.committed();
+        return newUsers;
+    }
+
+    @Override
+    public void update(User user) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            int row = rows.get(user.getId());
+            if (row == LongIntHashMap.MISSING) {
+                throw new NotFoundException("Пользователь не найден");
+            }
+            String newEmail = user.getEmail();
+            if (newEmail != null && !newEmail.equals(emails[row])) {
+                checkEmailIsFree(newEmail);
+                userEmails.remove(emails[row]);
+                userEmails.put(newEmail, ids[row]);
+                emails[row] = newEmail;
+            }
+            if (user.getName() != null) {
+                names[row] = user.getName();
+            }
+            versions[row]++;
+            listener.saved(toUser(row));
+        } finally {
+            writeLock.unlock();
+        }
+        listener.committed();
+    }
+
+    @Override
+    public void deleteById(Long userId) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            int row = rows.remove(userId);
+            if (row == LongIntHashMap.MISSING) {
+                throw new NotFoundException("Пользователь не найден");
+            }
+            userEmails.remove(emails[row]);
+            names[row] = null;
+            emails[row] = null;
+            deletedRows++;
+            if (deletedRows > INITIAL_ROWS && deletedRows > usedRows - deletedRows) {
+                compactRows();
+            }
+            listener.deleted(userId);
+        } finally {
+            writeLock.unlock();
+        }
+        listener.committed();
+    }
+
+    @Override
+    public Optional<User> findById(Long userId) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            int row = rows.get(userId);
+            return row == LongIntHashMap.MISSING ? Optional.empty() : Optional.of(toUser(row));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void setListener(ChangeListener<User> listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void setIdGenerator(IdGenerator idGenerator) {
+        idGenerator.advanceTo(this.idGenerator.last());
+        this.idGenerator = idGenerator;
+    }
+
+    @Override
+    public long lastId() {
+        return idGenerator.last();
+    }
+
+    @Override
+    public void restore(Collection<User> restored, long lastId) {
+        List<User> sorted = new ArrayList<>(restored);
+        sorted.sort(Comparator.comparing(User::getId));
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            rows.clear();
+            userEmails.clear();
+            Arrays.fill(names, null);
+            Arrays.fill(emails, null);
+            usedRows = 0;
+            deletedRows = 0;
+            sorted.forEach(this::append);
+            idGenerator.advanceTo(lastId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("shareit.users", this, CompactUserRepository::count)
+                .description("Количество пользователей")
+                .register(registry);
+        FunctionCounter.builder("shareit.users.email.conflicts", emailConflicts, LongAdder::sum)
+                .description("Количество отказов из-за занятого e-mail")
+                .register(registry);
+    }
+
+    private void checkEmailIsFree(String email) {
+        if (userEmails.containsKey(email)) {
+            emailConflicts.increment();
+            throw new ConflictException("Пользователь с таким e-mail уже существует");
+        }
+    }
+
+    private void append(User user) {
+        if (usedRows == ids.length) {
+            int capacity = usedRows + (usedRows >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            names = Arrays.copyOf(names, capacity);
+            emails = Arrays.copyOf(emails, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+        }
+        int row = usedRows++;
+        ids[row] = user.getId();
+        names[row] = user.getName();
+        emails[row] = user.getEmail();
+        versions[row] = (int) user.getVersion();
+        rows.put(user.getId(), row);
+        userEmails.put(user.getEmail(), user.getId());
+    }
+
+    private void compactRows() {
+        int live = 0;
+        for (int row = 0; row < usedRows; row++) {
+            if (emails[row] != null) {
+                ids[live] = ids[row];
+                names[live] = names[row];
+                emails[live] = emails[row];
+                versions[live] = versions[row];
+                rows.put(ids[live], live);
+                live++;
+            }
+        }
+        Arrays.fill(names, live, usedRows, null);
+        Arrays.fill(emails, live, usedRows, null);
+        usedRows = live;
+        deletedRows = 0;
+    }
+
+    private List<User> readAfter(long userId) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            int row = Arrays.binarySearch(ids, 0, usedRows, userId + 1);
+            List<User> result = new ArrayList<>();
+            for (row = row < 0 ? -row - 1 : row; row < usedRows && result.size() < STREAM_BATCH; row++) {
+                if (emails[row] != null) {
+                    result.add(toUser(row));
+                }
+            }
+            return result;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private double count() {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return rows.size();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private User toUser(int row) {
+        User user = new User(ids[row], names[row], emails[row]);
+        user.setVersion(versions[row]);
+        return user;
+    }
+}
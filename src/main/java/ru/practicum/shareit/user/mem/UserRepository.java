@@ -4,12 +4,17 @@ import ru.practicum.shareit.user.model.User;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository {
-    List<User> getAll();
+    List<User> getAll(int from, int size);
+
+    Stream<User> streamAll();
 
     User create(User user);
 
+    List<User> createAll(List<User> users);
+
     void update(User user);
 
     void deleteById(Long userId);
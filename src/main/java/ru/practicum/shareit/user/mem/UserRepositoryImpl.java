@@ -1,61 +1,144 @@
 package ru.practicum.shareit.user.mem;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.storage.ChangeListener;
+import ru.practicum.shareit.storage.IdGenerator;
+import ru.practicum.shareit.storage.RestorableRepository;
+import ru.practicum.shareit.storage.StripedLock;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.validation.exception.ConflictException;
 import ru.practicum.shareit.validation.exception.NotFoundException;
 
 import java.util.*;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
-public class UserRepositoryImpl implements UserRepository {
+@ConditionalOnProperty(name = "shareit.storage.type", havingValue = "memory", matchIfMissing = true)
+public class UserRepositoryImpl implements UserRepository, MeterBinder, RestorableRepository<User> {
 
-    private final Map<Long, User> users = new HashMap<>();
-    private final Map<String, Long> userEmails = new HashMap<>();
+    private static final Long RESERVED = 0L;
 
-    private final AtomicLong idGenerator = new AtomicLong(0);
+    private final Map<Long, User> users = new ConcurrentSkipListMap<>();
+    private final Map<String, Long> userEmails = new ConcurrentHashMap<>();
+    private final StripedLock locks = new StripedLock(64);
+
+    private volatile IdGenerator idGenerator = IdGenerator.sequence();
+    private final LongAdder emailConflicts = new LongAdder();
+    private volatile ChangeListener<User> listener = ChangeListener.none();
 
     @Override
-    public List<User> getAll() {
-        return new ArrayList<>(users.values());
+    public List<User> getAll(int from, int size) {
+        return streamAll()
+                .skip(from)
+                .limit(size)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return users.values().stream();
     }
 
     @Override
     public User create(User user) {
-        if (userEmails.containsKey(user.getEmail())) {
+        if (userEmails.putIfAbsent(user.getEmail(), RESERVED) != null) {
+            emailConflicts.increment();
             throw new ConflictException("Пользователь с таким e-mail уже существует");
         }
-        user.setId(idGenerator.incrementAndGet());
-        users.put(user.getId(), user);
-        userEmails.put(user.getEmail(), user.getId());
+        user.setId(idGenerator.next());
+        store(user);
+        listener.committed();
         return user;
     }
 
+    @Override
+    public List<User> createAll(List<User> newUsers) {
+        List<String> reserved = new ArrayList<>(newUsers.size());
+        for (User user : newUsers) {
+            if (userEmails.putIfAbsent(user.getEmail(), RESERVED) != null) {
+                reserved.forEach(email -> userEmails.remove(email, RESERVED));
+                emailConflicts.increment();
+                throw new ConflictException("Пользователь с e-mail " + user.getEmail() + " уже существует");
+            }
+            reserved.add(user.getEmail());
+        }
+        long[] ids = idGenerator.next(newUsers.size());
+        for (int i = 0; i < ids.length; i++) {
+            User user = newUsers.get(i);
+            user.setId(ids[i]);
+            store(user);
+        }
+        listener.committed();
+        return newUsers;
+    }
+
     @Override
     public void update(User user) {
-        User updateUser = findById(user.getId())
-                .orElseThrow(() -> new NotFoundException("Пользователь не найден"));
+        Lock lock = locks.get(user.getId());
+        lock.lock();
+        try {
+            User currentUser = findById(user.getId())
+                    .orElseThrow(() -> new NotFoundException("Пользователь не найден"));
+            User updateUser = new User(currentUser.getId(), currentUser.getName(), currentUser.getEmail());
+            updateUser.setVersion(currentUser.getVersion() + 1);
 
-        String newEmail = user.getEmail();
-        if (newEmail != null && !newEmail.equals(updateUser.getEmail())) {
-            if (userEmails.containsKey(newEmail)) {
-                throw new ConflictException("Пользователь с таким e-mail уже существует");
+            String newEmail = user.getEmail();
+            if (newEmail != null && !newEmail.equals(updateUser.getEmail())) {
+                if (userEmails.putIfAbsent(newEmail, user.getId()) != null) {
+                    emailConflicts.increment();
+                    throw new ConflictException("Пользователь с таким e-mail уже существует");
+                }
+                userEmails.remove(updateUser.getEmail(), user.getId());
+                updateUser.setEmail(newEmail);
             }
-            userEmails.remove(updateUser.getEmail());
-            userEmails.put(user.getEmail(), user.getId());
-            updateUser.setEmail(user.getEmail());
-        }
-        if (user.getName() != null) {
-            updateUser.setName(user.getName());
+            if (user.getName() != null) {
+                updateUser.setName(user.getName());
+            }
+            users.put(updateUser.getId(), updateUser);
+            listener.saved(updateUser);
+        } finally {
+            lock.unlock();
         }
-        users.put(updateUser.getId(), updateUser);
+        listener.committed();
     }
 
     @Override
     public void deleteById(Long userId) {
-        userEmails.remove(users.get(userId).getEmail());
-        users.remove(userId);
+        Lock lock = locks.get(userId);
+        lock.lock();
+        try {
+            User user = users.remove(userId);
+            if (user == null) {
+                throw new NotFoundException("Пользователь не найден");
+            }
+            userEmails.remove(user.getEmail(), userId);
+            listener.deleted(userId);
+        } finally {
+            lock.unlock();
+        }
+        listener.committed();
+    }
+
+    private void store(User user) {
+        Lock lock = locks.get(user.getId());
+        lock.lock();
+        try {
+            users.put(user.getId(), user);
+            userEmails.put(user.getEmail(), user.getId());
+            listener.saved(user);
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
@@ -63,4 +146,45 @@ public class UserRepositoryImpl implements UserRepository {
         return Optional.ofNullable(users.get(userId));
     }
 
+    @Override
+    public void setListener(ChangeListener<User> listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void setIdGenerator(IdGenerator idGenerator) {
+        idGenerator.advanceTo(this.idGenerator.last());
+        this.idGenerator = idGenerator;
+    }
+
+    @Override
+    public long lastId() {
+        return idGenerator.last();
+    }
+
+    /**
+     * Заменяет содержимое хранилища восстановленными пользователями. Вызывается до начала работы.
+     */
+    @Override
+    public void restore(Collection<User> restored, long lastId) {
+        users.clear();
+        userEmails.clear();
+        for (User user : restored) {
+            users.put(user.getId(), user);
+            userEmails.put(user.getEmail(), user.getId());
+        }
+        idGenerator.advanceTo(lastId);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // у каждого пользователя ровно один e-mail, а размер ConcurrentHashMap, в отличие от skip-list, считается за O(1)
+        Gauge.builder("shareit.users", userEmails, Map::size)
+                .description("Количество пользователей")
+                .register(registry);
+        FunctionCounter.builder("shareit.users.email.conflicts", emailConflicts, LongAdder::sum)
+                .description("Количество отказов из-за занятого e-mail")
+                .register(registry);
+    }
+
 }
@@ -0,0 +1,27 @@
+package ru.practicum.shareit.user.service;
+
+/**
+ * Резервирование адресов почты вне хранилища пользователей. Хранилище следит за уникальностью адреса только
+ * среди своих пользователей; в кластере адрес дополнительно резервируется на узле, которому его отводит кольцо.
+ */
+public interface EmailReservations {
+
+    /**
+     * @throws ru.practicum.shareit.validation.exception.ConflictException если адрес уже занят
+     */
+    void reserve(String email);
+
+    void release(String email);
+
+    static EmailReservations none() {
+        return new EmailReservations() {
+            @Override
+            public void reserve(String email) {
+            }
+
+            @Override
+            public void release(String email) {
+            }
+        };
+    }
+}
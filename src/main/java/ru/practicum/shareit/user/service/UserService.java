@@ -3,12 +3,17 @@ package ru.practicum.shareit.user.service;
 import ru.practicum.shareit.user.dto.UserDto;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface UserService {
-    List<UserDto> getAll();
+    List<UserDto> getAll(int from, int size);
+
+    Stream<UserDto> streamAll();
 
     UserDto create(UserDto userDto);
 
+    List<UserDto> createAll(List<UserDto> userDtos);
+
     UserDto getById(Long userId);
 
     UserDto update(Long userId, UserDto userDto);
@@ -1,51 +1,162 @@
 package ru.practicum.shareit.user.service;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import ru.practicum.shareit.cache.CacheConfig;
+import ru.practicum.shareit.storage.StripedLock;
 import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.event.UserDeletedEvent;
 import ru.practicum.shareit.user.mapper.UserMapper;
 import ru.practicum.shareit.user.mem.UserRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.validation.exception.NotFoundException;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
 
+/**
+ * Адрес почты резервируется в {@link EmailReservations} до того, как попасть в хранилище, и освобождается,
+ * когда пользователь его сменил или удалён. Смена адреса и удаление одного пользователя выполняются
+ * по очереди, чтобы освобождался именно тот адрес, который был у пользователя.
+ * <p>
+ * Перед удалением пользователя публикуется {@link UserDeletedEvent}: по нему удаляются его вещи и запросы —
+ * как в базе по внешним ключам, поэтому хранилища в памяти и база не расходятся.
+ */
 @Service
-@RequiredArgsConstructor
+@Timed("shareit.service")
 public class UserServiceImpl implements UserService {
 
+    private static final int LOCK_STRIPES = 64;
+
     private final UserRepository userRepository;
 
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final EmailReservations emailReservations;
+
+    private final StripedLock userLocks = new StripedLock(LOCK_STRIPES);
+
+    public UserServiceImpl(UserRepository userRepository, ApplicationEventPublisher eventPublisher,
+                           ObjectProvider<EmailReservations> emailReservations) {
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.emailReservations = emailReservations.getIfAvailable(EmailReservations::none);
+    }
+
+    @Override
+    public List<UserDto> getAll(int from, int size) {
+        return UserMapper.toUserDtoList(userRepository.getAll(from, size));
+    }
 
     @Override
-    public List<UserDto> getAll() {
-        return UserMapper.toUserDtoList(userRepository.getAll());
+    public Stream<UserDto> streamAll() {
+        return userRepository.streamAll().map(UserMapper::toUserDto);
     }
 
     @Override
     public UserDto create(UserDto userDto) {
         User user = UserMapper.toUser(userDto);
-        return UserMapper.toUserDto(userRepository.create(user));
+        emailReservations.reserve(user.getEmail());
+        try {
+            return UserMapper.toUserDto(userRepository.create(user));
+        } catch (RuntimeException e) {
+            emailReservations.release(user.getEmail());
+            throw e;
+        }
     }
 
     @Override
+    public List<UserDto> createAll(List<UserDto> userDtos) {
+        List<User> users = new ArrayList<>(userDtos.size());
+        List<String> reserved = new ArrayList<>(userDtos.size());
+        try {
+            for (UserDto userDto : userDtos) {
+                User user = UserMapper.toUser(userDto);
+                emailReservations.reserve(user.getEmail());
+                reserved.add(user.getEmail());
+                users.add(user);
+            }
+            return UserMapper.toUserDtoList(userRepository.createAll(users));
+        } catch (RuntimeException e) {
+            reserved.forEach(emailReservations::release);
+            throw e;
+        }
+    }
+
+    @Override
+    @Cacheable(CacheConfig.USERS)
     public UserDto getById(Long userId) {
-        return UserMapper.toUserDto(userRepository.findById(userId)
-                .orElseThrow(() -> new NotFoundException("Пользователь не найден")));
+        return UserMapper.toUserDto(findById(userId));
     }
 
     @Override
+    @CachePut(cacheNames = CacheConfig.USERS, key = "#userId")
     public UserDto update(Long userId, UserDto userDto) {
         userDto.setId(userId);
         User updateUser = UserMapper.toUser(userDto);
-        userRepository.update(updateUser);
-        return UserMapper.toUserDto(userRepository.findById(updateUser.getId())
-                .orElseThrow(() -> new NotFoundException("Пользователь не найден")));
+        if (updateUser.getEmail() == null) {
+            userRepository.update(updateUser);
+        } else {
+            updateWithEmail(updateUser);
+        }
+        return UserMapper.toUserDto(findById(userId));
     }
 
+    /**
+     * Вместе с пользователем удаляются его вещи и меняются ответы на его запросы, поэтому кэш вещей
+     * очищается целиком.
+     */
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.USERS, key = "#userId"),
+            @CacheEvict(cacheNames = CacheConfig.ITEMS, allEntries = true)
+    })
     public void delete(Long userId) {
-        userRepository.deleteById(userId);
+        Lock lock = userLocks.get(userId);
+        lock.lock();
+        try {
+            String email = findById(userId).getEmail();
+            eventPublisher.publishEvent(new UserDeletedEvent(userId));
+            userRepository.deleteById(userId);
+            emailReservations.release(email);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void updateWithEmail(User updateUser) {
+        Lock lock = userLocks.get(updateUser.getId());
+        lock.lock();
+        try {
+            String oldEmail = findById(updateUser.getId()).getEmail();
+            String newEmail = updateUser.getEmail();
+            if (newEmail.equals(oldEmail)) {
+                userRepository.update(updateUser);
+                return;
+            }
+            emailReservations.reserve(newEmail);
+            try {
+                userRepository.update(updateUser);
+            } catch (RuntimeException e) {
+                emailReservations.release(newEmail);
+                throw e;
+            }
+            emailReservations.release(oldEmail);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private User findById(Long userId) {
+        return userRepository.findById(userId).orElseThrow(() -> new NotFoundException("Пользователь не найден"));
     }
 
 
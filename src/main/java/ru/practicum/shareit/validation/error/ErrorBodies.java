@@ -0,0 +1,44 @@
+package ru.practicum.shareit.validation.error;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+
+/**
+ * Готовые JSON-тела ответов об ошибках. Сообщения ошибок повторяются, поэтому тело сериализуется
+ * один раз на сообщение и дальше отдаётся из ограниченного по размеру кэша.
+ */
+@Component
+class ErrorBodies {
+
+    private static final int MAX_BODIES = 1024;
+
+    private final ObjectMapper objectMapper;
+
+    private final Cache<String, byte[]> bodies = Caffeine.newBuilder().maximumSize(MAX_BODIES).build();
+
+    ErrorBodies(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    ResponseEntity<byte[]> of(HttpStatus status, String message) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(bodies.get(String.valueOf(message), this::encode));
+    }
+
+    private byte[] encode(String message) {
+        try {
+            return objectMapper.writeValueAsBytes(new ErrorResponse(message));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
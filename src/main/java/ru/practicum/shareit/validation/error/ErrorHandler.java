@@ -1,64 +1,99 @@
 package ru.practicum.shareit.validation.error;
 
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
-import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import ru.practicum.shareit.validation.exception.ConflictException;
 import ru.practicum.shareit.validation.exception.NotFoundException;
+import ru.practicum.shareit.validation.exception.UnavailableException;
 import ru.practicum.shareit.validation.exception.ValidationException;
 
 
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import javax.validation.ConstraintViolationException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
+/**
+ * Ответы об ошибках. Исключения предметной области создаются без стека вызовов, тела ответов берутся
+ * из {@link ErrorBodies}, а записи в журнал ограничены по частоте для каждого типа исключения,
+ * поэтому поток запросов к несуществующим вещам стоит примерно как поток обычных чтений.
+ */
 @RestControllerAdvice
 @Slf4j
 public class ErrorHandler {
 
+    private static final String UNEXPECTED_ERROR = "Произошла непредвиденная ошибка.";
+
+    private final MeterRegistry meterRegistry;
+
+    private final ErrorBodies errorBodies;
+
+    private final ThrottledLog throttledLog;
+
+    private final Map<Class<?>, Counter> counters = new ConcurrentHashMap<>();
+
+    public ErrorHandler(MeterRegistry meterRegistry, ErrorBodies errorBodies,
+                        @Value("${shareit.logging.errors.per-second:10}") int logsPerSecond) {
+        this.meterRegistry = meterRegistry;
+        this.errorBodies = errorBodies;
+        this.throttledLog = new ThrottledLog(logsPerSecond);
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<byte[]> handleNotFoundException(final NotFoundException e) {
+        return clientError(HttpStatus.NOT_FOUND, e, e.getMessage());
+    }
+
     @ExceptionHandler
-    @ResponseStatus(HttpStatus.NOT_FOUND)
-    public ErrorResponse handleNotFoundException(final NotFoundException e) {
-        log.error("NotFoundException: {}", e.getMessage());
-        return new ErrorResponse(e.getMessage());
+    public ResponseEntity<byte[]> handleValidationException(final ValidationException e) {
+        return clientError(HttpStatus.BAD_REQUEST, e, e.getMessage());
     }
 
     @ExceptionHandler
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public ErrorResponse handleValidationException(final ValidationException e) {
-        log.error("ValidationException: {}", e.getMessage());
-        return new ErrorResponse(e.getMessage());
+    public ResponseEntity<byte[]> handleConstraintViolationException(final ConstraintViolationException e) {
+        return clientError(HttpStatus.BAD_REQUEST, e, e.getMessage());
     }
 
     @ExceptionHandler
-    @ResponseStatus(HttpStatus.CONFLICT)
-    public ErrorResponse handleConflictException(final ConflictException e) {
-        log.error("ConflictException: {}", e.getMessage());
-        return new ErrorResponse(e.getMessage());
+    public ResponseEntity<byte[]> handleConflictException(final ConflictException e) {
+        return clientError(HttpStatus.CONFLICT, e, e.getMessage());
     }
 
+    @ExceptionHandler
+    public ResponseEntity<byte[]> handleUnavailableException(final UnavailableException e) {
+        return clientError(HttpStatus.SERVICE_UNAVAILABLE, e, e.getMessage());
+    }
 
     @ExceptionHandler
-    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
-    public ErrorResponse handleThrowable(final Throwable e) {
-        log.error("Произошла непредвиденная ошибка", e);
-        String stackTrace = getStackTraceAsString(e);
-        ErrorResponse errorResponse = new ErrorResponse("Произошла непредвиденная ошибка.");
-        errorResponse.setStackTrace(stackTrace);
-        return errorResponse;
+    public ResponseEntity<byte[]> handleOptimisticLockingFailureException(final OptimisticLockingFailureException e) {
+        return clientError(HttpStatus.CONFLICT, e, "Данные изменились одновременно с запросом, повторите его");
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<byte[]> handleThrowable(final Throwable e) {
+        count(e);
+        long skipped = throttledLog.acquire(e.getClass());
+        if (skipped != ThrottledLog.DENIED) {
+            log.error("Произошла непредвиденная ошибка, пропущено похожих записей: {}", skipped, e);
+        }
+        return errorBodies.of(HttpStatus.INTERNAL_SERVER_ERROR, UNEXPECTED_ERROR);
     }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, List<String>>> notValid(MethodArgumentNotValidException ex) {
+        count(ex);
         List<String> errors = new ArrayList<>();
 
         ex.getBindingResult().getAllErrors().forEach(err -> errors.add(err.getDefaultMessage()));
@@ -69,11 +104,19 @@ public class ErrorHandler {
         return new ResponseEntity<>(result, HttpStatus.BAD_REQUEST);
     }
 
-    public String getStackTraceAsString(Throwable e) {
-        StringWriter sw = new StringWriter();
-        PrintWriter pw = new PrintWriter(sw);
-        e.printStackTrace(pw);
-        return sw.toString();
+    private ResponseEntity<byte[]> clientError(HttpStatus status, Exception e, String message) {
+        count(e);
+        if (log.isWarnEnabled()) {
+            long skipped = throttledLog.acquire(e.getClass());
+            if (skipped != ThrottledLog.DENIED) {
+                log.warn("{}: {}, пропущено похожих записей: {}", e.getClass().getSimpleName(), e.getMessage(), skipped);
+            }
+        }
+        return errorBodies.of(status, message);
     }
-}
 
+    private void count(Throwable e) {
+        counters.computeIfAbsent(e.getClass(), type -> meterRegistry.counter("shareit.errors",
+                "exception", type.getSimpleName())).increment();
+    }
+}
@@ -0,0 +1,56 @@
+package ru.practicum.shareit.validation.error;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничитель записей журнала об ошибках: не больше заданного числа записей в секунду на каждый тип
+ * исключения. Пропущенные записи считаются и попадают в следующую разрешённую.
+ */
+final class ThrottledLog {
+
+    static final long DENIED = -1;
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int permitsPerSecond;
+
+    private final Map<Class<?>, Window> windows = new ConcurrentHashMap<>();
+
+    ThrottledLog(int permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    /**
+     * Возвращает число записей этого типа, пропущенных с прошлой разрешённой, или {@link #DENIED},
+     * если лимит текущей секунды исчерпан.
+     */
+    long acquire(Class<?> type) {
+        return windows.computeIfAbsent(type, t -> new Window()).acquire(System.nanoTime());
+    }
+
+    private final class Window {
+
+        private long start = System.nanoTime();
+
+        private int used;
+
+        private long skipped;
+
+        synchronized long acquire(long now) {
+            if (now - start >= WINDOW_NANOS) {
+                start = now;
+                used = 0;
+            }
+            if (used >= permitsPerSecond) {
+                skipped++;
+                return DENIED;
+            }
+            used++;
+            long result = skipped;
+            skipped = 0;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package ru.practicum.shareit.validation.exception;
+
+public class UnavailableException extends RuntimeException {
+
+    public UnavailableException(String message) {
+        super(message, null, false, false);
+    }
+}
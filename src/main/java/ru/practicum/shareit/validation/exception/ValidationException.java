@@ -1,7 +1,8 @@
 package ru.practicum.shareit.validation.exception;
 
 public class ValidationException extends RuntimeException {
+
     public ValidationException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
@@ -0,0 +1,57 @@
+package ru.practicum.shareit.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.validation.exception.ValidationException;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Читает пакет записей из JSON-массива или из NDJSON и проверяет каждую запись по заданной группе валидации.
+ */
+@Component
+public class BatchReader {
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    private final int maxSize;
+
+    public BatchReader(ObjectMapper objectMapper, Validator validator,
+                       @Value("${shareit.batch.max-size:100000}") int maxSize) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.maxSize = maxSize;
+    }
+
+    public <T> List<T> read(InputStream body, Class<T> type, Class<?> group) throws IOException {
+        List<T> result = new ArrayList<>();
+        try (MappingIterator<T> iterator = objectMapper.readerFor(type).readValues(body)) {
+            while (iterator.hasNextValue()) {
+                if (result.size() == maxSize) {
+                    throw new ValidationException("Пакет не может содержать больше " + maxSize + " записей");
+                }
+                T value = iterator.nextValue();
+                Set<ConstraintViolation<T>> violations = validator.validate(value, group);
+                if (!violations.isEmpty()) {
+                    throw new ValidationException("Запись " + result.size() + ": "
+                            + violations.iterator().next().getMessage());
+                }
+                result.add(value);
+            }
+        } catch (JsonProcessingException e) {
+            throw new ValidationException("Некорректный формат записи " + result.size() + ": " + e.getOriginalMessage());
+        }
+        return result;
+    }
+}
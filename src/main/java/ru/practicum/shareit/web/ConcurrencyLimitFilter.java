@@ -0,0 +1,155 @@
+package ru.practicum.shareit.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.practicum.shareit.validation.error.ErrorResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничение числа одновременно выполняемых запросов по группам конечных точек. Группы задаются
+ * шаблонами вида {@code GET /items/search=16,PATCH /items/*=32}, первый подходящий шаблон выигрывает,
+ * остальные запросы делят общий лимит {@code default-limit}. Запрос, которому не хватило места, ждёт
+ * не дольше {@code queue-timeout} и получает ответ 503 с заголовком Retry-After: перегрузка сервера
+ * превращается в быстрые отказы, а не в очередь из тысяч потоков, ждущих хранилище.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+@ConditionalOnProperty(name = "shareit.concurrency-limit.enabled", havingValue = "true")
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final String ACTUATOR_PATH = "/actuator";
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final List<Limit> limits;
+
+    private final Limit defaultLimit;
+
+    private final long queueTimeoutNanos;
+
+    private final byte[] overloadedBody;
+
+    public ConcurrencyLimitFilter(@Value("${shareit.concurrency-limit.default-limit:256}") int defaultLimit,
+                                  @Value("${shareit.concurrency-limit.limits:}") String limits,
+                                  @Value("${shareit.concurrency-limit.queue-timeout:100ms}") Duration queueTimeout,
+                                  ObjectMapper objectMapper,
+                                  MeterRegistry registry) throws JsonProcessingException {
+        this.limits = parseLimits(limits, registry);
+        this.defaultLimit = new Limit(null, null, defaultLimit, "default", registry);
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+        this.overloadedBody = objectMapper.writeValueAsBytes(
+                new ErrorResponse("Сервер перегружен, повторите запрос позже"));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(ACTUATOR_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Limit limit = limitFor(request.getMethod(), request.getRequestURI());
+        boolean acquired;
+        try {
+            acquired = limit.permits.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            limit.rejected.increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setContentLength(overloadedBody.length);
+            response.getOutputStream().write(overloadedBody);
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            limit.permits.release();
+        }
+    }
+
+    private Limit limitFor(String method, String path) {
+        for (Limit limit : limits) {
+            if (limit.method.equals(method) && pathMatcher.match(limit.pattern, path)) {
+                return limit;
+            }
+        }
+        return defaultLimit;
+    }
+
+    private static List<Limit> parseLimits(String limits, MeterRegistry registry) {
+        List<Limit> result = new ArrayList<>();
+        for (String entry : limits.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.lastIndexOf('=');
+            String[] endpoint = separator < 0 ? new String[0] : entry.substring(0, separator).trim().split("\\s+");
+            if (endpoint.length != 2) {
+                throw new IllegalArgumentException("Лимит задаётся как \"МЕТОД шаблон=лимит\": " + entry);
+            }
+            int permits = Integer.parseInt(entry.substring(separator + 1).trim());
+            if (permits < 1) {
+                throw new IllegalArgumentException("Лимит должен быть положительным: " + entry);
+            }
+            result.add(new Limit(endpoint[0], endpoint[1], permits, endpoint[0] + " " + endpoint[1], registry));
+        }
+        return result;
+    }
+
+    private static final class Limit {
+
+        private final String method;
+
+        private final String pattern;
+
+        private final Semaphore permits;
+
+        private final Counter rejected;
+
+        private Limit(String method, String pattern, int permits, String endpoint, MeterRegistry registry) {
+            this.method = method;
+            this.pattern = pattern;
+            this.permits = new Semaphore(permits);
+            this.rejected = Counter.builder("shareit.concurrency.rejected")
+                    .description("Количество запросов, отклонённых из-за превышения лимита одновременности")
+                    .tag("endpoint", endpoint)
+                    .register(registry);
+            Gauge.builder("shareit.concurrency.in-flight", this.permits,
+                            semaphore -> permits - semaphore.availablePermits())
+                    .description("Количество одновременно выполняемых запросов")
+                    .tag("endpoint", endpoint)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package ru.practicum.shareit.web;
+
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+
+/**
+ * Слабые ETag из версий сущностей и списков: один тег покрывает все представления версии — JSON, CBOR,
+ * сжатые и несжатые, — а Tomcat не сжимает ответы со строгим ETag. В тег входит случайная эпоха процесса:
+ * хранилище в памяти после перезапуска начинает версии и идентификаторы заново, и теги, выданные
+ * до перезапуска, не должны совпасть с новыми.
+ */
+@Component
+public class EntityTags {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final String epoch = Long.toHexString(RANDOM.nextLong());
+
+    public String of(long version) {
+        return "W/\"" + epoch + "-" + Long.toHexString(version) + "\"";
+    }
+}
@@ -0,0 +1,40 @@
+package ru.practicum.shareit.web;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Пишет элементы потока в ответ в формате NDJSON по мере их получения, не собирая их в список.
+ */
+@Component
+public class NdjsonWriter {
+
+    private final ObjectWriter writer;
+
+    public NdjsonWriter(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    public ResponseEntity<StreamingResponseBody> write(Stream<?> stream) {
+        StreamingResponseBody body = outputStream -> {
+            try (stream) {
+                Iterator<?> iterator = stream.iterator();
+                while (iterator.hasNext()) {
+                    writer.writeValue(outputStream, iterator.next());
+                    outputStream.write('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+}
@@ -0,0 +1,224 @@
+package ru.practicum.shareit.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.practicum.shareit.cluster.ClusterTopology;
+import ru.practicum.shareit.validation.error.ErrorResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограничение частоты запросов по алгоритму корзины маркеров. Корзина заводится на пользователя
+ * из заголовка {@value #USER_ID_HEADER}, а для {@code /users} и запросов без корректного идентификатора
+ * пользователя — на адрес клиента. Запрос забирает из корзины столько маркеров, сколько стоит его метод и путь,
+ * и получает ответ 429 с заголовком Retry-After, если маркеров не хватает.
+ * <p>
+ * Заголовок задаёт сам клиент, поэтому запросы пользователей с одного адреса дополнительно проходят через
+ * общую корзину адреса, вмещающую трафик {@code users-per-address} пользователей: перебор идентификаторов
+ * не даёт обойти ограничение. Запросы, пересланные другим узлом кластера, не ограничиваются: клиента уже
+ * ограничил узел, принявший запрос, а корзина адреса узла-отправителя оказалась бы общей для всех его клиентов.
+ * <p>
+ * Корзина хранит одно число — момент, когда она снова станет полной, — и меняет его одной операцией
+ * compare-and-set, без блокировок. Таблица корзин ограничена по размеру; корзина, к которой не обращались
+ * дольше времени полного наполнения, удаляется: к этому моменту она всё равно была бы полной.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnProperty(name = "shareit.rate-limit.enabled", havingValue = "true")
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    public static final String USER_ID_HEADER = "X-Sharer-User-Id";
+
+    private static final String USERS_PATH = "/users";
+
+    private static final String ACTUATOR_PATH = "/actuator";
+
+    private final long nanosPerToken;
+
+    private final long burstNanos;
+
+    private final int usersPerAddress;
+
+    private final Map<String, Integer> costs;
+
+    private final Cache<String, Bucket> buckets;
+
+    private final byte[] throttledBody;
+
+    private final Counter throttledUsers;
+
+    private final Counter throttledAddresses;
+
+    private final ClusterTopology topology;
+
+    public RateLimitFilter(@Value("${shareit.rate-limit.rate:50}") double tokensPerSecond,
+                           @Value("${shareit.rate-limit.burst:100}") int burst,
+                           @Value("${shareit.rate-limit.max-keys:100000}") long maxKeys,
+                           @Value("${shareit.rate-limit.users-per-address:20}") int usersPerAddress,
+                           @Value("${shareit.rate-limit.costs:}") String costs,
+                           ObjectMapper objectMapper,
+                           MeterRegistry registry,
+                           ObjectProvider<ClusterTopology> topology) throws JsonProcessingException {
+        this.nanosPerToken = (long) (TimeUnit.SECONDS.toNanos(1) / tokensPerSecond);
+        this.burstNanos = burst * nanosPerToken;
+        if (usersPerAddress < 1) {
+            throw new IllegalArgumentException("Число пользователей на адрес должно быть положительным: "
+                    + usersPerAddress);
+        }
+        this.usersPerAddress = usersPerAddress;
+        this.costs = parseCosts(costs, burst);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(Duration.ofNanos(burstNanos))
+                .build();
+        this.throttledBody = objectMapper.writeValueAsBytes(
+                new ErrorResponse("Слишком много запросов, повторите позже"));
+        this.throttledUsers = throttledCounter(registry, "user");
+        this.throttledAddresses = throttledCounter(registry, "address");
+        this.topology = topology.getIfAvailable();
+        Gauge.builder("shareit.ratelimit.buckets", buckets, Cache::estimatedSize)
+                .description("Количество корзин ограничителя частоты запросов")
+                .register(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(ACTUATOR_PATH) || topology != null && topology.isForwarded(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long userId = request.getRequestURI().startsWith(USERS_PATH) ? 0 : parseUserId(request);
+        long costNanos = costs.getOrDefault(request.getMethod() + " " + request.getRequestURI(), 1) * nanosPerToken;
+        long now = System.nanoTime();
+        long waitNanos;
+        Counter throttled;
+        if (userId > 0) {
+            waitNanos = acquire("u:" + userId, costNanos, now);
+            throttled = throttledUsers;
+            if (waitNanos == 0) {
+                // корзина адреса наполняется за то же время, что и корзина пользователя, но вмещает больше
+                waitNanos = acquire("p:" + request.getRemoteAddr(), costNanos / usersPerAddress, now);
+                throttled = throttledAddresses;
+            }
+        } else {
+            waitNanos = acquire("a:" + request.getRemoteAddr(), costNanos, now);
+            throttled = throttledAddresses;
+        }
+        if (waitNanos == 0) {
+            chain.doFilter(request, response);
+            return;
+        }
+        throttled.increment();
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(
+                (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(throttledBody.length);
+        response.getOutputStream().write(throttledBody);
+    }
+
+    private long acquire(String key, long costNanos, long now) {
+        return buckets.get(key, k -> new Bucket(now)).acquire(costNanos, burstNanos, now);
+    }
+
+    /**
+     * Возвращает идентификатор пользователя из заголовка или 0, если заголовка нет или он не является
+     * положительным числом: произвольные строки не должны заводить новые корзины.
+     */
+    private static long parseUserId(HttpServletRequest request) {
+        String header = request.getHeader(USER_ID_HEADER);
+        if (header == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(header.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Разбирает стоимости вида {@code GET /items/search=5,GET /items=2}; остальные запросы стоят один маркер.
+     */
+    private static Map<String, Integer> parseCosts(String costs, int burst) {
+        Map<String, Integer> result = new HashMap<>();
+        for (String entry : costs.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.lastIndexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Стоимость запроса задаётся как \"МЕТОД путь=стоимость\": " + entry);
+            }
+            int cost = Integer.parseInt(entry.substring(separator + 1).trim());
+            if (cost < 1 || cost > burst) {
+                throw new IllegalArgumentException("Стоимость запроса должна быть от 1 до " + burst + ": " + entry);
+            }
+            result.put(entry.substring(0, separator).trim(), cost);
+        }
+        return result;
+    }
+
+    private static Counter throttledCounter(MeterRegistry registry, String key) {
+        return Counter.builder("shareit.ratelimit.throttled")
+                .description("Количество запросов, отклонённых ограничителем частоты")
+                .tag("key", key)
+                .register(registry);
+    }
+
+    private static final class Bucket {
+
+        /**
+         * Момент по {@link System#nanoTime()}, когда корзина снова станет полной.
+         */
+        private final AtomicLong fullAt;
+
+        private Bucket(long now) {
+            this.fullAt = new AtomicLong(now);
+        }
+
+        /**
+         * Забирает маркеры на {@code costNanos} и возвращает 0 или, если маркеров не хватает, сколько
+         * наносекунд ждать до их появления; в этом случае корзина не меняется.
+         */
+        private long acquire(long costNanos, long burstNanos, long now) {
+            while (true) {
+                long current = fullAt.get();
+                long next = Math.max(current, now) + costNanos;
+                long overflow = next - now - burstNanos;
+                if (overflow > 0) {
+                    return overflow;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
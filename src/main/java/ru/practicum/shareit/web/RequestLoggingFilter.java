@@ -0,0 +1,170 @@
+package ru.practicum.shareit.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.slf4j.event.Level;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Одна запись журнала на запрос: метод, путь, статус, длительность и идентификатор корреляции.
+ * Идентификатор берётся из заголовка {@value #REQUEST_ID_HEADER} или генерируется, кладётся в MDC
+ * и возвращается клиенту. Записываются только запросы, попавшие в выборку, и только если уровень
+ * журнала {@code shareit.access} включён; иначе фильтр не замеряет время и не форматирует сообщение.
+ * <p>
+ * Асинхронный запрос записывается по завершении, а если он прерван таймаутом или ошибкой — сразу в этот
+ * момент, со статусом, который получит клиент, и полем {@code outcome}. Запрос записывается один раз.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestLoggingFilter extends OncePerRequestFilter {
+
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+
+    public static final String REQUEST_ID = "requestId";
+
+    private static final int MAX_REQUEST_ID_LENGTH = 64;
+
+    private static final Logger log = LoggerFactory.getLogger("shareit.access");
+
+    private final Level level;
+
+    private final double sampleRate;
+
+    public RequestLoggingFilter(@Value("${shareit.logging.requests.level:INFO}") Level level,
+                                @Value("${shareit.logging.requests.sample-rate:1.0}") double sampleRate) {
+        this.level = level;
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String requestId = request.getHeader(REQUEST_ID_HEADER);
+        if (requestId == null || requestId.isEmpty() || requestId.length() > MAX_REQUEST_ID_LENGTH) {
+            requestId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        }
+        response.setHeader(REQUEST_ID_HEADER, requestId);
+        MDC.put(REQUEST_ID, requestId);
+        boolean sampled = isEnabled() && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+        long start = sampled ? System.nanoTime() : 0;
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (sampled) {
+                if (request.isAsyncStarted()) {
+                    request.getAsyncContext().addListener(new AccessLogListener(request, response, requestId, start));
+                } else {
+                    write(request, response, requestId, start);
+                }
+            }
+            MDC.remove(REQUEST_ID);
+        }
+    }
+
+    private boolean isEnabled() {
+        switch (level) {
+            case ERROR:
+                return log.isErrorEnabled();
+            case WARN:
+                return log.isWarnEnabled();
+            case INFO:
+                return log.isInfoEnabled();
+            case DEBUG:
+                return log.isDebugEnabled();
+            default:
+                return log.isTraceEnabled();
+        }
+    }
+
+    private void write(HttpServletRequest request, HttpServletResponse response, String requestId, long start) {
+        write(request, requestId, start, response.getStatus(), null);
+    }
+
+    private void write(HttpServletRequest request, String requestId, long start, int status, String outcome) {
+        String format = outcome == null ? "method={} uri={} status={} durationUs={} requestId={}"
+                : "method={} uri={} status={} durationUs={} requestId={} outcome={}";
+        Object[] args = {request.getMethod(), request.getRequestURI(), status,
+                TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start), requestId, outcome};
+        switch (level) {
+            case ERROR:
+                log.error(format, args);
+                break;
+            case WARN:
+                log.warn(format, args);
+                break;
+            case INFO:
+                log.info(format, args);
+                break;
+            case DEBUG:
+                log.debug(format, args);
+                break;
+            default:
+                log.trace(format, args);
+        }
+    }
+
+    private final class AccessLogListener implements AsyncListener {
+
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final String requestId;
+        private final long start;
+        private final AtomicBoolean written = new AtomicBoolean();
+
+        private AccessLogListener(HttpServletRequest request, HttpServletResponse response, String requestId,
+                                  long start) {
+            this.request = request;
+            this.response = response;
+            this.requestId = requestId;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            if (written.compareAndSet(false, true)) {
+                write(request, response, requestId, start);
+            }
+        }
+
+        /**
+         * Незакоммиченный ответ после таймаута Spring MVC завершает с кодом 503.
+         */
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            interrupted(HttpStatus.SERVICE_UNAVAILABLE, "timeout");
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            interrupted(HttpStatus.INTERNAL_SERVER_ERROR, "error");
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        private void interrupted(HttpStatus uncommittedStatus, String outcome) {
+            if (written.compareAndSet(false, true)) {
+                int status = response.isCommitted() ? response.getStatus() : uncommittedStatus.value();
+                write(request, requestId, start, status, outcome);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ru.practicum.shareit.web;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * С {@code shareit.web.executor=virtual} Tomcat обслуживает каждый запрос в отдельном виртуальном потоке,
+ * и обработчики вместе с вызовами сервисов и хранилищ не упираются в размер пула
+ * {@code server.tomcat.threads.max}. Сборка остаётся на Java 11, поэтому исполнитель создаётся
+ * через отражение; на JVM без виртуальных потоков (до Java 21) остаётся обычный пул Tomcat.
+ * Одновременность запросов в этом режиме ограничивает {@link ConcurrencyLimitFilter}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "shareit.web.executor", havingValue = "virtual")
+@Slf4j
+public class VirtualThreadsConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadsCustomizer() {
+        return protocolHandler -> {
+            ExecutorService executor = newVirtualThreadPerTaskExecutor();
+            if (executor != null) {
+                protocolHandler.setExecutor(executor);
+                log.info("Запросы обслуживаются в виртуальных потоках");
+            }
+        };
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            log.warn("Виртуальные потоки недоступны в Java {}, запросы обслуживаются пулом Tomcat",
+                    Runtime.version().feature());
+            return null;
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Не удалось создать исполнитель на виртуальных потоках", e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS requests_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS items_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS users (
+    id      BIGINT PRIMARY KEY,
+    name    VARCHAR(255) NOT NULL,
+    email   VARCHAR(512) NOT NULL,
+    version BIGINT       NOT NULL DEFAULT 0,
+    CONSTRAINT uq_users_email UNIQUE (email)
+);
+
+CREATE TABLE IF NOT EXISTS requests (
+    id           BIGINT PRIMARY KEY,
+    description  VARCHAR(512) NOT NULL,
+    requester_id BIGINT       NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    created      TIMESTAMP    NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS items (
+    id           BIGINT PRIMARY KEY,
+    name         VARCHAR(255) NOT NULL,
+    description  VARCHAR(512) NOT NULL,
+    is_available BOOLEAN      NOT NULL,
+    owner_id     BIGINT       NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    request_id   BIGINT REFERENCES requests (id) ON DELETE SET NULL,
+    version      BIGINT       NOT NULL DEFAULT 0
+);
+
+-- базы, созданные до появления версий, получают столбцы с нулевой версией
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE items ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS idx_items_owner_id ON items (owner_id, id);
+CREATE INDEX IF NOT EXISTS idx_items_request_id ON items (request_id);
+CREATE INDEX IF NOT EXISTS idx_requests_requester_id ON requests (requester_id, created);
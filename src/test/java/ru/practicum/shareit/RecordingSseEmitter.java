@@ -0,0 +1,85 @@
+package ru.practicum.shareit;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Эмиттер, который вместо записи в ответ складывает события в очередь: имя события и его данные.
+ * После {@link #block()} запись ждёт {@link #release()} — так ведёт себя клиент, переставший читать.
+ */
+public class RecordingSseEmitter extends SseEmitter {
+
+    private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+
+    private volatile boolean completed;
+
+    @Override
+    public void send(SseEventBuilder builder) throws IOException {
+        try {
+            gate.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        String name = null;
+        Object data = null;
+        for (DataWithMediaType part : builder.build()) {
+            if (part.getData() instanceof String) {
+                for (String line : ((String) part.getData()).split("\n")) {
+                    if (line.startsWith("event:")) {
+                        name = line.substring("event:".length());
+                    }
+                }
+            } else {
+                data = part.getData();
+            }
+        }
+        if (name != null) {
+            events.add(new Event(name, data));
+        }
+    }
+
+    @Override
+    public void complete() {
+        completed = true;
+        super.complete();
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void block() {
+        gate = new CountDownLatch(1);
+    }
+
+    public void release() {
+        gate.countDown();
+    }
+
+    /**
+     * Следующее событие; {@code null}, если его не было за секунду.
+     */
+    public Event next() throws InterruptedException {
+        return events.poll(1, TimeUnit.SECONDS);
+    }
+
+    public static final class Event {
+
+        public final String name;
+
+        public final Object data;
+
+        Event(String name, Object data) {
+            this.name = name;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package ru.practicum.shareit.booking.mem;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.Concurrently;
+import ru.practicum.shareit.booking.BookingState;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.validation.exception.ConflictException;
+import ru.practicum.shareit.validation.exception.ValidationException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BookingRepositoryImplTest {
+
+    private static final long ITEM = 1L;
+    private static final long OWNER = 10L;
+    private static final long BOOKER = 20L;
+    private static final LocalDateTime NOW = LocalDateTime.of(2022, 8, 10, 12, 0);
+
+    private final BookingRepositoryImpl bookingRepository = new BookingRepositoryImpl();
+
+    @Test
+    void approvedBookingBlocksOnlyOverlappingIntervals() {
+        Booking approved = approve(add(hours(0, 4)));
+
+        assertThrows(ConflictException.class, () -> add(hours(-2, 1)));
+        assertThrows(ConflictException.class, () -> add(hours(3, 6)));
+        assertThrows(ConflictException.class, () -> add(hours(1, 2)));
+        assertThrows(ConflictException.class, () -> add(hours(-1, 5)));
+        assertThrows(ConflictException.class, () -> add(hours(0, 4)));
+        add(hours(-2, 0));
+        add(hours(4, 6));
+        add(new Booking(null, at(1), at(2), ITEM + 1, BOOKER, BookingStatus.WAITING));
+
+        Booking waiting = add(hours(4, 8));
+        Booking overlapping = add(hours(5, 9));
+        approve(waiting);
+        assertThrows(ConflictException.class, () -> approve(overlapping));
+        assertThrows(ValidationException.class,
+                () -> bookingRepository.updateStatus(approved.getId(), BookingStatus.REJECTED));
+    }
+
+    @Test
+    void concurrentDecisionsApplyOnlyOnce() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            Booking booking = add(hours(10 * i, 10 * i + 1));
+            AtomicInteger applied = new AtomicInteger();
+            Concurrently.run(2, thread -> {
+                try {
+                    bookingRepository.updateStatus(booking.getId(),
+                            thread == 0 ? BookingStatus.APPROVED : BookingStatus.REJECTED);
+                    applied.incrementAndGet();
+                } catch (ValidationException e) {
+                    // решение уже принято другим потоком
+                }
+            });
+            assertEquals(1, applied.get());
+            BookingStatus status = bookingRepository.getById(booking.getId()).orElseThrow().getStatus();
+            assertEquals(status == BookingStatus.REJECTED, ids(BookingState.REJECTED).contains(booking.getId()));
+            assertFalse(ids(BookingState.WAITING).contains(booking.getId()));
+        }
+    }
+
+    @Test
+    void statesFilterByTimeAndStatus() {
+        Booking past = add(hours(-5, -3));
+        Booking endsNow = add(hours(-2, 0));
+        Booking current = add(hours(-1, 1));
+        Booking startsNow = add(hours(0, 2));
+        Booking future = add(hours(3, 5));
+        Booking rejected = add(hours(6, 7));
+        bookingRepository.updateStatus(rejected.getId(), BookingStatus.REJECTED);
+        approve(future);
+
+        assertEquals(ids(rejected, future, startsNow, current, endsNow, past), ids(BookingState.ALL));
+        assertEquals(ids(rejected, future), ids(BookingState.FUTURE));
+        assertEquals(ids(startsNow, current), ids(BookingState.CURRENT));
+        assertEquals(ids(past), ids(BookingState.PAST));
+        assertEquals(ids(startsNow, current, endsNow, past), ids(BookingState.WAITING));
+        assertEquals(ids(rejected), ids(BookingState.REJECTED));
+        assertEquals(ids(future, startsNow), bookingRepository.findByOwner(OWNER, BookingState.ALL, NOW, 1, 2)
+                .stream().map(Booking::getId).collect(Collectors.toList()));
+        assertEquals(List.of(), bookingRepository.findByBooker(OWNER, BookingState.ALL, NOW, 0, 10));
+    }
+
+    private Booking add(Booking booking) {
+        return bookingRepository.add(booking, OWNER);
+    }
+
+    private Booking approve(Booking booking) {
+        return bookingRepository.updateStatus(booking.getId(), BookingStatus.APPROVED);
+    }
+
+    private List<Long> ids(BookingState state) {
+        return bookingRepository.findByBooker(BOOKER, state, NOW, 0, Integer.MAX_VALUE).stream()
+                .map(Booking::getId)
+                .collect(Collectors.toList());
+    }
+
+    private static List<Long> ids(Booking... bookings) {
+        return List.of(bookings).stream().map(Booking::getId).collect(Collectors.toList());
+    }
+
+    private static Booking hours(int from, int to) {
+        return new Booking(null, at(from), at(to), ITEM, BOOKER, BookingStatus.WAITING);
+    }
+
+    private static LocalDateTime at(int hours) {
+        return NOW.plusHours(hours);
+    }
+}
@@ -0,0 +1,147 @@
+package ru.practicum.shareit.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.shareit.ShareItApp;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ClusterEmailReservationsTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private final int[] ports = new int[2];
+
+    @BeforeEach
+    void choosePorts() throws IOException {
+        for (int node = 0; node < ports.length; node++) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                ports[node] = socket.getLocalPort();
+            }
+        }
+    }
+
+    @AfterEach
+    void stop() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void emailIsUniqueAcrossNodes() throws Exception {
+        start(0);
+        start(1);
+        ClusterTopology topology = nodes.get(0).getBean(ClusterTopology.class);
+        String first = emailFor(topology, 1, "first");
+        String second = emailFor(topology, 0, "second");
+
+        long owner = id(send(0, "POST", "/users", user(first)));
+        assertEquals(409, send(1, "POST", "/users", user(first)).statusCode());
+        assertEquals(409, send(1, "POST", "/users/batch",
+                "[" + user(emailFor(topology, 0, "batch")) + "," + user(first) + "]").statusCode());
+        assertEquals(200, send(0, "POST", "/users", user(emailFor(topology, 0, "batch"))).statusCode());
+
+        long other = id(send(1, "POST", "/users", user(second)));
+        assertEquals(409, send(0, "PATCH", "/users/" + other, user(first)).statusCode());
+        String changed = emailFor(topology, 1, "changed");
+        assertEquals(200, send(0, "PATCH", "/users/" + other, user(changed)).statusCode());
+        assertEquals(409, send(0, "POST", "/users", user(changed)).statusCode());
+        assertEquals(200, send(0, "POST", "/users", user(second)).statusCode());
+
+        assertEquals(200, send(1, "DELETE", "/users/" + owner, null).statusCode());
+        assertEquals(200, send(1, "POST", "/users", user(first)).statusCode());
+        assertEquals(404, send(1, "POST", ClusterEmailReservations.PATH + "?email=x@mail.ru", null).statusCode());
+    }
+
+    @Test
+    void restartedNodeSynchronizesReservations() throws Exception {
+        start(0);
+        start(1);
+        ClusterTopology topology = nodes.get(0).getBean(ClusterTopology.class);
+        String kept = emailFor(topology, 1, "kept");
+        String lost = emailFor(topology, 0, "lost");
+        assertEquals(200, send(0, "POST", "/users", user(kept)).statusCode());
+        assertEquals(200, send(1, "POST", "/users", user(lost)).statusCode());
+
+        // хранилище в памяти теряет пользователей узла 1, а узел 0 хранит резервирование их адресов
+        nodes.remove(1).close();
+        start(1);
+
+        assertEquals(409, send(1, "POST", "/users", user(kept)).statusCode());
+        assertEquals(200, send(0, "POST", "/users", user(lost)).statusCode());
+    }
+
+    @Test
+    void bookingsAndRequestsAreRefused() throws Exception {
+        start(0);
+        start(1);
+        long user = id(send(0, "POST", "/users", user("requester@mail.ru")));
+
+        assertEquals(501, send(0, "POST", "/requests", "{\"description\":\"Нужна дрель\"}", user).statusCode());
+        assertEquals(501, send(1, "GET", "/requests/all", null, user).statusCode());
+        assertEquals(501, send(1, "GET", "/bookings", null, user).statusCode());
+        assertEquals(404, send(1, "POST", "/items",
+                "{\"name\":\"Дрель\",\"description\":\"Простая\",\"available\":true,\"request\":1}",
+                user).statusCode());
+    }
+
+    private void start(int node) {
+        nodes.add(node, new SpringApplicationBuilder(ShareItApp.class).run(
+                "--server.port=" + ports[node],
+                "--spring.main.banner-mode=off",
+                "--shareit.cluster.enabled=true",
+                "--shareit.cluster.nodes=http://127.0.0.1:" + ports[0] + ",http://127.0.0.1:" + ports[1],
+                "--shareit.cluster.node-id=" + node));
+    }
+
+    /**
+     * Адрес почты, который резервирует узел {@code node}.
+     */
+    private static String emailFor(ClusterTopology topology, int node, String name) {
+        for (int i = 0; ; i++) {
+            String email = name + i + "@mail.ru";
+            if (topology.nodeForEmail(email) == node) {
+                return email;
+            }
+        }
+    }
+
+    private static String user(String email) {
+        return "{\"name\":\"user\",\"email\":\"" + email + "\"}";
+    }
+
+    private long id(HttpResponse<String> response) throws Exception {
+        assertEquals(200, response.statusCode(), response.body());
+        return ((Number) objectMapper.readValue(response.body(), Map.class).get("id")).longValue();
+    }
+
+    private HttpResponse<String> send(int node, String method, String path, String body) throws Exception {
+        return send(node, method, path, body, null);
+    }
+
+    private HttpResponse<String> send(int node, String method, String path, String body, Long userId)
+            throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + ports[node] + path))
+                .header("Content-Type", "application/json");
+        if (userId != null) {
+            request.header("X-Sharer-User-Id", userId.toString());
+        }
+        request.method(method, body == null
+                ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,41 @@
+package ru.practicum.shareit.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    void spreadsKeysEvenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(4, 128);
+        int[] counts = new int[4];
+
+        for (long key = 1; key <= KEYS; key++) {
+            counts[ring.nodeFor(key)]++;
+        }
+
+        for (int count : counts) {
+            assertTrue(Math.abs(count - KEYS / 4) < KEYS / 4 / 5, "Неравномерное распределение: " + count);
+        }
+    }
+
+    @Test
+    void addingNodeMovesKeysOnlyToIt() {
+        ConsistentHashRing before = new ConsistentHashRing(3, 128);
+        ConsistentHashRing after = new ConsistentHashRing(4, 128);
+        int moved = 0;
+
+        for (long key = 1; key <= KEYS; key++) {
+            int node = after.nodeFor(key);
+            if (node != before.nodeFor(key)) {
+                assertEquals(3, node);
+                moved++;
+            }
+        }
+
+        assertTrue(moved > KEYS / 6 && moved < KEYS / 3, "Переехало ключей: " + moved);
+    }
+}
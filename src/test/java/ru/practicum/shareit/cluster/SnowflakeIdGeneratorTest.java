@@ -0,0 +1,65 @@
+package ru.practicum.shareit.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeIdGeneratorTest {
+
+    private final AtomicLong clock = new AtomicLong(SnowflakeIdGenerator.EPOCH.toEpochMilli() + 1000);
+
+    @Test
+    void idsGrowAndCarryNodeEvenWhenClockStallsOrGoesBack() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(5, clock::get);
+
+        long previous = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (i == 5000) {
+                clock.addAndGet(-500);
+            }
+            long id = generator.next();
+            assertTrue(id > previous);
+            assertEquals(5, SnowflakeIdGenerator.nodeOf(id));
+            previous = id;
+        }
+        assertEquals(previous, generator.last());
+    }
+
+    @Test
+    void blockContinuesSequenceAcrossMilliseconds() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(5, clock::get);
+        long first = generator.next();
+
+        long[] block = generator.next(5000);
+
+        long previous = first;
+        for (long id : block) {
+            assertTrue(id > previous);
+            assertEquals(5, SnowflakeIdGenerator.nodeOf(id));
+            previous = id;
+        }
+        assertEquals(previous, generator.last());
+        assertTrue(generator.next() > previous);
+    }
+
+    @Test
+    void nodesNeverCollide() {
+        SnowflakeIdGenerator first = new SnowflakeIdGenerator(1, clock::get);
+        SnowflakeIdGenerator second = new SnowflakeIdGenerator(2, clock::get);
+
+        assertNotEquals(first.next(), second.next());
+        assertNotEquals(first.next(), second.next());
+    }
+
+    @Test
+    void continuesAfterRestoredId() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3, clock::get);
+        long restored = new SnowflakeIdGenerator(3, () -> clock.get() + 60_000).next();
+
+        generator.advanceTo(restored);
+
+        assertTrue(generator.next() > restored);
+    }
+}
@@ -0,0 +1,27 @@
+package ru.practicum.shareit.item.event;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.item.dto.ItemDto;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemEventRingTest {
+
+    @Test
+    void keepsLastCircleOfEvents() {
+        ItemEventRing ring = new ItemEventRing(4);
+        assertNull(ring.read(1));
+
+        for (long id = 1; id <= 6; id++) {
+            assertEquals(id, ring.publish(ItemEventType.CREATED, new ItemDto(id, "Дрель", "Ударная", true, 1L, null)));
+        }
+
+        assertEquals(6, ring.cursor());
+        assertNull(ring.read(2));
+        assertNull(ring.read(7));
+        ItemEvent event = ring.read(3);
+        assertEquals(3, event.getSequence());
+        assertEquals(ItemEventType.CREATED, event.getType());
+        assertEquals(new ItemDto(3L, "Дрель", "Ударная", true, 1L, null), event.getItem());
+    }
+}
@@ -0,0 +1,123 @@
+package ru.practicum.shareit.item.event;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.RecordingSseEmitter;
+import ru.practicum.shareit.item.dto.ItemDto;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemEventStreamTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private ItemEventStream stream;
+
+    @AfterEach
+    void stop() {
+        stream.stop();
+    }
+
+    @Test
+    void stalledSubscriberIsDroppedWithoutDelayingOthers() throws Exception {
+        start(Duration.ofMillis(10));
+        RecordingSseEmitter stalled = new RecordingSseEmitter();
+        stalled.block();
+        stream.subscribe(stalled, null, null, null);
+        stream.publish(ItemEventType.CREATED, item(1L));
+        await(() -> counter("shareit.items.stream.dropped") == 1);
+        RecordingSseEmitter reader = new RecordingSseEmitter();
+        stream.subscribe(reader, null, null, null);
+
+        stream.publish(ItemEventType.CREATED, item(2L));
+
+        // единственный поток отправителей занят зависшей записью, событие доставляет поток взамен него
+        RecordingSseEmitter.Event event = reader.next();
+        assertEquals("created", event.name);
+        assertEquals(2L, ((ItemDto) event.data).getId());
+        assertEquals(1, gauge("shareit.items.stream.subscribers"));
+        assertEquals(1, gauge("shareit.items.stream.stalled-senders"));
+        assertFalse(stalled.isCompleted());
+
+        stalled.release();
+        await(stalled::isCompleted);
+        assertEquals(0, gauge("shareit.items.stream.stalled-senders"));
+    }
+
+    @Test
+    void lappedSubscriberIsResetAndContinues() throws Exception {
+        start(Duration.ofMillis(200));
+        RecordingSseEmitter emitter = new RecordingSseEmitter();
+        stream.subscribe(emitter, null, null, null);
+
+        publishLap();
+
+        RecordingSseEmitter.Event reset = emitter.next();
+        assertEquals(ItemEventStream.RESET_EVENT, reset.name);
+        assertEquals(Map.of("lastEventId", 8L), reset.data);
+        stream.publish(ItemEventType.UPDATED, item(9L));
+        RecordingSseEmitter.Event event = emitter.next();
+        assertEquals("updated", event.name);
+        assertEquals(9L, ((ItemDto) event.data).getId());
+        assertEquals(1, counter("shareit.items.stream.resets"));
+        assertEquals(0, counter("shareit.items.stream.dropped"));
+    }
+
+    @Test
+    void subscriberLappedInRowIsDropped() throws Exception {
+        start(Duration.ofMillis(200));
+        RecordingSseEmitter emitter = new RecordingSseEmitter();
+        stream.subscribe(emitter, null, null, null);
+
+        for (int reset = 0; reset < 3; reset++) {
+            publishLap();
+            assertEquals(ItemEventStream.RESET_EVENT, emitter.next().name);
+        }
+        publishLap();
+
+        assertNull(emitter.next());
+        assertTrue(emitter.isCompleted());
+        assertEquals(4, counter("shareit.items.stream.resets"));
+        assertEquals(1, counter("shareit.items.stream.dropped"));
+        assertEquals(0, gauge("shareit.items.stream.subscribers"));
+    }
+
+    private void start(Duration pollInterval) {
+        stream = new ItemEventStream(4, pollInterval, Duration.ofHours(1), Duration.ofHours(1),
+                Duration.ofMillis(100), 1);
+        stream.bindTo(registry);
+    }
+
+    /**
+     * Публикует два круга буфера между проходами планировщика.
+     */
+    private void publishLap() {
+        for (int i = 0; i < 8; i++) {
+            stream.publish(ItemEventType.CREATED, item((long) i));
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private double counter(String name) {
+        return registry.get(name).functionCounter().count();
+    }
+
+    private double gauge(String name) {
+        return registry.get(name).gauge().value();
+    }
+
+    private static ItemDto item(Long id) {
+        return new ItemDto(id, "Дрель", "Ударная", true, 1L, null);
+    }
+}
@@ -0,0 +1,120 @@
+package ru.practicum.shareit.item.jpa;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.practicum.shareit.item.mem.ItemRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.mem.ItemRequestRepository;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.user.mem.UserRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.UserService;
+import ru.practicum.shareit.validation.exception.ConflictException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles({"jpa", "test"})
+class JpaItemRepositoryTest {
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ItemRequestRepository itemRequestRepository;
+
+    @Autowired
+    private UserService userService;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.create(new User(null, "owner", System.nanoTime() + "@mail.ru"));
+    }
+
+    @Test
+    void repositoriesAreBackedByJpa() {
+        assertTrue(itemRepository instanceof JpaItemRepository);
+        assertThrows(ConflictException.class,
+                () -> userRepository.create(new User(null, "copy", owner.getEmail())));
+    }
+
+    @Test
+    void itemsArePagedStreamedAndSearched() {
+        for (int i = 0; i < 1200; i++) {
+            itemRepository.add(new Item(null, "Дрель " + i, "Простая дрель 100%", i % 2 == 0,
+                    new User(owner.getId(), null, null), null));
+        }
+
+        List<Item> page = itemRepository.findItemByUserId(owner.getId(), 10, 5);
+        assertEquals(5, page.size());
+        assertEquals(owner.getId(), page.get(0).getOwner().getId());
+        assertEquals(1200, itemRepository.streamItemByUserId(owner.getId()).count());
+        assertEquals(600, itemRepository.streamSearch("ДРЕЛЬ").count());
+        assertEquals(600, itemRepository.streamSearch("0%").count());
+        assertEquals(3, itemRepository.search("дрель 1", 0, 3).size());
+        assertEquals(0, itemRepository.search("_", 0, 3).size());
+    }
+
+    @Test
+    void searchRanksNameMatchesFirst() {
+        User itemOwner = new User(owner.getId(), null, null);
+        itemRepository.add(new Item(null, "Перфоратор", "Стамеска-перфолента", true, itemOwner, null));
+        Item inName = itemRepository.add(new Item(null, "Стамеска", "Плоская", true, itemOwner, null));
+
+        List<Item> found = itemRepository.search("стамеска", 0, 2);
+        assertEquals(inName.getId(), found.get(0).getId());
+        assertEquals(2, found.size());
+    }
+
+    @Test
+    void itemIsUpdatedAndDeletedOnlyByOwner() {
+        Item item = itemRepository.add(new Item(null, "Отвертка", "Крестовая", true,
+                new User(owner.getId(), null, null), null));
+
+        item.setName("Шуруповерт");
+        assertFalse(itemRepository.update(owner.getId() + 1000, item));
+        assertEquals("Отвертка", itemRepository.getById(item.getId()).orElseThrow().getName());
+        assertTrue(itemRepository.update(owner.getId(), item));
+        assertEquals("Шуруповерт", itemRepository.getById(item.getId()).orElseThrow().getName());
+
+        itemRepository.deleteByUserIdAndItemId(owner.getId() + 1000, item.getId());
+        assertTrue(itemRepository.getById(item.getId()).isPresent());
+        itemRepository.deleteByUserIdAndItemId(owner.getId(), item.getId());
+        assertTrue(itemRepository.getById(item.getId()).isEmpty());
+
+        List<Long> ids = userRepository.streamAll().map(User::getId).collect(Collectors.toList());
+        assertTrue(ids.contains(owner.getId()));
+    }
+
+    @Test
+    void deletingUserDeletesItemsAndDetachesAnswers() {
+        User requester = userRepository.create(new User(null, "requester", System.nanoTime() + "@mail.ru"));
+        Item saw = itemRepository.add(new Item(null, "Пила", "Ножовка", true,
+                new User(requester.getId(), null, null), null));
+        ItemRequest request = itemRequestRepository.add(
+                new ItemRequest(null, "Нужен рубанок", requester.getId(), LocalDateTime.of(2022, 8, 1, 12, 0)));
+        Item plane = itemRepository.add(new Item(null, "Рубанок", "Ручной", true,
+                new User(owner.getId(), null, null), request));
+        long version = itemRepository.getById(plane.getId()).orElseThrow().getVersion();
+
+        userService.delete(requester.getId());
+
+        assertTrue(itemRepository.getById(saw.getId()).isEmpty());
+        assertTrue(itemRequestRepository.getById(request.getId()).isEmpty());
+        Item detached = itemRepository.getById(plane.getId()).orElseThrow();
+        assertNull(detached.getRequest());
+        assertEquals(version + 1, detached.getVersion());
+    }
+}
@@ -0,0 +1,78 @@
+package ru.practicum.shareit.item.mem;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.user.model.User;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactItemRepositoryTest {
+
+    private final CompactItemRepository itemRepository = new CompactItemRepository();
+
+    @Test
+    void keepsOwnerRequestAndSearchIndexesInSync() {
+        Item drill = itemRepository.add(item("Дрель", 1L, 7L));
+        Item saw = itemRepository.add(item("Пила", 1L, null));
+        Item ladder = itemRepository.add(item("Стремянка", 2L, 7L));
+
+        itemRepository.update(1L, new Item(drill.getId(), "Перфоратор", "Перфоратор в аренду", false,
+                new User(1L, null, null), null));
+        itemRepository.deleteByUserIdAndItemId(2L, ladder.getId());
+        Item tent = itemRepository.add(item("Палатка", 2L, 7L));
+
+        assertEquals(List.of(drill.getId(), saw.getId()), ids(itemRepository.findItemByUserId(1L, 0, 10)));
+        assertEquals(List.of(saw.getId()), ids(itemRepository.findItemByUserId(1L, 1, 10)));
+        assertEquals(Map.of(7L, List.of(tent)), itemRepository.findByRequestIds(List.of(7L, 8L)));
+        assertEquals(List.of(tent), itemRepository.search("палатка", 0, 10));
+        assertTrue(itemRepository.search("дрель", 0, 10).isEmpty());
+        assertFalse(itemRepository.getById(drill.getId()).orElseThrow().getAvailable());
+        assertTrue(itemRepository.getById(ladder.getId()).isEmpty());
+        assertEquals(3, itemRepository.streamAll().count());
+    }
+
+    @Test
+    void ignoresChangesOfForeignItems() {
+        Item drill = itemRepository.add(item("Дрель", 1L, null));
+
+        Item foreign = item("Пила", 2L, null);
+        foreign.setId(drill.getId());
+        assertFalse(itemRepository.update(2L, foreign));
+        itemRepository.deleteByUserIdAndItemId(2L, drill.getId());
+
+        assertEquals(drill, itemRepository.getById(drill.getId()).orElseThrow());
+
+        Item renamed = item("Перфоратор", 1L, null);
+        renamed.setId(drill.getId());
+        Item stale = item("Дрель", 1L, null);
+        stale.setId(drill.getId());
+        assertTrue(itemRepository.update(1L, renamed));
+        assertThrows(OptimisticLockingFailureException.class, () -> itemRepository.update(1L, stale));
+        assertEquals("Перфоратор", itemRepository.getById(drill.getId()).orElseThrow().getName());
+    }
+
+    @Test
+    void zeroIdIsNotFound() {
+        Item drill = itemRepository.add(item("Дрель", 1L, null));
+
+        assertTrue(itemRepository.getById(0L).isEmpty());
+        itemRepository.deleteByUserIdAndItemId(1L, 0L);
+
+        assertEquals(List.of(drill), itemRepository.findItemByUserId(1L, 0, 10));
+    }
+
+    private static Item item(String name, long ownerId, Long requestId) {
+        ItemRequest request = requestId == null ? null : new ItemRequest(requestId, null, null, null);
+        return new Item(null, name, name + " в аренду", true, new User(ownerId, null, null), request);
+    }
+
+    private static List<Long> ids(List<Item> items) {
+        return items.stream().map(Item::getId).collect(Collectors.toList());
+    }
+}
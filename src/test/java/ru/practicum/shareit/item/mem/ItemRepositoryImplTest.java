@@ -0,0 +1,155 @@
+package ru.practicum.shareit.item.mem;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import ru.practicum.shareit.Concurrently;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.user.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ItemRepositoryImplTest {
+
+    private static final int THREADS = 32;
+    private static final int ITEMS_PER_THREAD = 1000;
+    private static final int OWNERS = 8;
+
+    private final ItemRepositoryImpl itemRepository = new ItemRepositoryImpl();
+
+    @Test
+    void concurrentAddsAreNotLost() throws Exception {
+        Concurrently.run(THREADS, thread -> {
+            User owner = new User((long) thread % OWNERS + 1, "owner", "owner@mail.ru");
+            for (int i = 0; i < ITEMS_PER_THREAD; i++) {
+                itemRepository.add(new Item(null, "Дрель " + thread, "Дрель номер " + i, true, owner, null));
+            }
+        });
+
+        int total = 0;
+        for (long owner = 1; owner <= OWNERS; owner++) {
+            total += itemRepository.findItemByUserId(owner, 0, Integer.MAX_VALUE).size();
+        }
+        assertEquals(THREADS * ITEMS_PER_THREAD, total);
+        assertEquals(THREADS * ITEMS_PER_THREAD, itemRepository.streamSearch("дрель").count());
+    }
+
+    @Test
+    void concurrentUpdatesAndDeletesKeepIndexConsistent() throws Exception {
+        User owner = new User(1L, "owner", "owner@mail.ru");
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < THREADS * ITEMS_PER_THREAD; i++) {
+            ids.add(itemRepository.add(new Item(null, "Дрель", "Простая дрель", true, owner, null)).getId());
+        }
+
+        Concurrently.run(THREADS, thread -> {
+            for (int i = thread; i < ids.size(); i += THREADS) {
+                Long itemId = ids.get(i);
+                if (i % 2 == 0) {
+                    itemRepository.deleteByUserIdAndItemId(1L, itemId);
+                } else {
+                    itemRepository.update(1L, new Item(itemId, "Отвертка", "Простая отвертка", true, owner, null));
+                }
+            }
+        });
+
+        int remaining = THREADS * ITEMS_PER_THREAD / 2;
+        assertEquals(remaining, itemRepository.findItemByUserId(1L, 0, Integer.MAX_VALUE).size());
+        assertEquals(remaining, itemRepository.streamSearch("отвертка").count());
+        assertEquals(0, itemRepository.streamSearch("дрель").count());
+    }
+
+    @Test
+    void changesBumpItemAndOwnerVersions() {
+        User owner = new User(1L, "owner", "owner@mail.ru");
+        Item drill = itemRepository.add(new Item(null, "Дрель", "Простая дрель", true, owner, null));
+        long ownerVersion = itemRepository.getOwnerVersion(1L);
+
+        itemRepository.update(1L, new Item(drill.getId(), "Дрель", "Ударная дрель", true, owner, null));
+        assertEquals(drill.getVersion() + 1, itemRepository.getById(drill.getId()).orElseThrow().getVersion());
+        assertTrue(itemRepository.getOwnerVersion(1L) > ownerVersion);
+
+        ownerVersion = itemRepository.getOwnerVersion(1L);
+        itemRepository.deleteByUserIdAndItemId(1L, drill.getId());
+        assertTrue(itemRepository.getOwnerVersion(1L) > ownerVersion);
+        assertEquals(0, itemRepository.getOwnerVersion(2L));
+    }
+
+    @Test
+    void updateBasedOnStaleVersionIsRejected() {
+        User owner = new User(1L, "owner", "owner@mail.ru");
+        Item drill = itemRepository.add(new Item(null, "Дрель", "Простая дрель", true, owner, null));
+        Item renamed = new Item(drill.getId(), "Перфоратор", "Простая дрель", true, owner, null);
+        Item described = new Item(drill.getId(), "Дрель", "Ударная дрель", true, owner, null);
+
+        assertTrue(itemRepository.update(1L, renamed));
+        assertThrows(OptimisticLockingFailureException.class, () -> itemRepository.update(1L, described));
+        assertEquals(renamed, itemRepository.getById(drill.getId()).orElseThrow());
+    }
+
+    @Test
+    void keepsAnswersOfRequestsIndexed() {
+        User owner = new User(1L, "owner", "owner@mail.ru");
+        ItemRequest drillRequest = new ItemRequest(1L, "Нужна дрель", 2L, null);
+        ItemRequest sawRequest = new ItemRequest(2L, "Нужна пила", 2L, null);
+        Item drill = itemRepository.add(new Item(null, "Дрель", "Простая дрель", true, owner, drillRequest));
+        Item saw = itemRepository.add(new Item(null, "Пила", "Ножовка", true, owner, drillRequest));
+        Item hammer = itemRepository.add(new Item(null, "Молоток", "Слесарный", true, owner, null));
+        assertEquals(Map.of(1L, List.of(drill, saw)), itemRepository.findByRequestIds(List.of(1L, 2L, 3L)));
+
+        Item answer = new Item(saw.getId(), "Пила", "Ножовка", true, owner, sawRequest);
+        answer.setVersion(saw.getVersion());
+        assertTrue(itemRepository.update(1L, answer));
+        itemRepository.deleteByUserIdAndItemId(1L, drill.getId());
+        assertEquals(Map.of(2L, List.of(answer)), itemRepository.findByRequestIds(List.of(1L, 2L)));
+
+        itemRepository.restore(List.of(drill, hammer), hammer.getId());
+        assertEquals(Map.of(1L, List.of(drill)), itemRepository.findByRequestIds(List.of(1L, 2L)));
+    }
+
+    @Test
+    void searchRanksNameMatchesAndWordBoundariesFirst() {
+        User owner = new User(1L, "owner", "owner@mail.ru");
+        Item inDescription = itemRepository.add(new Item(null, "Перфоратор", "Дрель и перфоратор", true, owner, null));
+        Item insideWord = itemRepository.add(new Item(null, "Минидрель", "Для гравировки", true, owner, null));
+        Item prefix = itemRepository.add(new Item(null, "Дрельмастер", "Набор", true, owner, null));
+        Item word = itemRepository.add(new Item(null, "Ударная дрель", "Мощная", true, owner, null));
+        Item wordInBoth = itemRepository.add(new Item(null, "Дрель", "Простая дрель", true, owner, null));
+        for (int i = 0; i < 100; i++) {
+            itemRepository.add(new Item(null, "Бур " + i, "Насадка для минидрель", true, owner, null));
+        }
+
+        assertEquals(List.of(wordInBoth.getId(), word.getId(), prefix.getId(), insideWord.getId()),
+                ids(itemRepository.search("дрель", 0, 4)));
+        assertEquals(List.of(prefix.getId(), insideWord.getId()), ids(itemRepository.search("дрель", 2, 2)));
+        assertEquals(List.of(inDescription.getId()), ids(itemRepository.search("ДРЕЛЬ", 4, 1)));
+    }
+
+    @Test
+    void fuzzySearchToleratesTyposAfterExactMatches() {
+        User owner = new User(1L, "owner", "owner@mail.ru");
+        Item drill = itemRepository.add(new Item(null, "Дрель", "Простая дрель", true, owner, null));
+        Item cordless = itemRepository.add(new Item(null, "Аккумуляторная дрель", "С двумя батареями", true, owner,
+                null));
+        Item drillMaster = itemRepository.add(new Item(null, "Дрельмастер", "Набор", true, owner, null));
+        itemRepository.add(new Item(null, "Отвертка", "Аккумуляторная", true, owner, null));
+
+        assertEquals(List.of(), itemRepository.search("дрлеь", 0, 10));
+        assertEquals(List.of(drill.getId(), cordless.getId()), ids(itemRepository.searchFuzzy("дрлеь", 0, 10)));
+        assertEquals(List.of(cordless.getId()), ids(itemRepository.searchFuzzy("акумуляторная дрел", 0, 10)));
+        assertEquals(List.of(drill.getId(), cordless.getId(), drillMaster.getId()),
+                ids(itemRepository.searchFuzzy("дрель", 0, 10)));
+        assertEquals(List.of(), itemRepository.searchFuzzy("дз", 0, 10));
+    }
+
+    private static List<Long> ids(List<Item> items) {
+        return items.stream().map(Item::getId).collect(Collectors.toList());
+    }
+}
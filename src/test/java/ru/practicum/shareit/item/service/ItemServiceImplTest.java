@@ -0,0 +1,101 @@
+package ru.practicum.shareit.item.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import ru.practicum.shareit.RecordingSseEmitter;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.event.ItemEventStream;
+import ru.practicum.shareit.item.mem.ItemRepositoryImpl;
+import ru.practicum.shareit.request.mem.ItemRequestRepositoryImpl;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.event.UserDeletedEvent;
+import ru.practicum.shareit.user.mem.UserRepositoryImpl;
+import ru.practicum.shareit.user.service.EmailReservations;
+import ru.practicum.shareit.user.service.UserServiceImpl;
+import ru.practicum.shareit.validation.exception.NotFoundException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemServiceImplTest {
+
+    private final ItemRepositoryImpl itemRepository = new ItemRepositoryImpl();
+    private final ItemRequestRepositoryImpl itemRequestRepository = new ItemRequestRepositoryImpl();
+    private final ItemEventStream itemEventStream = new ItemEventStream(64, Duration.ofMillis(10),
+            Duration.ofHours(1), Duration.ofHours(1), Duration.ofSeconds(5), 1);
+    private final UserServiceImpl userService = new UserServiceImpl(new UserRepositoryImpl(),
+            event -> itemService().userDeleted((UserDeletedEvent) event),
+            new DefaultListableBeanFactory().getBeanProvider(EmailReservations.class));
+    private final ItemServiceImpl itemService = new ItemServiceImpl(itemRepository, userService,
+            itemRequestRepository, itemEventStream);
+
+    @AfterEach
+    void stop() {
+        itemEventStream.stop();
+    }
+
+    @Test
+    void deletingUserPublishesChangesOfCascadedItems() throws Exception {
+        long requester = user("requester");
+        long owner = user("owner");
+        ItemDto saw = itemService.add(requester, item("Пила", null));
+        ItemRequest request = itemRequestRepository.add(
+                new ItemRequest(null, "Нужна дрель", requester, LocalDateTime.of(2022, 8, 1, 12, 0)));
+        ItemDto drill = itemService.add(owner, item("Дрель", request.getId()));
+        RecordingSseEmitter emitter = new RecordingSseEmitter();
+        itemEventStream.subscribe(emitter, null, null, null);
+
+        userService.delete(requester);
+
+        RecordingSseEmitter.Event deleted = emitter.next();
+        assertEquals("deleted", deleted.name);
+        assertEquals(saw.getId(), ((ItemDto) deleted.data).getId());
+        RecordingSseEmitter.Event updated = emitter.next();
+        assertEquals("updated", updated.name);
+        assertEquals(drill.getId(), ((ItemDto) updated.data).getId());
+        assertNull(((ItemDto) updated.data).getRequest());
+        assertNull(itemService.getById(drill.getId()).getRequest());
+        assertEquals(List.of(), itemRequestRepository.findByRequester(requester));
+        assertTrue(itemRepository.getById(saw.getId()).isEmpty());
+    }
+
+    @Test
+    void updateOfDeletedItemIsNotFound() {
+        long owner = user("owner");
+        ItemDto drill = itemService.add(owner, item("Дрель", null));
+        itemService.delete(owner, drill.getId());
+
+        assertThrows(NotFoundException.class, () -> itemService.update(drill.getId(), owner, item("Пила", null)));
+        assertTrue(itemRepository.getById(drill.getId()).isEmpty());
+    }
+
+    @Test
+    void itemForUnknownRequestIsNotFound() {
+        long owner = user("owner");
+        ItemRequest request = itemRequestRepository.add(
+                new ItemRequest(null, "Нужна дрель", owner, LocalDateTime.of(2022, 8, 1, 12, 0)));
+
+        assertThrows(NotFoundException.class, () -> itemService.add(owner, item("Дрель", request.getId() + 1)));
+        assertThrows(NotFoundException.class, () -> itemService.addAll(owner,
+                List.of(item("Пила", request.getId()), item("Дрель", request.getId() + 1))));
+        assertEquals(List.of(), itemService.getItems(owner, 0, 10));
+        assertEquals(request.getId(), itemService.add(owner, item("Дрель", request.getId())).getRequest());
+    }
+
+    private ItemServiceImpl itemService() {
+        return itemService;
+    }
+
+    private long user(String name) {
+        return userService.create(new UserDto(null, name, name + "@mail.ru")).getId();
+    }
+
+    private static ItemDto item(String name, Long request) {
+        return new ItemDto(null, name, name + " в аренду", true, null, request);
+    }
+}
@@ -0,0 +1,44 @@
+package ru.practicum.shareit.request.mem;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.request.model.ItemRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ItemRequestRepositoryImplTest {
+
+    private final ItemRequestRepositoryImpl itemRequestRepository = new ItemRequestRepositoryImpl();
+
+    @Test
+    void listsRequestsNewestFirst() {
+        ItemRequest drill = request("Нужна дрель", 1L);
+        ItemRequest saw = request("Нужна пила", 2L);
+        ItemRequest hammer = request("Нужен молоток", 1L);
+        ItemRequest ladder = request("Нужна стремянка", 3L);
+        ItemRequest tent = request("Нужна палатка", 2L);
+
+        assertEquals(List.of(hammer, drill), itemRequestRepository.findByRequester(1L));
+        assertEquals(List.of(), itemRequestRepository.findByRequester(4L));
+        assertEquals(ids(tent, ladder, saw), ids(itemRequestRepository.findAllExceptRequester(1L, 0, 10)));
+        assertEquals(ids(ladder, saw), ids(itemRequestRepository.findAllExceptRequester(1L, 1, 2)));
+        assertEquals(ids(ladder, hammer), ids(itemRequestRepository.findAllExceptRequester(2L, 0, 2)));
+        assertEquals(List.of(), itemRequestRepository.findAllExceptRequester(2L, 3, 2));
+    }
+
+    private ItemRequest request(String description, Long requester) {
+        return itemRequestRepository.add(new ItemRequest(null, description, requester,
+                LocalDateTime.of(2022, 8, 1, 12, 0)));
+    }
+
+    private static List<Long> ids(ItemRequest... requests) {
+        return ids(List.of(requests));
+    }
+
+    private static List<Long> ids(List<ItemRequest> requests) {
+        return requests.stream().map(ItemRequest::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,53 @@
+package ru.practicum.shareit.storage.compact;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LongIntHashMapTest {
+
+    @Test
+    void behavesLikeHashMapUnderRandomPutsAndRemoves() {
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // узкий диапазон ключей даёт длинные цепочки и частые сдвиги при удалении
+            long key = random.nextInt(5_000) + 1;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.getOrDefault(key, LongIntHashMap.MISSING), map.remove(key));
+                expected.remove(key);
+            } else {
+                assertEquals(expected.getOrDefault(key, LongIntHashMap.MISSING), map.put(key, i));
+                expected.put(key, i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = 1; key <= 5_000; key++) {
+            assertEquals(expected.getOrDefault(key, LongIntHashMap.MISSING), map.get(key));
+        }
+    }
+
+    @Test
+    void zeroKeyIsNeverFound() {
+        LongIntHashMap map = new LongIntHashMap();
+        assertEquals(LongIntHashMap.MISSING, map.get(0));
+        for (long key = 1; key <= 100; key++) {
+            map.put(key, (int) key - 1);
+        }
+
+        assertEquals(LongIntHashMap.MISSING, map.get(0));
+        assertEquals(LongIntHashMap.MISSING, map.remove(0));
+        assertThrows(IllegalArgumentException.class, () -> map.put(0, 1));
+        assertEquals(100, map.size());
+        for (long key = 1; key <= 100; key++) {
+            assertEquals(key - 1, map.get(key));
+        }
+    }
+}
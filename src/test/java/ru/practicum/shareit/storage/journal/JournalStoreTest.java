@@ -0,0 +1,131 @@
+package ru.practicum.shareit.storage.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.shareit.item.event.ItemEventStream;
+import ru.practicum.shareit.item.mem.ItemRepositoryImpl;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemServiceImpl;
+import ru.practicum.shareit.request.mem.ItemRequestRepositoryImpl;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.user.event.UserDeletedEvent;
+import ru.practicum.shareit.user.mem.UserRepositoryImpl;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.EmailReservations;
+import ru.practicum.shareit.user.service.UserServiceImpl;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private UserRepositoryImpl userRepository = new UserRepositoryImpl();
+    private ItemRepositoryImpl itemRepository = new ItemRepositoryImpl();
+    private ItemRequestRepositoryImpl itemRequestRepository = new ItemRequestRepositoryImpl();
+
+    @Test
+    void restoresStateAfterRestart() throws Exception {
+        JournalStore store = start();
+        User owner = userRepository.create(new User(null, "owner", "owner@mail.ru"));
+        User removed = userRepository.create(new User(null, "removed", "removed@mail.ru"));
+        userRepository.update(new User(owner.getId(), "renamed", null));
+        userRepository.deleteById(removed.getId());
+        ItemRequest request = itemRequestRepository.add(
+                new ItemRequest(null, "Нужна дрель", removed.getId(), LocalDateTime.of(2022, 8, 1, 12, 0)));
+        Item drill = itemRepository.add(item("Дрель", owner.getId()));
+        Item saw = itemRepository.add(item("Пила", owner.getId()));
+        itemRepository.deleteByUserIdAndItemId(owner.getId(), saw.getId());
+        store.stop();
+
+        restart();
+
+        assertEquals(List.of(new User(owner.getId(), "renamed", "owner@mail.ru")),
+                userRepository.getAll(0, Integer.MAX_VALUE));
+        assertEquals(List.of(drill), itemRepository.findItemByUserId(owner.getId(), 0, Integer.MAX_VALUE));
+        assertEquals(List.of(drill), itemRepository.search("дрел", 0, Integer.MAX_VALUE));
+        assertEquals(List.of(request), itemRequestRepository.findByRequester(removed.getId()));
+        assertEquals(saw.getId() + 1, itemRepository.add(item("Лобзик", owner.getId())).getId());
+        assertEquals(removed.getId() + 1, userRepository.create(new User(null, "new", "new@mail.ru")).getId());
+    }
+
+    @Test
+    void replaysJournalWrittenAfterSnapshot() throws Exception {
+        JournalStore store = start();
+        User owner = userRepository.create(new User(null, "owner", "owner@mail.ru"));
+        store.compact();
+        Item drill = itemRepository.add(item("Дрель", owner.getId()));
+        userRepository.update(new User(owner.getId(), "renamed", null));
+        // без stop(): журнал не свёрнут и не закрыт, как после аварийного завершения
+        store = restart();
+
+        assertEquals("renamed", userRepository.findById(owner.getId()).orElseThrow().getName());
+        assertEquals(drill, itemRepository.getById(drill.getId()).orElseThrow());
+        store.stop();
+    }
+
+    @Test
+    void replaysDeletionOfUserWithRequests() throws Exception {
+        JournalStore store = start();
+        User requester = userRepository.create(new User(null, "requester", "requester@mail.ru"));
+        User owner = userRepository.create(new User(null, "owner", "owner@mail.ru"));
+        ItemRequest request = itemRequestRepository.add(
+                new ItemRequest(null, "Нужна дрель", requester.getId(), LocalDateTime.of(2022, 8, 1, 12, 0)));
+        Item drill = item("Дрель", owner.getId());
+        drill.setRequest(request);
+        itemRepository.add(drill);
+        deleteUser(requester.getId());
+        // без stop(): удаление запроса восстанавливается из журнала, а не из снимка
+        store = restart();
+
+        assertTrue(itemRequestRepository.getById(request.getId()).isEmpty());
+        assertNull(itemRepository.getById(drill.getId()).orElseThrow().getRequest());
+        assertEquals(List.of(owner), userRepository.getAll(0, Integer.MAX_VALUE));
+        store.stop();
+    }
+
+    /**
+     * Удаляет пользователя через сервисы, вместе с его вещами и запросами.
+     */
+    private void deleteUser(Long userId) {
+        ItemEventStream events = new ItemEventStream(16, Duration.ofHours(1), Duration.ofHours(1),
+                Duration.ofHours(1), Duration.ofSeconds(5), 1);
+        try {
+            AtomicReference<ItemServiceImpl> itemService = new AtomicReference<>();
+            UserServiceImpl userService = new UserServiceImpl(userRepository,
+                    event -> itemService.get().userDeleted((UserDeletedEvent) event),
+                    new DefaultListableBeanFactory().getBeanProvider(EmailReservations.class));
+            itemService.set(new ItemServiceImpl(itemRepository, userService, itemRequestRepository, events));
+            userService.delete(userId);
+        } finally {
+            events.stop();
+        }
+    }
+
+    private JournalStore restart() throws Exception {
+        userRepository = new UserRepositoryImpl();
+        itemRepository = new ItemRepositoryImpl();
+        itemRequestRepository = new ItemRequestRepositoryImpl();
+        return start();
+    }
+
+    private JournalStore start() throws Exception {
+        JournalStore store = new JournalStore(userRepository, itemRepository, itemRequestRepository, dir,
+                DataSize.ofKilobytes(64), Duration.ofMillis(5), true, Duration.ofHours(1));
+        store.start();
+        return store;
+    }
+
+    private static Item item(String name, long ownerId) {
+        return new Item(null, name, name + " в аренду", true, new User(ownerId, null, null), null);
+    }
+}
@@ -0,0 +1,210 @@
+package ru.practicum.shareit.storage.writebehind;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import ru.practicum.shareit.item.event.ItemEventStream;
+import ru.practicum.shareit.item.mem.ItemRepositoryImpl;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemServiceImpl;
+import ru.practicum.shareit.request.mem.ItemRequestRepositoryImpl;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.user.event.UserDeletedEvent;
+import ru.practicum.shareit.user.mem.UserRepositoryImpl;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.EmailReservations;
+import ru.practicum.shareit.user.service.UserServiceImpl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindStoreTest {
+
+    private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+            .generateUniqueName(true)
+            .setType(EmbeddedDatabaseType.H2)
+            .addScript("schema.sql")
+            .build();
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private UserRepositoryImpl userRepository = new UserRepositoryImpl();
+    private ItemRepositoryImpl itemRepository = new ItemRepositoryImpl();
+    private ItemRequestRepositoryImpl itemRequestRepository = new ItemRequestRepositoryImpl();
+
+    @AfterEach
+    void shutdown() {
+        database.shutdown();
+    }
+
+    @Test
+    void writesCoalescedChangesAndWarmsOnRestart() {
+        WriteBehindStore store = start();
+        User owner = userRepository.create(new User(null, "owner", "owner@mail.ru"));
+        User removed = userRepository.create(new User(null, "removed", "removed@mail.ru"));
+        userRepository.update(new User(owner.getId(), "renamed", null));
+        userRepository.update(new User(owner.getId(), null, "renamed@mail.ru"));
+        userRepository.deleteById(removed.getId());
+        ItemRequest request = itemRequestRepository.add(
+                new ItemRequest(null, "Нужна дрель", owner.getId(), LocalDateTime.of(2022, 8, 1, 12, 0)));
+        Item drill = itemRepository.add(item("Дрель", owner.getId(), request));
+        Item saw = itemRepository.add(item("Пила", owner.getId(), null));
+        itemRepository.deleteByUserIdAndItemId(owner.getId(), saw.getId());
+        assertEquals(5, store.pendingCount());
+
+        store.flush();
+
+        assertEquals(0, store.pendingCount());
+        assertEquals(5.0, registry.get("shareit.storage.write-behind.written").counter().count());
+        assertEquals(List.of("renamed@mail.ru"), jdbcTemplate.queryForList("SELECT email FROM users", String.class));
+        assertEquals(2L, jdbcTemplate.queryForObject("SELECT version FROM users", Long.class));
+        assertEquals(List.of(drill.getId()), jdbcTemplate.queryForList("SELECT id FROM items", Long.class));
+        store.stop();
+
+        userRepository = new UserRepositoryImpl();
+        itemRepository = new ItemRepositoryImpl();
+        itemRequestRepository = new ItemRequestRepositoryImpl();
+        store = start();
+
+        assertEquals(List.of(userRepository.findById(owner.getId()).orElseThrow()),
+                userRepository.getAll(0, Integer.MAX_VALUE));
+        assertEquals("renamed", userRepository.findById(owner.getId()).orElseThrow().getName());
+        assertEquals(List.of(drill), itemRepository.search("дрел", 0, Integer.MAX_VALUE));
+        assertEquals(List.of(drill), itemRepository.findByRequestIds(List.of(request.getId())).get(request.getId()));
+        assertEquals(List.of(request), itemRequestRepository.findByRequester(owner.getId()));
+        assertEquals(owner.getId() + 1, userRepository.create(new User(null, "new", "new@mail.ru")).getId());
+        store.stop();
+    }
+
+    @Test
+    void dropsOnlyChangesRejectedByDatabase() {
+        WriteBehindStore store = start();
+        User owner = userRepository.create(new User(null, "owner", "owner@mail.ru"));
+        itemRepository.add(item("Дрель", owner.getId(), null));
+        itemRepository.add(item("Пила", owner.getId() + 100, null));
+
+        store.flush();
+
+        assertEquals(1.0, registry.get("shareit.storage.write-behind.dropped").counter().count());
+        assertEquals(List.of("Дрель"), jdbcTemplate.queryForList("SELECT name FROM items", String.class));
+        assertEquals(1L, jdbcTemplate.queryForObject("SELECT count(*) FROM users", Long.class));
+        store.stop();
+    }
+
+    @Test
+    void deletedUserEmailCanBeTakenInTheSameBatch() {
+        WriteBehindStore store = start();
+        User other = userRepository.create(new User(null, "other", "other@mail.ru"));
+        User owner = userRepository.create(new User(null, "owner", "owner@mail.ru"));
+        ItemRequest request = itemRequestRepository.add(
+                new ItemRequest(null, "Нужна дрель", owner.getId(), LocalDateTime.of(2022, 8, 1, 12, 0)));
+        Item saw = itemRepository.add(item("Пила", owner.getId(), null));
+        Item drill = itemRepository.add(item("Дрель", other.getId(), request));
+        store.flush();
+
+        deleteUser(owner.getId());
+        userRepository.update(new User(other.getId(), null, "owner@mail.ru"));
+        User recreated = userRepository.create(new User(null, "new", "other@mail.ru"));
+        store.flush();
+
+        assertEquals(0.0, registry.get("shareit.storage.write-behind.dropped").counter().count());
+        assertEquals(List.of("owner@mail.ru", "other@mail.ru"), jdbcTemplate.queryForList(
+                "SELECT email FROM users WHERE id IN (?, ?) ORDER BY id", String.class, other.getId(),
+                recreated.getId()));
+        assertEquals(2L, jdbcTemplate.queryForObject("SELECT count(*) FROM users", Long.class));
+        assertEquals(0L, jdbcTemplate.queryForObject("SELECT count(*) FROM requests", Long.class));
+        assertEquals(List.of(drill.getId()), jdbcTemplate.queryForList("SELECT id FROM items", Long.class));
+        assertNull(jdbcTemplate.queryForObject("SELECT request_id FROM items", Long.class));
+        assertTrue(itemRepository.getById(saw.getId()).isEmpty());
+        assertNull(itemRepository.getById(drill.getId()).orElseThrow().getRequest());
+        assertTrue(itemRequestRepository.getById(request.getId()).isEmpty());
+        store.stop();
+    }
+
+    @Test
+    void retriesChangeRejectedBeforeChangeItDependsOn() {
+        WriteBehindStore store = start();
+        User first = userRepository.create(new User(null, "first", "first@mail.ru"));
+        User second = userRepository.create(new User(null, "second", "second@mail.ru"));
+        store.flush();
+
+        // первый пользователь занимает адрес, который второй освобождает в том же сбросе
+        userRepository.update(new User(second.getId(), null, "changed@mail.ru"));
+        userRepository.update(new User(first.getId(), null, "second@mail.ru"));
+        itemRepository.add(item("Пила", second.getId() + 100, null));
+        store.flush();
+
+        assertEquals(1.0, registry.get("shareit.storage.write-behind.dropped").counter().count());
+        assertEquals(List.of("second@mail.ru", "changed@mail.ru"),
+                jdbcTemplate.queryForList("SELECT email FROM users ORDER BY id", String.class));
+        store.stop();
+    }
+
+    @Test
+    void itemOfDeletedOwnerIsNotWrittenBack() {
+        WriteBehindStore store = start();
+        User owner = userRepository.create(new User(null, "owner", "owner@mail.ru"));
+        Item drill = itemRepository.add(item("Дрель", owner.getId(), null));
+        store.flush();
+
+        Item renamed = item("Новая дрель", owner.getId(), null);
+        renamed.setId(drill.getId());
+        itemRepository.update(owner.getId(), renamed);
+        deleteUser(owner.getId());
+        Item late = item("Поздняя дрель", owner.getId(), null);
+        late.setId(drill.getId());
+        assertFalse(itemRepository.update(owner.getId(), late));
+        store.flush();
+
+        assertEquals(0.0, registry.get("shareit.storage.write-behind.dropped").counter().count());
+        assertEquals(0L, jdbcTemplate.queryForObject("SELECT count(*) FROM users", Long.class));
+        assertEquals(0L, jdbcTemplate.queryForObject("SELECT count(*) FROM items", Long.class));
+        assertTrue(itemRepository.getById(drill.getId()).isEmpty());
+        assertEquals(0, store.pendingCount());
+        store.stop();
+    }
+
+    /**
+     * Удаляет пользователя через сервисы, вместе с его вещами и запросами.
+     */
+    private void deleteUser(Long userId) {
+        ItemEventStream events = new ItemEventStream(16, Duration.ofHours(1), Duration.ofHours(1),
+                Duration.ofHours(1), Duration.ofSeconds(5), 1);
+        try {
+            AtomicReference<ItemServiceImpl> itemService = new AtomicReference<>();
+            UserServiceImpl userService = new UserServiceImpl(userRepository,
+                    event -> itemService.get().userDeleted((UserDeletedEvent) event),
+                    new DefaultListableBeanFactory().getBeanProvider(EmailReservations.class));
+            itemService.set(new ItemServiceImpl(itemRepository, userService, itemRequestRepository, events));
+            userService.delete(userId);
+        } finally {
+            events.stop();
+        }
+    }
+
+    private WriteBehindStore start() {
+        registry.clear();
+        WriteBehindStore store = new WriteBehindStore(userRepository, itemRepository, itemRequestRepository,
+                jdbcTemplate, new DataSourceTransactionManager(database), registry, 100, Duration.ofHours(1),
+                Duration.ofSeconds(1), false);
+        store.start();
+        return store;
+    }
+
+    private static Item item(String name, long ownerId, ItemRequest request) {
+        return new Item(null, name, name + " в аренду", true, new User(ownerId, null, null), request);
+    }
+}
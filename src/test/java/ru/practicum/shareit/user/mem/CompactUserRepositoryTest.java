@@ -0,0 +1,27 @@
+package ru.practicum.shareit.user.mem;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.validation.exception.NotFoundException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactUserRepositoryTest {
+
+    private final CompactUserRepository userRepository = new CompactUserRepository();
+
+    @Test
+    void zeroIdIsNotFound() {
+        User user = userRepository.create(new User(null, "user", "user@mail.ru"));
+
+        assertTrue(userRepository.findById(0L).isEmpty());
+        assertThrows(NotFoundException.class, () -> userRepository.deleteById(0L));
+        assertThrows(NotFoundException.class, () -> userRepository.update(new User(0L, "other", null)));
+
+        assertEquals(List.of(user), userRepository.getAll(0, 10));
+    }
+}
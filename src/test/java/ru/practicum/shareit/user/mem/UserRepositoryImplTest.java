@@ -0,0 +1,73 @@
+package ru.practicum.shareit.user.mem;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.Concurrently;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.validation.exception.ConflictException;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserRepositoryImplTest {
+
+    private static final int THREADS = 32;
+    private static final int USERS_PER_THREAD = 1000;
+
+    private final UserRepositoryImpl userRepository = new UserRepositoryImpl();
+
+    @Test
+    void concurrentCreatesAreNotLost() throws Exception {
+        Concurrently.run(THREADS, thread -> {
+            for (int i = 0; i < USERS_PER_THREAD; i++) {
+                userRepository.create(new User(null, "user", thread + "-" + i + "@mail.ru"));
+            }
+        });
+
+        List<User> users = userRepository.getAll(0, Integer.MAX_VALUE);
+        assertEquals(THREADS * USERS_PER_THREAD, users.size());
+        Set<Long> ids = new HashSet<>();
+        users.forEach(user -> ids.add(user.getId()));
+        assertEquals(users.size(), ids.size());
+    }
+
+    @Test
+    void sameEmailIsAcceptedOnlyOnce() throws Exception {
+        AtomicInteger conflicts = new AtomicInteger();
+        Concurrently.run(THREADS, thread -> {
+            for (int i = 0; i < USERS_PER_THREAD; i++) {
+                try {
+                    userRepository.create(new User(null, "user", i + "@mail.ru"));
+                } catch (ConflictException e) {
+                    conflicts.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(USERS_PER_THREAD, userRepository.getAll(0, Integer.MAX_VALUE).size());
+        assertEquals((THREADS - 1) * USERS_PER_THREAD, conflicts.get());
+    }
+
+    @Test
+    void concurrentEmailChangesKeepEmailsUnique() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            ids.add(userRepository.create(new User(null, "user", thread + "@mail.ru")).getId());
+        }
+
+        Concurrently.run(THREADS, thread -> {
+            for (int i = 0; i < USERS_PER_THREAD; i++) {
+                try {
+                    userRepository.update(new User(ids.get(thread), null, "shared" + i % 10 + "@mail.ru"));
+                } catch (ConflictException ignored) {
+                    // адрес уже занят другим пользователем
+                }
+            }
+        });
+
+        Set<String> emails = new HashSet<>();
+        userRepository.getAll(0, Integer.MAX_VALUE).forEach(user -> emails.add(user.getEmail()));
+        assertEquals(THREADS, emails.size());
+    }
+}
@@ -0,0 +1,67 @@
+package ru.practicum.shareit.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitFilterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void rejectsRequestsAboveEndpointLimit() throws Exception {
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(2, "GET /items/search=1", Duration.ZERO,
+                new ObjectMapper(), registry);
+        List<Integer> nested = new ArrayList<>();
+
+        MockHttpServletResponse outer = send(filter, "GET", "/items/search", (request, response) -> {
+            nested.add(send(filter, "GET", "/items/search", new MockFilterChain()).getStatus());
+            nested.add(send(filter, "GET", "/items/1", new MockFilterChain()).getStatus());
+        });
+
+        assertEquals(200, outer.getStatus());
+        assertEquals(List.of(503, 200), nested);
+        assertEquals(200, send(filter, "GET", "/items/search", new MockFilterChain()).getStatus());
+        assertEquals(1, registry.get("shareit.concurrency.rejected").tag("endpoint", "GET /items/search")
+                .counter().count());
+        assertEquals(0, registry.get("shareit.concurrency.in-flight").tag("endpoint", "GET /items/search")
+                .gauge().value());
+    }
+
+    @Test
+    void sharesDefaultLimitBetweenOtherEndpoints() throws Exception {
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, "PATCH /items/*=5", Duration.ZERO,
+                new ObjectMapper(), registry);
+        List<Integer> nested = new ArrayList<>();
+
+        send(filter, "GET", "/items", (request, response) -> {
+            nested.add(send(filter, "GET", "/users/1", new MockFilterChain()).getStatus());
+            nested.add(send(filter, "PATCH", "/items/7", new MockFilterChain()).getStatus());
+            nested.add(send(filter, "GET", "/actuator/health", new MockFilterChain()).getStatus());
+        });
+
+        assertEquals(List.of(503, 200, 200), nested);
+    }
+
+    private static MockHttpServletResponse send(ConcurrencyLimitFilter filter, String method, String path,
+                                                FilterChain chain) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,115 @@
+package ru.practicum.shareit.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.ResolvableType;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.practicum.shareit.cluster.ClusterTopology;
+import ru.practicum.shareit.cluster.ShardRoutingFilter;
+
+import java.net.URI;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+    private static final ObjectProvider<ClusterTopology> NO_CLUSTER = new DefaultListableBeanFactory()
+            .getBeanProvider(ClusterTopology.class);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void throttlesEachUserByRequestCost() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(1, 10, 100, 10, "GET /items/search=4", new ObjectMapper(), registry, NO_CLUSTER);
+
+        assertEquals(200, send(filter, "/items/search", "1").getStatus());
+        assertEquals(200, send(filter, "/items/search", "1").getStatus());
+        MockHttpServletResponse throttled = send(filter, "/items/search", "1");
+        assertEquals(429, throttled.getStatus());
+        assertTrue(Long.parseLong(throttled.getHeader("Retry-After")) >= 2);
+        assertEquals(200, send(filter, "/items/1", "1").getStatus());
+        assertEquals(200, send(filter, "/items/search", "2").getStatus());
+        assertEquals(1, registry.get("shareit.ratelimit.throttled").tag("key", "user").counter().count());
+    }
+
+    @Test
+    void keysUsersEndpointsByAddress() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(1, 2, 100, 10, "", new ObjectMapper(), registry, NO_CLUSTER);
+
+        assertEquals(200, send(filter, "/users", "1").getStatus());
+        assertEquals(200, send(filter, "/users/1", "2").getStatus());
+        assertEquals(429, send(filter, "/users", "3").getStatus());
+        assertEquals(200, send(filter, "/items", "3").getStatus());
+        assertEquals(200, send(filter, "/actuator/health", null).getStatus());
+    }
+
+    @Test
+    void keysMalformedUserIdsByAddress() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(1, 2, 100, 10, "", new ObjectMapper(), registry, NO_CLUSTER);
+
+        assertEquals(200, send(filter, "/items", "abc").getStatus());
+        assertEquals(200, send(filter, "/items", "-1").getStatus());
+        assertEquals(429, send(filter, "/items", "0").getStatus());
+        assertEquals(200, send(filter, "/items", "1").getStatus());
+    }
+
+    @Test
+    void capsUsersSharingAnAddress() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(1, 2, 100, 2, "", new ObjectMapper(), registry, NO_CLUSTER);
+
+        for (int userId = 1; userId <= 4; userId++) {
+            assertEquals(200, send(filter, "/items", Integer.toString(userId)).getStatus());
+        }
+        assertEquals(429, send(filter, "/items", "5").getStatus());
+        assertEquals(1, registry.get("shareit.ratelimit.throttled").tag("key", "address").counter().count());
+    }
+
+    @Test
+    void skipsRequestsForwardedByClusterNodes() throws Exception {
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("topology", new ClusterTopology(
+                List.of(URI.create("http://127.0.0.1:8080"), URI.create("http://127.0.0.1:8081")), 0, 16,
+                beans.getBeanProvider(ResolvableType.forClass(Object.class)),
+                beans.getBeanProvider(ResolvableType.forClass(Object.class)),
+                beans.getBeanProvider(ResolvableType.forClass(Object.class))));
+        RateLimitFilter filter = new RateLimitFilter(1, 1, 100, 10, "", new ObjectMapper(), registry,
+                beans.getBeanProvider(ClusterTopology.class));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, send(filter, forwarded("127.0.0.1")).getStatus());
+        }
+        assertEquals(200, send(filter, "/items", "1").getStatus());
+        assertEquals(429, send(filter, "/items", "1").getStatus());
+        assertEquals(200, send(filter, forwarded("10.0.0.1")).getStatus());
+        assertEquals(429, send(filter, forwarded("10.0.0.1")).getStatus());
+    }
+
+    private static MockHttpServletRequest forwarded(String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/items/search");
+        request.addHeader(RateLimitFilter.USER_ID_HEADER, "2");
+        request.addHeader(ShardRoutingFilter.FORWARDED_HEADER, "1");
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+
+    private static MockHttpServletResponse send(RateLimitFilter filter, String path, String userId) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        if (userId != null) {
+            request.addHeader(RateLimitFilter.USER_ID_HEADER, userId);
+        }
+        return send(filter, request);
+    }
+
+    private static MockHttpServletResponse send(RateLimitFilter filter, MockHttpServletRequest request)
+            throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,77 @@
+package ru.practicum.shareit.web;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestLoggingFilterTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger("shareit.access");
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private final RequestLoggingFilter filter = new RequestLoggingFilter(Level.INFO, 1.0);
+
+    @BeforeEach
+    void attach() {
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void detach() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void timedOutAsyncRequestIsLoggedOnce() throws Exception {
+        MockAsyncContext context = startAsync("/items/stream");
+
+        for (AsyncListener listener : context.getListeners()) {
+            listener.onTimeout(new AsyncEvent(context));
+        }
+        context.complete();
+
+        List<String> messages = messages();
+        assertEquals(1, messages.size());
+        assertTrue(messages.get(0).contains("uri=/items/stream status=503"), messages.get(0));
+        assertTrue(messages.get(0).endsWith("outcome=timeout"), messages.get(0));
+    }
+
+    @Test
+    void completedAsyncRequestIsLoggedOnCompletion() throws Exception {
+        MockAsyncContext context = startAsync("/items/stream");
+        assertEquals(List.of(), messages());
+
+        context.complete();
+
+        List<String> messages = messages();
+        assertEquals(1, messages.size());
+        assertTrue(messages.get(0).contains("uri=/items/stream status=200"), messages.get(0));
+    }
+
+    private MockAsyncContext startAsync(String path) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setAsyncSupported(true);
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+        return (MockAsyncContext) request.getAsyncContext();
+    }
+
+    private List<String> messages() {
+        return appender.list.stream().map(ILoggingEvent::getFormattedMessage).collect(Collectors.toList());
+    }
+}